@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.eclipse.xml;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.funfried.netbeans.plugins.external.formatter.jmh.Corpus;
+
+/**
+ * JMH benchmark of {@link ConfigReader#getProfileSettings(String, String)}, which looks up the last
+ * profile of a generated Eclipse formatter configuration file.
+ *
+ * @author bahlef
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigReaderBenchmark {
+	/** The size of the generated input, which is the number of profiles in the configuration file. */
+	@Param
+	public Corpus.Size size;
+
+	private String fileContent;
+
+	private String profileName;
+
+	@Setup
+	public void setup() {
+		fileContent = Corpus.eclipseProfiles(size);
+		profileName = Corpus.getLastProfileName(size);
+	}
+
+	@Benchmark
+	public Map<String, String> getProfileSettings() throws Exception {
+		return ConfigReader.getProfileSettings(fileContent, profileName);
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.html.jsoup;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.funfried.netbeans.plugins.external.formatter.jmh.Corpus;
+
+/**
+ * JMH benchmark of the {@link JsoupHtmlFormatterWrapper} using generated HTML input.
+ *
+ * @author bahlef
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsoupHtmlFormatterWrapperBenchmark {
+	/** The size of the generated input. */
+	@Param
+	public Corpus.Size size;
+
+	private JsoupHtmlFormatterWrapper formatter;
+
+	private String code;
+
+	private Document.OutputSettings options;
+
+	@Setup
+	public void setup() throws Exception {
+		formatter = new JsoupHtmlFormatterWrapper();
+		code = Corpus.html(size);
+		options = new Document.OutputSettings();
+	}
+
+	@Benchmark
+	public String format() throws Exception {
+		return formatter.format(code, "\n", options);
+	}
+}
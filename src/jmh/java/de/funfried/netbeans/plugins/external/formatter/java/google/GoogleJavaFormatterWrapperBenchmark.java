@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.java.google;
+
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.googlejavaformat.java.JavaFormatterOptions;
+
+import de.funfried.netbeans.plugins.external.formatter.jmh.Corpus;
+
+/**
+ * JMH benchmark of the {@link GoogleJavaFormatterWrapper} using generated Java input.
+ *
+ * @author bahlef
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GoogleJavaFormatterWrapperBenchmark {
+	/** The size of the generated input. */
+	@Param
+	public Corpus.Size size;
+
+	/** Whether the whole input or only a region of it is formatted. */
+	@Param
+	public Corpus.Variant variant;
+
+	private GoogleJavaFormatterWrapper formatter;
+
+	private String code;
+
+	private SortedSet<Pair<Integer, Integer>> regions;
+
+	@Setup
+	public void setup() throws Exception {
+		formatter = new GoogleJavaFormatterWrapper();
+		code = Corpus.java(size);
+		regions = Corpus.regions(variant, code);
+	}
+
+	@Benchmark
+	public String format() throws Exception {
+		return formatter.format(code, JavaFormatterOptions.Style.GOOGLE, regions);
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.javascript.eclipse;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.funfried.netbeans.plugins.external.formatter.jmh.Corpus;
+
+/**
+ * JMH benchmark of the {@link EclipseJavascriptFormatterWrapper} using generated JavaScript input.
+ *
+ * @author bahlef
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EclipseJavascriptFormatterWrapperBenchmark {
+	/** The size of the generated input. */
+	@Param
+	public Corpus.Size size;
+
+	/** Whether the whole input or only a region of it is formatted. */
+	@Param
+	public Corpus.Variant variant;
+
+	private EclipseJavascriptFormatterWrapper formatter;
+
+	private String code;
+
+	private String formatterFile;
+
+	private Pair<Integer, Integer> region;
+
+	@Setup
+	public void setup() throws Exception {
+		formatter = new EclipseJavascriptFormatterWrapper();
+		code = Corpus.javascript(size);
+		formatterFile = Corpus.writeTempFile(".xml", Corpus.eclipseProfiles(Corpus.Size.SMALL));
+		region = variant == Corpus.Variant.REGION ? Corpus.region(code) : null;
+	}
+
+	@Benchmark
+	public String format() throws Exception {
+		return formatter.format(formatterFile, Corpus.getLastProfileName(Corpus.Size.SMALL), code, "\n", region);
+	}
+}
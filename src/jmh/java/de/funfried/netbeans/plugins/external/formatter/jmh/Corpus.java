@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.jmh;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.netbeans.api.annotations.common.CheckForNull;
+import org.netbeans.api.annotations.common.NonNull;
+
+/**
+ * Generates the deterministic, intentionally badly formatted input corpora for the JMH benchmarks.
+ * Every corpus consists of a number of repeated (but slightly varying) units, e.g. a method in case of
+ * Java or a rule in case of CSS, so that all corpora of the same {@link Size} have a comparable amount
+ * of work for the formatters.
+ *
+ * @author bahlef
+ */
+public final class Corpus {
+	/** The seed of the {@link Random} used to vary the generated units. */
+	private static final long SEED = 4711L;
+
+	/**
+	 * The sizes of the generated corpora.
+	 */
+	public enum Size {
+		/** A corpus of a few dozen lines. */
+		SMALL(10),
+		/** A corpus of a typical source file with about two thousand lines. */
+		MEDIUM(250),
+		/** A corpus of a generated or very large source file with about twenty thousand lines. */
+		HUGE(2500);
+
+		private final int units;
+
+		private Size(int units) {
+			this.units = units;
+		}
+
+		/**
+		 * Returns the number of generated units of this size.
+		 *
+		 * @return the number of generated units
+		 */
+		public int getUnits() {
+			return units;
+		}
+	}
+
+	/**
+	 * Whether the whole corpus or only a region of it should be formatted.
+	 */
+	public enum Variant {
+		/** Formats the whole file. */
+		WHOLE_FILE,
+		/** Formats only a small region in the middle of the file, like a selection in the editor. */
+		REGION;
+	}
+
+	/**
+	 * Private constructor due to static methods only.
+	 */
+	private Corpus() {
+	}
+
+	/**
+	 * Returns a Java class with the given {@code size}.
+	 *
+	 * @param size the {@link Size} of the corpus
+	 *
+	 * @return the generated code
+	 */
+	@NonNull
+	public static String java(Size size) {
+		Random random = new Random(SEED);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("package de.funfried.benchmark;\n");
+		sb.append("import java.util.List;\nimport java.util.Map;\n\n");
+		sb.append("public class Generated{\n");
+
+		for (int i = 0; i < size.getUnits(); i++) {
+			int value = random.nextInt(1000);
+
+			sb.append("  private   int field").append(i).append("=").append(value).append(";\n");
+			sb.append("/** Computes the value ").append(i).append(". */\n");
+			sb.append("public int method").append(i).append("(int a,List<String> values,Map<String,Integer> map){\n");
+			sb.append("if(a>").append(value).append("){return a+values.size();}\n");
+			sb.append("        else {\n");
+			sb.append(" for(String value:values){a+=map.getOrDefault(value,").append(i).append(")*value.length();}\n");
+			sb.append("}\n");
+			sb.append("    return a*field").append(i).append(";}\n");
+		}
+
+		sb.append("}\n");
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a JavaScript file with the given {@code size}.
+	 *
+	 * @param size the {@link Size} of the corpus
+	 *
+	 * @return the generated code
+	 */
+	@NonNull
+	public static String javascript(Size size) {
+		Random random = new Random(SEED);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("'use strict';\n");
+
+		for (int i = 0; i < size.getUnits(); i++) {
+			int value = random.nextInt(1000);
+
+			sb.append("var config").append(i).append("={name:'unit").append(i).append("',limit:").append(value).append(",enabled:true};\n");
+			sb.append("function compute").append(i).append("(a,values){\n");
+			sb.append("if(a>config").append(i).append(".limit){return a+values.length;}\n");
+			sb.append("        else {\n");
+			sb.append(" for(var j=0;j<values.length;j++){a+=values[j].length*").append(value).append(";}\n");
+			sb.append("}\n");
+			sb.append("    return a;}\n");
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a XML file with the given {@code size}.
+	 *
+	 * @param size the {@link Size} of the corpus
+	 *
+	 * @return the generated code
+	 */
+	@NonNull
+	public static String xml(Size size) {
+		Random random = new Random(SEED);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		sb.append("<items>\n");
+
+		for (int i = 0; i < size.getUnits(); i++) {
+			sb.append("<item id=\"").append(i).append("\" type=\"generated\"><name>Item ").append(i).append("</name>\n");
+			sb.append("      <values>");
+			for (int j = 0; j < 4; j++) {
+				sb.append("<value key=\"k").append(j).append("\">").append(random.nextInt(1000)).append("</value>");
+			}
+			sb.append("</values>\n");
+			sb.append("  <!-- comment of item ").append(i).append(" --><description>Description of the generated item ").append(i).append("</description></item>\n");
+		}
+
+		sb.append("</items>\n");
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a HTML file with the given {@code size}.
+	 *
+	 * @param size the {@link Size} of the corpus
+	 *
+	 * @return the generated code
+	 */
+	@NonNull
+	public static String html(Size size) {
+		Random random = new Random(SEED);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("<!DOCTYPE html>\n");
+		sb.append("<html><head><title>Generated</title><meta charset=\"UTF-8\"></head>\n");
+		sb.append("<body>\n");
+
+		for (int i = 0; i < size.getUnits(); i++) {
+			sb.append("<div class=\"row\" id=\"row").append(i).append("\"><h2>Row ").append(i).append("</h2>\n");
+			sb.append("      <p>Some <b>bold</b> and <i>italic</i> text with the value ").append(random.nextInt(1000)).append(".</p>\n");
+			sb.append("<ul><li>First</li><li><a href=\"#row").append(i).append("\">Link</a></li>\n");
+			sb.append("  <li>Third</li></ul><table><tr><td>").append(i).append("</td><td>").append(random.nextInt(1000)).append("</td></tr></table></div>\n");
+		}
+
+		sb.append("</body></html>\n");
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a JSON file with the given {@code size}.
+	 *
+	 * @param size the {@link Size} of the corpus
+	 *
+	 * @return the generated code
+	 */
+	@NonNull
+	public static String json(Size size) {
+		Random random = new Random(SEED);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"generated\":true,\"items\":[\n");
+
+		for (int i = 0; i < size.getUnits(); i++) {
+			if (i > 0) {
+				sb.append(",\n");
+			}
+
+			sb.append("{\"id\":").append(i).append(",\"name\":\"Item ").append(i).append("\",\"price\":").append(random.nextInt(100000)).append(".").append(random.nextInt(100));
+			sb.append(",\"tags\":[\"a\",\"b\",\"c\"],\n");
+			sb.append("  \"nested\":{\"enabled\":").append(random.nextBoolean()).append(",\"value\":null,\"values\":[");
+			for (int j = 0; j < 4; j++) {
+				if (j > 0) {
+					sb.append(',');
+				}
+
+				sb.append(random.nextInt(1000));
+			}
+			sb.append("]}}");
+		}
+
+		sb.append("\n]}\n");
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a CSS file with the given {@code size}.
+	 *
+	 * @param size the {@link Size} of the corpus
+	 *
+	 * @return the generated code
+	 */
+	@NonNull
+	public static String css(Size size) {
+		Random random = new Random(SEED);
+
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < size.getUnits(); i++) {
+			sb.append(".item-").append(i).append(" > a,.item-").append(i).append(":hover{color:rgb(").append(random.nextInt(256)).append(",").append(random.nextInt(256)).append(",").append(random.nextInt(256)).append(");\n");
+			sb.append("  margin:0 auto;padding:").append(random.nextInt(20)).append("px ").append(random.nextInt(20)).append("px;\n");
+			sb.append("font-family:\"Helvetica Neue\",Arial,sans-serif;background:url('images/item").append(i).append(".png') no-repeat}\n");
+			sb.append("@media (max-width:").append(600 + i).append("px){.item-").append(i).append("{display:none}}\n");
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a SQL script with the given {@code size}.
+	 *
+	 * @param size the {@link Size} of the corpus
+	 *
+	 * @return the generated code
+	 */
+	@NonNull
+	public static String sql(Size size) {
+		Random random = new Random(SEED);
+
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < size.getUnits(); i++) {
+			sb.append("select a.id,a.name,b.value,count(*) from table_").append(i).append(" a inner join other_table b on a.id=b.a_id where a.value>").append(random.nextInt(1000));
+			sb.append(" and b.type in ('x','y','z') group by a.id,a.name,b.value order by a.name;\n");
+			sb.append("insert into table_").append(i).append(" (id,name,value) values (").append(i).append(",'name ").append(i).append("',").append(random.nextInt(1000)).append(");\n");
+			sb.append("update table_").append(i).append(" set value=value+1 where id in (select a_id from other_table where value<").append(random.nextInt(1000)).append(");\n");
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns an Eclipse formatter configuration file with {@link Size#getUnits()} profiles, the profile
+	 * which is looked up by the benchmarks ({@link #getLastProfileName(Size)}) is the last one.
+	 *
+	 * @param size the {@link Size} of the corpus
+	 *
+	 * @return the generated configuration file content
+	 */
+	@NonNull
+	public static String eclipseProfiles(Size size) {
+		Random random = new Random(SEED);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		sb.append("<profiles version=\"21\">\n");
+
+		for (int i = 0; i < size.getUnits(); i++) {
+			sb.append("    <profile kind=\"CodeFormatterProfile\" name=\"profile-").append(i).append("\" version=\"21\">\n");
+			sb.append("        <setting id=\"org.eclipse.jdt.core.formatter.tabulation.char\" value=\"").append(random.nextBoolean() ? "tab" : "space").append("\"/>\n");
+			sb.append("        <setting id=\"org.eclipse.jdt.core.formatter.tabulation.size\" value=\"").append(2 + random.nextInt(3)).append("\"/>\n");
+			sb.append("        <setting id=\"org.eclipse.jdt.core.formatter.lineSplit\" value=\"").append(80 + random.nextInt(80)).append("\"/>\n");
+			for (int j = 0; j < 40; j++) {
+				sb.append("        <setting id=\"org.eclipse.jdt.core.formatter.generated_setting_").append(j).append("\" value=\"").append(random.nextInt(100)).append("\"/>\n");
+			}
+			sb.append("    </profile>\n");
+		}
+
+		sb.append("</profiles>\n");
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the name of the last profile of the configuration returned by {@link #eclipseProfiles(Size)}.
+	 *
+	 * @param size the {@link Size} of the corpus
+	 *
+	 * @return the name of the last profile
+	 */
+	@NonNull
+	public static String getLastProfileName(Size size) {
+		return "profile-" + (size.getUnits() - 1);
+	}
+
+	/**
+	 * Returns a copy of the given {@code code} where the indentation of every third line changed, like it
+	 * would after reformatting the code.
+	 *
+	 * @param code the code to change
+	 *
+	 * @return the changed code
+	 */
+	@NonNull
+	public static String reindent(String code) {
+		StringBuilder sb = new StringBuilder(code.length());
+
+		String[] lines = code.split("\n", -1);
+		for (int i = 0; i < lines.length; i++) {
+			if (i > 0) {
+				sb.append('\n');
+			}
+
+			if (i % 3 == 0) {
+				sb.append('\t').append(lines[i].trim());
+			} else {
+				sb.append(lines[i]);
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a region of the given {@code code} which starts at the beginning of the line in the middle
+	 * of the {@code code} and covers about five percent of the {@code code}, but at least one line.
+	 *
+	 * @param code the code
+	 *
+	 * @return the region as a {@link Pair} of the start and end offset (both inclusive)
+	 */
+	@NonNull
+	public static Pair<Integer, Integer> region(String code) {
+		int start = code.lastIndexOf('\n', Math.max(0, code.length() / 2 - 1)) + 1;
+
+		int end = code.indexOf('\n', Math.min(code.length() - 1, start + Math.max(1, code.length() / 20)));
+		if (end < 0) {
+			end = code.length() - 1;
+		}
+
+		return Pair.of(start, end);
+	}
+
+	/**
+	 * Returns the regions of the given {@code code} which should be formatted in case of the given
+	 * {@code variant}.
+	 *
+	 * @param variant the {@link Variant}
+	 * @param code the code
+	 *
+	 * @return the regions to format, or {@code null} to format the whole file
+	 */
+	@CheckForNull
+	public static SortedSet<Pair<Integer, Integer>> regions(Variant variant, String code) {
+		if (variant == Variant.WHOLE_FILE) {
+			return null;
+		}
+
+		SortedSet<Pair<Integer, Integer>> regions = new TreeSet<>();
+		regions.add(region(code));
+
+		return regions;
+	}
+
+	/**
+	 * Writes the given {@code content} to a temporary file, which is deleted when the JVM exits.
+	 *
+	 * @param suffix the suffix of the file name
+	 * @param content the content to write
+	 *
+	 * @return the path of the temporary file
+	 *
+	 * @throws IOException if the file could not be written
+	 */
+	@NonNull
+	public static String writeTempFile(String suffix, String content) throws IOException {
+		Path file = Files.createTempFile("external-formatter-benchmark", suffix);
+		file.toFile().deleteOnExit();
+
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+		return file.toAbsolutePath().toString();
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.sql.sqlformatter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.vertical_blank.sqlformatter.core.FormatConfig;
+import com.github.vertical_blank.sqlformatter.languages.Dialect;
+
+import de.funfried.netbeans.plugins.external.formatter.jmh.Corpus;
+
+/**
+ * JMH benchmark of the {@link SQLFormatterWrapper} using generated SQL input.
+ *
+ * @author bahlef
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SQLFormatterWrapperBenchmark {
+	/** The size of the generated input. */
+	@Param
+	public Corpus.Size size;
+
+	private SQLFormatterWrapper formatter;
+
+	private String code;
+
+	private FormatConfig formatConfig;
+
+	@Setup
+	public void setup() throws Exception {
+		formatter = new SQLFormatterWrapper();
+		code = Corpus.sql(size);
+		formatConfig = FormatConfig.builder()
+				.indent(StringUtils.repeat(' ', SQLFormatterSettings.INDENT_SIZE_DEFAULT))
+				.linesBetweenQueries(SQLFormatterSettings.LINES_BETWEEN_QUERIES_DEFAULT)
+				.maxColumnLength(SQLFormatterSettings.MAX_COLUMN_LENGTH_DEFAULT)
+				.uppercase(SQLFormatterSettings.UPPERCASE_DEFAULT)
+				.build();
+	}
+
+	@Benchmark
+	public String format() throws Exception {
+		return formatter.format(code, Dialect.StandardSql, formatConfig);
+	}
+}
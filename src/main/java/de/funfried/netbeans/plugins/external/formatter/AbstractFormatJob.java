@@ -9,10 +9,10 @@
  */
 package de.funfried.netbeans.plugins.external.formatter;
 
-import java.io.IOException;
-import java.io.StringReader;
+import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,13 +23,14 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.apache.commons.lang3.tuple.Pair;
 import org.netbeans.api.annotations.common.NonNull;
-import org.netbeans.api.diff.Difference;
 import org.netbeans.api.editor.guards.GuardedSection;
 import org.netbeans.api.editor.guards.GuardedSectionManager;
 import org.netbeans.lib.editor.util.swing.DocumentUtilities;
 import org.openide.text.NbDocument;
 
-import de.funfried.netbeans.plugins.external.formatter.ui.editor.diff.Diff;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
+import de.funfried.netbeans.plugins.external.formatter.ui.editor.diff.TextDiff;
+import de.funfried.netbeans.plugins.external.formatter.ui.editor.diff.TextEdit;
 
 /**
  * Abstract base implementation of a {@link FormatJob} which is called by the
@@ -62,7 +63,9 @@ public abstract class AbstractFormatJob implements FormatJob {
 	}
 
 	/**
-	 * Applies the given {@code formattedContent} to the {@code document}.
+	 * Applies the given {@code formattedContent} to the {@code document}. Only the characters which
+	 * actually changed are replaced, all {@link TextEdit}s are applied from the bottom to the top of the
+	 * {@code document} in a single atomic document transaction, so they can be undone at once.
 	 *
 	 * @param code the previous (unformatted) content
 	 * @param formattedContent the formatted code
@@ -75,81 +78,107 @@ public abstract class AbstractFormatJob implements FormatJob {
 	 * @throws BadLocationException if there is an issue while applying the formatted code
 	 */
 	protected boolean setFormattedCode(String code, String formattedContent) throws BadLocationException {
-		// quick check for changed
-		if (formattedContent != null && /* does not support changes of EOL */ !formattedContent.equals(code)) {
-			try (StringReader original = new StringReader(code);
-					StringReader formatted = new StringReader(formattedContent)) {
-				Difference[] differences = Diff.diff(original, formatted);
-				if (differences != null && differences.length != 0) {
-					if (log.isLoggable(logLevel)) {
-						log.log(logLevel, "Unformatted: ''{0}''", code);
-						log.log(logLevel, "Formatted: ''{0}''", formattedContent);
-					}
-
-					for (Difference d : differences) {
-						int startLine = d.getSecondStart();
-
-						switch (d.getType()) {
-							case Difference.ADD: {
-								int start = NbDocument.findLineOffset(document, startLine - 1);
-								String addText = d.getSecondText();
+		return applyFormattedCode(document, code, formattedContent);
+	}
 
-								if (log.isLoggable(logLevel)) {
-									log.log(logLevel, "ADD: {0} / Line {1}: {2}", new Object[] { start, startLine, addText });
-								}
+	/**
+	 * Applies the given {@code formattedContent} to the given {@code document} which contained the given
+	 * {@code code} when it was formatted, see {@link #setFormattedCode(String, String)}.
+	 *
+	 * @param document the {@link StyledDocument} to which the {@code formattedContent} should be applied
+	 * @param code the previous (unformatted) content
+	 * @param formattedContent the formatted code
+	 *
+	 * @return {@code true} if and only if the given {@code formattedContent} was set to
+	 *         the {@code document}, otherwise {@code false}
+	 *
+	 * @throws BadLocationException if there is an issue while applying the formatted code
+	 */
+	static boolean applyFormattedCode(StyledDocument document, String code, String formattedContent) throws BadLocationException {
+		// quick check for changed
+		if (formattedContent == null || formattedContent.equals(code)) {
+			return false;
+		}
 
-								document.insertString(start, addText, null);
+		long diffStart = FormatterMetrics.startTimer();
 
-								break;
-							}
-							case Difference.CHANGE: {
-								int start = NbDocument.findLineOffset(document, startLine - 1);
-								String removeText = d.getFirstText();
-								int length = removeText.length();
+		String formatted = adjustLineBreaks(code, formattedContent);
 
-								// if the document consists of only 1 line without a trailing line-break
-								// then LENGTH would exceed the document and yield an exception
-								length = Math.min(length, document.getLength());
+		List<TextEdit> edits = TextDiff.diff(code, formatted);
 
-								String addText = d.getSecondText();
+		FormatterMetrics.stopTimer(FormatterMetrics.Phase.DIFF, diffStart);
 
-								if (log.isLoggable(logLevel)) {
-									log.log(logLevel, "CHANGE: {0} - {1} / Line {2}: ''{3}'' <= ''{4}''", new Object[] { start, length, startLine, addText, removeText });
-								}
+		if (edits.isEmpty()) {
+			return false;
+		}
 
-								document.remove(start, length);
-								document.insertString(start, addText, null);
+		if (log.isLoggable(logLevel)) {
+			log.log(logLevel, "Unformatted: ''{0}''", code);
+			log.log(logLevel, "Formatted: ''{0}''", formatted);
+		}
 
-								break;
-							}
-							case Difference.DELETE: {
-								int start = NbDocument.findLineOffset(document, startLine);
-								String removeText = d.getFirstText();
-								int length = removeText.length();
+		AtomicReference<BadLocationException> exception = new AtomicReference<>();
 
-								// if the document consists of only 1 line without a trailing line-break
-								// then LENGTH would exceed the document and yield an exception
-								length = Math.min(length, document.getLength());
+		long applyStart = FormatterMetrics.startTimer();
 
-								if (log.isLoggable(logLevel)) {
-									log.log(logLevel, "DELETE: {0} - {1} / Line {2}: ''{3}''", new Object[] { start, length, startLine, removeText });
-								}
+		NbDocument.runAtomic(document, () -> {
+			try {
+				for (int i = edits.size() - 1; i >= 0; i--) {
+					TextEdit edit = edits.get(i);
 
-								document.remove(start, length);
+					if (log.isLoggable(logLevel)) {
+						log.log(logLevel, "EDIT: {0} - {1}: ''{2}''", new Object[] { edit.getOffset(), edit.getLength(), edit.getText() });
+					}
 
-								break;
-							}
-						}
+					if (edit.getLength() > 0) {
+						document.remove(edit.getOffset(), edit.getLength());
 					}
 
-					return true;
+					if (!edit.getText().isEmpty()) {
+						document.insertString(edit.getOffset(), edit.getText(), null);
+					}
 				}
-			} catch (IOException ex) {
-				log.log(Level.WARNING, "Could not create diff", ex);
+			} catch (BadLocationException ex) {
+				exception.set(ex);
 			}
+		});
+
+		FormatterMetrics.stopTimer(FormatterMetrics.Phase.APPLY, applyStart);
+
+		if (exception.get() != null) {
+			throw exception.get();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Adjusts the line breaks of the given {@code formattedContent} to the ones of the given {@code code},
+	 * because changes of the EOL are not supported. Line breaks are normalized to {@code \n} (which is
+	 * what the editor uses) and a trailing line break at the end of the {@code formattedContent} is
+	 * added or removed if the {@code code} does (not) end with one.
+	 *
+	 * @param code the previous (unformatted) content
+	 * @param formattedContent the formatted code
+	 *
+	 * @return the {@code formattedContent} with adjusted line breaks
+	 */
+	@NonNull
+	private static String adjustLineBreaks(String code, String formattedContent) {
+		String formatted = formattedContent;
+		if (code.indexOf('\r') < 0 && formatted.indexOf('\r') >= 0) {
+			formatted = formatted.replace("\r\n", "\n").replace('\r', '\n');
+		}
+
+		boolean codeEndsWithLineBreak = code.endsWith("\n");
+		boolean formattedEndsWithLineBreak = formatted.endsWith("\n");
+		if (codeEndsWithLineBreak && !formattedEndsWithLineBreak) {
+			formatted += "\n";
+		} else if (!codeEndsWithLineBreak && formattedEndsWithLineBreak) {
+			formatted = formatted.substring(0, formatted.length() - 1);
 		}
 
-		return false;
+		return formatted;
 	}
 
 	/**
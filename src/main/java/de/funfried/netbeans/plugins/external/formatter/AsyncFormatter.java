@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.StyledDocument;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.netbeans.api.annotations.common.NonNull;
+import org.netbeans.editor.BaseDocument;
+import org.netbeans.lib.editor.util.swing.DocumentUtilities;
+import org.netbeans.modules.editor.NbEditorDocument;
+import org.openide.awt.StatusDisplayer;
+import org.openide.util.RequestProcessor;
+
+import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
+
+/**
+ * Formats documents off the editor thread. The text of a document is captured as an immutable snapshot
+ * and formatted on a bounded background {@link RequestProcessor}, so a slow external formatter does not
+ * block the editor. The formatted code is only applied if the document was not modified in the
+ * meantime, a formatting is cancelled as soon as the document gets modified, another formatting of the
+ * same document is requested or the configured timeout elapsed.
+ *
+ * @author bahlef
+ */
+final class AsyncFormatter {
+	/** {@link Logger} of this class. */
+	private static final Logger log = Logger.getLogger(AsyncFormatter.class.getName());
+
+	/** The maximum number of documents which are formatted concurrently. */
+	static final int MAX_CONCURRENT_FORMATS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+	/** The {@link RequestProcessor} on which the formatting is done, interrupts its threads on cancellation. */
+	private static final RequestProcessor FORMAT_RP = new RequestProcessor(AsyncFormatter.class.getName(), MAX_CONCURRENT_FORMATS, true);
+
+	/** The {@link RequestProcessor} which cancels formattings after their timeout elapsed. */
+	private static final RequestProcessor TIMEOUT_RP = new RequestProcessor(AsyncFormatter.class.getName() + ".timeout", 1);
+
+	/** The formattings which are not yet applied, at most one per document. */
+	private static final Map<Document, PendingFormat> pendingFormats = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * Private constructor due to static methods only.
+	 */
+	private AsyncFormatter() {
+	}
+
+	/**
+	 * Captures a snapshot of the given {@code document} and schedules the formatting of the snapshot with
+	 * the given {@code formatterService}. Any formatting of the same {@code document} which is not yet
+	 * applied is cancelled. Has to be called while the {@code document} is locked, e.g. inside of a
+	 * reformat task.
+	 *
+	 * @param formatterService the {@link FormatterService} to use
+	 * @param document the {@link StyledDocument} which should be formatted
+	 * @param changedElements a {@link SortedSet} containing ranges as {@link Pair} objects that should be formatted
+	 * @param timeoutSeconds the timeout in seconds after which the formatting is cancelled
+	 *
+	 * @throws BadLocationException if the text of the {@code document} could not be read
+	 */
+	static void format(FormatterService formatterService, StyledDocument document, SortedSet<Pair<Integer, Integer>> changedElements, int timeoutSeconds) throws BadLocationException {
+		String code = document.getText(0, document.getLength());
+		long version = DocumentUtilities.getDocumentVersion(document);
+		SortedSet<Pair<Integer, Integer>> regions = changedElements != null ? new TreeSet<>(changedElements) : null;
+
+		PendingFormat pendingFormat = new PendingFormat(formatterService, document, code, version, regions);
+
+		PendingFormat previous = pendingFormats.put(document, pendingFormat);
+		if (previous != null) {
+			previous.cancel("another formatting was requested");
+		}
+
+		pendingFormat.schedule(timeoutSeconds);
+	}
+
+	/**
+	 * Creates an unattached copy of the given {@code document} containing the given {@code code}, which
+	 * carries the properties the {@link FormatterService}s use to find the active settings. The active
+	 * {@link java.util.prefs.Preferences} of the {@code document} are passed on, so they are not resolved
+	 * again for the copy.
+	 *
+	 * @param document the original {@link StyledDocument}
+	 * @param code the snapshot of the text of the {@code document}
+	 *
+	 * @return the copy of the given {@code document}
+	 *
+	 * @throws BadLocationException if the {@code code} could not be inserted
+	 */
+	@NonNull
+	private static StyledDocument createSnapshotDocument(StyledDocument document, String code) throws BadLocationException {
+		StyledDocument snapshot = new NbEditorDocument(MimeType.getMimeTypeAsString(document));
+		snapshot.putProperty(Document.StreamDescriptionProperty, document.getProperty(Document.StreamDescriptionProperty));
+		snapshot.putProperty(BaseDocument.READ_LINE_SEPARATOR_PROP, document.getProperty(BaseDocument.READ_LINE_SEPARATOR_PROP));
+		snapshot.putProperty(BaseDocument.WRITE_LINE_SEPARATOR_PROP, document.getProperty(BaseDocument.WRITE_LINE_SEPARATOR_PROP));
+		snapshot.putProperty(Settings.ACTIVE_PREFERENCES_PROPERTY, Settings.getActivePreferences(document));
+		snapshot.insertString(0, code, null);
+
+		return snapshot;
+	}
+
+	/**
+	 * A single scheduled formatting of a document.
+	 */
+	private static final class PendingFormat implements Runnable, DocumentListener {
+		private final FormatterService formatterService;
+
+		private final StyledDocument document;
+
+		private final String code;
+
+		private final long version;
+
+		private final SortedSet<Pair<Integer, Integer>> changedElements;
+
+		private volatile boolean cancelled;
+
+		private volatile RequestProcessor.Task formatTask;
+
+		private volatile RequestProcessor.Task timeoutTask;
+
+		private volatile FormatterMetrics.Recording recording;
+
+		private PendingFormat(FormatterService formatterService, StyledDocument document, String code, long version, SortedSet<Pair<Integer, Integer>> changedElements) {
+			this.formatterService = formatterService;
+			this.document = document;
+			this.code = code;
+			this.version = version;
+			this.changedElements = changedElements;
+		}
+
+		private void schedule(int timeoutSeconds) {
+			document.addDocumentListener(this);
+
+			formatTask = FORMAT_RP.post(this);
+
+			if (timeoutSeconds > 0) {
+				timeoutTask = TIMEOUT_RP.post(() -> timeout(timeoutSeconds), timeoutSeconds * 1000);
+			}
+		}
+
+		@Override
+		public void run() {
+			if (cancelled) {
+				return;
+			}
+
+			long start = System.nanoTime();
+
+			recording = FormatterMetrics.start(formatterService.getId(), MimeType.getMimeTypeAsString(document), code.length(), changedElements != null ? changedElements.size() : 0);
+
+			StyledDocument snapshot;
+			// the differences are computed and applied to the document again in apply(), only those are recorded
+			try (FormatterMetrics.Suppression suppression = FormatterMetrics.suppress(FormatterMetrics.Phase.DIFF, FormatterMetrics.Phase.APPLY)) {
+				snapshot = createSnapshotDocument(document, code);
+
+				formatterService.format(snapshot, changedElements);
+			} catch (FormattingFailedException ex) {
+				log.log(Level.INFO, formatterService.getDisplayName() + " failed to format the code", ex);
+
+				recording.failed();
+				recording.close();
+
+				finish();
+
+				return;
+			} catch (Exception ex) {
+				if (!cancelled) {
+					log.log(Level.WARNING, formatterService.getDisplayName() + " failed to format the code", ex);
+
+					recording.failed();
+				} else {
+					recording.cancelled();
+				}
+
+				recording.close();
+
+				finish();
+
+				return;
+			} finally {
+				recording.detach();
+			}
+
+			if (cancelled || Thread.currentThread().isInterrupted()) {
+				recording.cancelled();
+				recording.close();
+
+				return;
+			}
+
+			if (log.isLoggable(Level.FINE)) {
+				log.log(Level.FINE, "{0} formatted the snapshot in {1} ms", new Object[] { formatterService.getDisplayName(), (System.nanoTime() - start) / 1_000_000L });
+			}
+
+			SwingUtilities.invokeLater(() -> apply(snapshot));
+		}
+
+		/**
+		 * Applies the formatted {@code snapshot} to the {@code document} if the {@code document} was not
+		 * modified since the snapshot was taken. The {@link FormatterMetrics.Recording} is closed in any
+		 * case, a discarded formatting is counted as cancelled.
+		 *
+		 * @param snapshot the formatted snapshot document
+		 */
+		private void apply(StyledDocument snapshot) {
+			boolean discarded = true;
+
+			try {
+				finish();
+
+				if (cancelled) {
+					return;
+				}
+
+				if (DocumentUtilities.getDocumentVersion(document) != version) {
+					log.log(Level.FINE, "Discarding formatted code of {0}, the document was modified in the meantime", formatterService.getDisplayName());
+
+					return;
+				}
+
+				discarded = false;
+
+				recording.attach();
+
+				String formattedContent = snapshot.getText(0, snapshot.getLength());
+
+				AbstractFormatJob.applyFormattedCode(document, code, formattedContent);
+
+				copyProperty(snapshot, BaseDocument.READ_LINE_SEPARATOR_PROP);
+				copyProperty(snapshot, BaseDocument.WRITE_LINE_SEPARATOR_PROP);
+			} catch (BadLocationException ex) {
+				log.log(Level.WARNING, "Could not apply the code formatted by " + formatterService.getDisplayName(), ex);
+
+				recording.failed();
+			} finally {
+				if (discarded) {
+					recording.cancelled();
+				}
+
+				recording.close();
+			}
+		}
+
+		/**
+		 * Copies the property with the given {@code key} from the {@code snapshot} back to the
+		 * {@code document}, e.g. the line separator configured by the formatter.
+		 */
+		private void copyProperty(StyledDocument snapshot, Object key) {
+			Object value = snapshot.getProperty(key);
+			if (value != null && !Objects.equals(value, document.getProperty(key))) {
+				document.putProperty(key, value);
+			}
+		}
+
+		/**
+		 * Cancels this formatting because the given {@code timeoutSeconds} elapsed.
+		 *
+		 * @param timeoutSeconds the elapsed timeout in seconds
+		 */
+		private void timeout(int timeoutSeconds) {
+			if (cancel("it did not finish within " + timeoutSeconds + " seconds")) {
+				SwingUtilities.invokeLater(() -> StatusDisplayer.getDefault()
+						.setStatusText("Cancelled formatting using " + formatterService.getDisplayName() + ", because it did not finish within " + timeoutSeconds + " seconds"));
+			}
+		}
+
+		/**
+		 * Cancels this formatting, the formatted code will not be applied anymore.
+		 *
+		 * @param reason the reason of the cancellation used for logging
+		 *
+		 * @return {@code true} if the formatting was cancelled by this call, {@code false} if it was
+		 *         already cancelled before
+		 */
+		private boolean cancel(String reason) {
+			if (cancelled) {
+				return false;
+			}
+
+			cancelled = true;
+
+			RequestProcessor.Task task = formatTask;
+			if (task != null) {
+				task.cancel();
+			}
+
+			finish();
+
+			log.log(Level.FINE, "Cancelled formatting using {0}, because {1}", new Object[] { formatterService.getDisplayName(), reason });
+
+			return true;
+		}
+
+		/**
+		 * Releases all resources of this formatting.
+		 */
+		private void finish() {
+			document.removeDocumentListener(this);
+
+			pendingFormats.remove(document, this);
+
+			RequestProcessor.Task task = timeoutTask;
+			if (task != null) {
+				task.cancel();
+			}
+		}
+
+		@Override
+		public void insertUpdate(DocumentEvent e) {
+			cancel("the document was modified");
+		}
+
+		@Override
+		public void removeUpdate(DocumentEvent e) {
+			cancel("the document was modified");
+		}
+
+		@Override
+		public void changedUpdate(DocumentEvent e) {
+			// attribute changes do not modify the text
+		}
+	}
+}
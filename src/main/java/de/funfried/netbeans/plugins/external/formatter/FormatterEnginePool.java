@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter;
+
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.netbeans.api.annotations.common.NonNull;
+
+/**
+ * Pool of ready to use formatter engines, keyed by the options the engines were built with. Building
+ * an engine of an external formatter (e.g. parsing its options, setting up its internal structures)
+ * is often more expensive than formatting a single document, so engines are reused as long as their
+ * options do not change. The least recently used engines are evicted once the configured maximum
+ * number of keys is exceeded.
+ *
+ * <p>
+ * Engines which are safe to be used by multiple threads concurrently are shared between all threads,
+ * see {@link #shared(Function)}. All other engines are leased to one thread at a time, see
+ * {@link #exclusive(Function)} and {@link #acquire(Object)}, so an engine which was built by one thread
+ * (e.g. by the warm-up) is reused by the next thread which formats with the same options.
+ * </p>
+ *
+ * @author bahlef
+ *
+ * @param <K> the type of the key which identifies the options of an engine, needs to implement
+ *        {@link Object#equals(Object)} and {@link Object#hashCode()} based on the options
+ * @param <E> the type of the engine
+ */
+public final class FormatterEnginePool<K, E> {
+	/** The default maximum number of keys for which engines are kept. */
+	public static final int DEFAULT_MAX_SIZE = 8;
+
+	/** The factory used to build a new engine for a given key. */
+	private final Function<K, E> factory;
+
+	/** {@code true} if an engine may be used by multiple threads concurrently, otherwise {@code false}. */
+	private final boolean threadSafe;
+
+	/** The engines per key in least recently used order. */
+	private final Map<K, Engines> engines;
+
+	/** The number of engines built by this pool. */
+	private final AtomicLong createdCount = new AtomicLong();
+
+	/**
+	 * Private constructor, use {@link #shared(Function)} or {@link #exclusive(Function)} instead.
+	 *
+	 * @param factory the factory used to build a new engine for a given key
+	 * @param threadSafe {@code true} if an engine may be used by multiple threads concurrently
+	 * @param maxSize the maximum number of keys for which engines are kept
+	 */
+	private FormatterEnginePool(Function<K, E> factory, boolean threadSafe, int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize has to be greater than zero");
+		}
+
+		this.factory = factory;
+		this.threadSafe = threadSafe;
+		this.engines = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Engines> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Creates a new {@link FormatterEnginePool} for engines which are safe to be used by multiple threads
+	 * concurrently, so that each engine is shared between all threads.
+	 *
+	 * @param <K> the type of the key which identifies the options of an engine
+	 * @param <E> the type of the engine
+	 * @param factory the factory used to build a new engine for a given key
+	 *
+	 * @return a new {@link FormatterEnginePool}
+	 */
+	@NonNull
+	public static <K, E> FormatterEnginePool<K, E> shared(Function<K, E> factory) {
+		return new FormatterEnginePool<>(factory, true, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates a new {@link FormatterEnginePool} for engines which are not safe to be used by multiple
+	 * threads concurrently, so that each engine is only used by the thread which {@link #acquire(Object)
+	 * acquired} it until it is released again. An engine is built if all engines for the given key are
+	 * in use.
+	 *
+	 * @param <K> the type of the key which identifies the options of an engine
+	 * @param <E> the type of the engine
+	 * @param factory the factory used to build a new engine for a given key
+	 *
+	 * @return a new {@link FormatterEnginePool}
+	 */
+	@NonNull
+	public static <K, E> FormatterEnginePool<K, E> exclusive(Function<K, E> factory) {
+		return new FormatterEnginePool<>(factory, false, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Returns a ready to use engine for the given {@code key}, which is shared with all other threads.
+	 * The engine is only built if there is no engine available for the given {@code key}. Only
+	 * supported by {@link #shared(Function) shared} pools, use {@link #acquire(Object)} otherwise.
+	 *
+	 * @param key the key which identifies the options of the engine
+	 *
+	 * @return a ready to use engine for the given {@code key}
+	 *
+	 * @throws IllegalStateException if the engines of this pool are not thread safe
+	 */
+	public E get(K key) {
+		if (!threadSafe) {
+			throw new IllegalStateException("The engines of this pool are not thread safe, use acquire instead");
+		}
+
+		return getEngines(key).acquire().get();
+	}
+
+	/**
+	 * Acquires a ready to use engine for the given {@code key}, which has to be {@link Lease#close()
+	 * released} after the formatting. The engine is only built if there is no engine available for the
+	 * given {@code key}. Engines of {@link #shared(Function) shared} pools are shared with all other
+	 * threads, all other engines are not used by any other thread until they are released.
+	 *
+	 * @param key the key which identifies the options of the engine
+	 *
+	 * @return the {@link Lease} of the engine for the given {@code key}
+	 */
+	@NonNull
+	public Lease<E> acquire(K key) {
+		return getEngines(key).acquire();
+	}
+
+	/**
+	 * Returns the number of engines which were built by this pool.
+	 *
+	 * @return the number of engines which were built by this pool
+	 */
+	public long getCreatedCount() {
+		return createdCount.get();
+	}
+
+	/**
+	 * Removes all engines from this pool.
+	 */
+	public void clear() {
+		synchronized (engines) {
+			engines.clear();
+		}
+	}
+
+	/**
+	 * Returns a fingerprint of the given {@code options} object, based on the values of all its fields.
+	 * This can be used as (part of) a key for options classes which do not implement
+	 * {@link Object#equals(Object)} and {@link Object#hashCode()} themselves.
+	 *
+	 * @param options the options object
+	 *
+	 * @return a fingerprint of the given {@code options} object
+	 */
+	@NonNull
+	public static String fingerprint(Object options) {
+		if (options == null) {
+			return "null";
+		}
+
+		return ReflectionToStringBuilder.toString(options, ToStringStyle.SHORT_PREFIX_STYLE);
+	}
+
+	private Engines getEngines(K key) {
+		synchronized (engines) {
+			return engines.computeIfAbsent(key, this::createEngines);
+		}
+	}
+
+	/**
+	 * Creates the {@link Engines} which lazily build the engine(s) for the given {@code key}.
+	 *
+	 * @param key the key which identifies the options of the engine
+	 *
+	 * @return the {@link Engines} which lazily build the engine(s) for the given {@code key}
+	 */
+	private Engines createEngines(K key) {
+		if (threadSafe) {
+			return new SharedEngine(key);
+		}
+
+		return new IdleEngines(key);
+	}
+
+	/**
+	 * Builds a new engine for the given {@code key}.
+	 *
+	 * @param key the key which identifies the options of the engine
+	 *
+	 * @return the new engine
+	 */
+	private E create(K key) {
+		createdCount.incrementAndGet();
+
+		return factory.apply(key);
+	}
+
+	/**
+	 * The lease of an engine, which is released by {@link #close()}.
+	 *
+	 * @param <E> the type of the engine
+	 */
+	public static final class Lease<E> implements AutoCloseable {
+		/** The leased engine. */
+		private final E engine;
+
+		/** Returns the engine to its pool, or {@code null} if the engine is shared. */
+		private Runnable release;
+
+		private Lease(E engine, Runnable release) {
+			this.engine = engine;
+			this.release = release;
+		}
+
+		/**
+		 * Returns the leased engine, which must not be used after this lease was closed.
+		 *
+		 * @return the leased engine
+		 */
+		public E get() {
+			return engine;
+		}
+
+		/**
+		 * Releases the engine, so it can be acquired by other threads. Subsequent calls are ignored.
+		 */
+		@Override
+		public void close() {
+			Runnable action = release;
+			release = null;
+
+			if (action != null) {
+				action.run();
+			}
+		}
+	}
+
+	/**
+	 * The engine(s) built for a single key.
+	 */
+	private abstract class Engines {
+		/**
+		 * Acquires an engine, which is built if there is no engine available.
+		 *
+		 * @return the {@link Lease} of the engine
+		 */
+		abstract Lease<E> acquire();
+	}
+
+	/**
+	 * The engines for a single key which are not in use, builds a new engine if all of them are in use.
+	 */
+	private final class IdleEngines extends Engines {
+		private final K key;
+
+		private final Deque<E> idle = new ConcurrentLinkedDeque<>();
+
+		private IdleEngines(K key) {
+			this.key = key;
+		}
+
+		@Override
+		Lease<E> acquire() {
+			E engine = idle.pollFirst();
+			if (engine == null) {
+				engine = create(key);
+			}
+
+			E leased = engine;
+
+			return new Lease<>(leased, () -> idle.offerFirst(leased));
+		}
+	}
+
+	/**
+	 * Lazily builds a single engine for a single key, which is shared between all threads.
+	 */
+	private final class SharedEngine extends Engines {
+		private final K key;
+
+		private volatile E engine;
+
+		private SharedEngine(K key) {
+			this.key = key;
+		}
+
+		@Override
+		Lease<E> acquire() {
+			E ret = engine;
+			if (ret == null) {
+				synchronized (this) {
+					ret = engine;
+					if (ret == null) {
+						ret = create(key);
+						engine = ret;
+					}
+				}
+			}
+
+			return new Lease<>(ret, null);
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.prefs.PreferenceChangeListener;
+import java.util.prefs.Preferences;
+
+import javax.swing.text.Document;
+
+import org.netbeans.api.annotations.common.CheckForNull;
+import org.netbeans.api.annotations.common.NonNull;
+import org.netbeans.api.annotations.common.NullAllowed;
+import org.openide.util.Lookup;
+import org.openide.util.WeakListeners;
+
+import de.funfried.netbeans.plugins.external.formatter.ui.options.ExternalFormatterPreferencesChangeSupport;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
+
+/**
+ * Cache of the formatter resolution per {@link Document}, i.e. the active {@link Preferences}, the ID
+ * of the activated formatter and its {@link FormatterService}. The NetBeans editor asks for the
+ * indentation settings on every preference lookup, which would otherwise query the project of the
+ * document, the preferences store and the {@link Lookup} each time. The {@link FormatterService}s get
+ * the cached {@link Preferences} by {@link Settings#getActivePreferences(Document)} as well. The indentation settings themselves
+ * are not cached, the {@link FormatterService}s read them from their configuration files, which may
+ * change at any time.
+ *
+ * <p>
+ * The {@link Document}s are weakly referenced. All cached resolutions are invalidated as soon as a change
+ * is fired by the {@link ExternalFormatterPreferencesChangeSupport}, e.g. when the options are stored, or
+ * one of the resolved global or project specific {@link Preferences} is changed.
+ * </p>
+ *
+ * @author bahlef
+ */
+final class FormatterResolutionCache {
+	/** The {@link Resolution}s per {@link Document}. */
+	private final Map<Document, Resolution> resolutions = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/** The {@link Preferences} which are already observed by the {@link #preferenceChangeListener}. */
+	private final Set<Preferences> observedPreferences = Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+
+	/** Invalidates all {@link Resolution}s on any change of the observed {@link Preferences}. */
+	private final PreferenceChangeListener preferenceChangeListener = evt -> invalidate();
+
+	/** The number of invalidations, {@link Resolution}s of an older generation are outdated. */
+	private final AtomicLong generation = new AtomicLong();
+
+	/** Supplier of all available {@link FormatterService}s. */
+	private final Supplier<Collection<? extends FormatterService>> formatterServices;
+
+	/** The {@link ExternalFormatterPreferencesChangeSupport}, or {@code null} if it is not available. */
+	private final ExternalFormatterPreferencesChangeSupport changeSupport;
+
+	/**
+	 * Creates a new instance of {@link FormatterResolutionCache} which looks up the
+	 * {@link FormatterService}s and the {@link ExternalFormatterPreferencesChangeSupport} in the default
+	 * {@link Lookup}.
+	 */
+	FormatterResolutionCache() {
+		this(() -> Lookup.getDefault().lookupAll(FormatterService.class), Lookup.getDefault().lookup(ExternalFormatterPreferencesChangeSupport.class));
+	}
+
+	/**
+	 * Creates a new instance of {@link FormatterResolutionCache}.
+	 *
+	 * @param formatterServices supplier of all available {@link FormatterService}s
+	 * @param changeSupport the {@link ExternalFormatterPreferencesChangeSupport} which invalidates the
+	 *        cached resolutions, may be {@code null}
+	 */
+	FormatterResolutionCache(@NonNull Supplier<Collection<? extends FormatterService>> formatterServices, @NullAllowed ExternalFormatterPreferencesChangeSupport changeSupport) {
+		this.formatterServices = formatterServices;
+		this.changeSupport = changeSupport;
+	}
+
+	/**
+	 * Returns the cached {@link Resolution} of the given {@link Document}, or resolves it if it is not
+	 * cached yet or outdated.
+	 *
+	 * @param document the {@link Document}
+	 *
+	 * @return the {@link Resolution} of the given {@link Document}
+	 */
+	@NonNull
+	Resolution get(Document document) {
+		long currentGeneration = generation.get();
+		long modificationCount = getModificationCount();
+
+		if (document == null) {
+			return new Resolution(currentGeneration, modificationCount, null, null, null);
+		}
+
+		Resolution resolution = resolutions.get(document);
+		if (resolution == null || !resolution.isValid(currentGeneration, modificationCount)) {
+			resolution = resolve(document, currentGeneration, modificationCount);
+
+			resolutions.put(document, resolution);
+		}
+
+		return resolution;
+	}
+
+	/**
+	 * Invalidates all cached {@link Resolution}s.
+	 */
+	void invalidate() {
+		generation.incrementAndGet();
+
+		resolutions.clear();
+	}
+
+	private long getModificationCount() {
+		return changeSupport != null ? changeSupport.getModificationCount() : 0L;
+	}
+
+	@NonNull
+	private Resolution resolve(Document document, long currentGeneration, long modificationCount) {
+		// the project specific preferences are observed even if they are not activated, so switching them on is noticed
+		observe(Settings.getProjectPreferences(document));
+
+		Preferences preferences = Settings.resolveActivePreferences(document);
+		observe(preferences);
+
+		MimeType mimeType = MimeType.getMimeType(document);
+		if (mimeType == null) {
+			return new Resolution(currentGeneration, modificationCount, preferences, null, null);
+		}
+
+		String activeFormatterId = preferences.get(Settings.ENABLED_FORMATTER_PREFIX + mimeType.toString(), Settings.DEFAULT_FORMATTER);
+
+		FormatterService activeFormatterService = null;
+		for (FormatterService formatterService : formatterServices.get()) {
+			if (Objects.equals(activeFormatterId, formatterService.getId())) {
+				activeFormatterService = formatterService;
+
+				break;
+			}
+		}
+
+		return new Resolution(currentGeneration, modificationCount, preferences, activeFormatterId, activeFormatterService);
+	}
+
+	private void observe(Preferences preferences) {
+		if (preferences != null && observedPreferences.add(preferences)) {
+			preferences.addPreferenceChangeListener(WeakListeners.create(PreferenceChangeListener.class, preferenceChangeListener, preferences));
+		}
+	}
+
+	/**
+	 * The resolved formatter settings of a single {@link Document}.
+	 */
+	static final class Resolution {
+		/** The generation of the {@link FormatterResolutionCache} this resolution belongs to. */
+		private final long generation;
+
+		/** The modification count of the {@link ExternalFormatterPreferencesChangeSupport} this resolution belongs to. */
+		private final long modificationCount;
+
+		/** The active {@link Preferences}, or {@code null} if there is no {@link Document}. */
+		private final Preferences preferences;
+
+		/** The ID of the activated formatter, or {@code null} if the MIME type is not supported. */
+		private final String activeFormatterId;
+
+		/** The activated {@link FormatterService}, or {@code null} if none is activated or available. */
+		private final FormatterService formatterService;
+
+		private Resolution(long generation, long modificationCount, Preferences preferences, String activeFormatterId, FormatterService formatterService) {
+			this.generation = generation;
+			this.modificationCount = modificationCount;
+			this.preferences = preferences;
+			this.activeFormatterId = activeFormatterId;
+			this.formatterService = formatterService;
+		}
+
+		private boolean isValid(long currentGeneration, long currentModificationCount) {
+			return generation == currentGeneration && modificationCount == currentModificationCount;
+		}
+
+		/**
+		 * Returns the active {@link Preferences}.
+		 *
+		 * @return the active {@link Preferences}, or {@code null} if there is no {@link Document}
+		 */
+		@CheckForNull
+		Preferences getPreferences() {
+			return preferences;
+		}
+
+		/**
+		 * Returns the ID of the activated formatter.
+		 *
+		 * @return the ID of the activated formatter, or {@code null} if the MIME type is not supported
+		 */
+		@CheckForNull
+		String getActiveFormatterId() {
+			return activeFormatterId;
+		}
+
+		/**
+		 * Returns the activated {@link FormatterService}.
+		 *
+		 * @return the activated {@link FormatterService}, or {@code null} if the NetBeans formatter is
+		 *         activated or the activated {@link FormatterService} could not be found
+		 */
+		@CheckForNull
+		FormatterService getFormatterService() {
+			return formatterService;
+		}
+	}
+}
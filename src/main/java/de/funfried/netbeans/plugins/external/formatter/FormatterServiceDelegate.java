@@ -11,8 +11,6 @@
  */
 package de.funfried.netbeans.plugins.external.formatter;
 
-import java.util.Collection;
-import java.util.Objects;
 import java.util.SortedSet;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -25,10 +23,11 @@ import javax.swing.text.StyledDocument;
 import org.apache.commons.lang3.tuple.Pair;
 import org.netbeans.api.annotations.common.CheckForNull;
 import org.netbeans.api.annotations.common.NonNull;
+import org.netbeans.api.editor.guards.GuardedSectionManager;
 import org.openide.util.Exceptions;
-import org.openide.util.Lookup;
 
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
 /**
@@ -49,10 +48,24 @@ public class FormatterServiceDelegate {
 	/** * Singleton instance of {@link FormatterServiceDelegate}. */
 	private static FormatterServiceDelegate instance = null;
 
+	/** The {@link FormatterResolutionCache} of the resolved formatter settings per document. */
+	private final FormatterResolutionCache cache;
+
 	/**
 	 * Private contructor due to singleton pattern.
 	 */
 	private FormatterServiceDelegate() {
+		this(new FormatterResolutionCache());
+	}
+
+	/**
+	 * Creates a new instance of {@link FormatterServiceDelegate} which uses the given
+	 * {@link FormatterResolutionCache}.
+	 *
+	 * @param cache the {@link FormatterResolutionCache}
+	 */
+	FormatterServiceDelegate(FormatterResolutionCache cache) {
+		this.cache = cache;
 	}
 
 	/**
@@ -90,15 +103,72 @@ public class FormatterServiceDelegate {
 		try {
 			FormatterService formatterService = getActiveFormatterService(document);
 			if (formatterService != null && formatterService.canHandle(document)) {
+				FormatterMetrics.Recording recording = FormatterMetrics.start(formatterService.getId(), MimeType.getMimeTypeAsString(document), document.getLength(),
+						changedElements != null ? changedElements.size() : 0);
+
 				try {
-					return formatterService.format(document, changedElements);
+					boolean formatted = formatterService.format(document, changedElements);
+					if (!formatted) {
+						recording.fallback();
+					}
+
+					return formatted;
 				} catch (FormattingFailedException ex) {
+					recording.failed();
+
 					log.log(Level.INFO, formatterService.getDisplayName() + " failed to format the code", ex);
 				} catch (Exception ex) {
+					recording.failed();
+
 					log.log(Level.WARNING, formatterService.getDisplayName() + " failed to format the code", ex);
+				} finally {
+					recording.close();
 				}
 
 				return true;
+			} else if (formatterService != null) {
+				FormatterMetrics.recordFallback(formatterService.getId(), MimeType.getMimeTypeAsString(document));
+			}
+		} catch (Exception e) {
+			Exceptions.printStackTrace(e);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Formats the given {@link StyledDocument} in regard to the given {@code changedElements} off the
+	 * calling thread, against a snapshot of the current content of the {@code document}. The formatted
+	 * code is only applied if the {@code document} is not modified until the formatting is done, and
+	 * the formatting is cancelled if it takes longer than the timeout configured for the active
+	 * formatter. Documents containing guarded sections are formatted synchronously, see
+	 * {@link #format(StyledDocument, SortedSet)}. Has to be called while the {@code document} is locked,
+	 * e.g. inside of a reformat task.
+	 *
+	 * @param document the {@link StyledDocument} which should be formatted
+	 * @param changedElements a {@link SortedSet} containing ranges as {@link Pair} objects that should be formatted
+	 *
+	 * @return {@code true} if and only if a external formatter was found to handle the given
+	 *         {@link StyledDocument} even if the formatting fails later on, otherwise and if an
+	 *         external formatter delegates formatting to the NetBeans formatter it is {@code false}
+	 */
+	public boolean formatAsync(StyledDocument document, SortedSet<Pair<Integer, Integer>> changedElements) {
+		GuardedSectionManager guards = GuardedSectionManager.getInstance(document);
+		if (guards != null && guards.getGuardedSections().iterator().hasNext()) {
+			return format(document, changedElements);
+		}
+
+		try {
+			FormatterResolutionCache.Resolution resolution = cache.get(document);
+			FormatterService formatterService = resolution.getFormatterService();
+			if (formatterService != null && formatterService.canHandle(document)) {
+				int timeout = Settings.getAsyncFormattingTimeout(resolution.getPreferences(), formatterService.getId());
+
+				AsyncFormatter.format(formatterService, document, changedElements, timeout);
+
+				return true;
+			} else if (formatterService != null) {
+				FormatterMetrics.recordFallback(formatterService.getId(), MimeType.getMimeTypeAsString(document));
 			}
 		} catch (Exception e) {
 			Exceptions.printStackTrace(e);
@@ -222,25 +292,38 @@ public class FormatterServiceDelegate {
 	 *         for the given {@code document}. If the internal NetBeans formatter is configured
 	 *         or the implementation of the configured {@link FormatterService} could
 	 *         not be found {@code null} will be returned
+	 */
+	@CheckForNull
+	private FormatterService getActiveFormatterService(Document document) {
+		return cache.get(document).getFormatterService();
+	}
+
+	/**
+	 * Returns the cached active {@link Preferences} of the given {@code document}, see
+	 * {@link Settings#getActivePreferences(Document)}.
+	 *
+	 * @param document the {@link Document} for which the active {@link Preferences} are requested
 	 *
-	 * @throws Exception if an error occurs
+	 * @return the cached active {@link Preferences} of the given {@code document}, or {@code null} if
+	 *         the given {@code document} is {@code null}
 	 */
 	@CheckForNull
-	private FormatterService getActiveFormatterService(Document document) throws Exception {
-		MimeType mimeType = MimeType.getMimeType(document);
-		if (mimeType != null) {
-			Preferences prefs = Settings.getActivePreferences(document);
-			String activeFormatterId = prefs.get(Settings.ENABLED_FORMATTER_PREFIX + mimeType.toString(), Settings.DEFAULT_FORMATTER);
-
-			Collection<? extends FormatterService> formatterServices = Lookup.getDefault().lookupAll(FormatterService.class);
-			for (FormatterService formatterService : formatterServices) {
-				if (Objects.equals(activeFormatterId, formatterService.getId())) {
-					return formatterService;
-				}
-			}
-		}
+	public Preferences getActivePreferences(Document document) {
+		return cache.get(document).getPreferences();
+	}
 
-		return null;
+	/**
+	 * Returns {@code true} if the internal NetBeans formatter is activated for the MIME type of the
+	 * given {@code document}.
+	 *
+	 * @param document the {@link Document} to check
+	 *
+	 * @return {@code true} if the internal NetBeans formatter is activated for the MIME type of the
+	 *         given {@code document}, otherwise and if the MIME type is not supported by any external
+	 *         formatter {@code false}
+	 */
+	public boolean isNetBeansFormatterActivated(Document document) {
+		return Settings.DEFAULT_FORMATTER.equals(cache.get(document).getActiveFormatterId());
 	}
 
 	/**
@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.batch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.StyledDocument;
+
+import org.apache.commons.lang3.StringUtils;
+import org.netbeans.api.annotations.common.CheckForNull;
+import org.netbeans.api.annotations.common.NonNull;
+import org.netbeans.api.java.lexer.JavaTokenId;
+import org.netbeans.editor.BaseDocument;
+import org.netbeans.modules.editor.NbEditorDocument;
+import org.openide.util.Lookup;
+
+import de.funfried.netbeans.plugins.external.formatter.FormatterService;
+import de.funfried.netbeans.plugins.external.formatter.MimeType;
+import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
+
+/**
+ * Document free API to format code with the {@link FormatterService} which is activated in the given
+ * {@link Preferences} for the mime type of the code, so the code is formatted exactly like it would be
+ * formatted inside of the editor. Instances of this class are thread safe.
+ *
+ * @author bahlef
+ */
+public class BatchFormatter {
+	/** {@link Logger} of this class. */
+	private static final Logger log = Logger.getLogger(BatchFormatter.class.getName());
+
+	/** The mime types of the supported file extensions. */
+	private static final Map<String, String> MIME_TYPES_BY_EXTENSION = Map.ofEntries(
+			Map.entry("css", "text/css"),
+			Map.entry("htm", "text/html"),
+			Map.entry("html", "text/html"),
+			Map.entry("xhtml", "application/xhtml+xml"),
+			Map.entry("java", JavaTokenId.language().mimeType()),
+			Map.entry("js", "text/javascript"),
+			Map.entry("mjs", "text/javascript"),
+			Map.entry("cjs", "text/javascript"),
+			Map.entry("json", "text/x-json"),
+			Map.entry("sql", "text/x-sql"),
+			Map.entry("xml", "text/xml"),
+			Map.entry("xsd", "text/xml"),
+			Map.entry("xsl", "text/xml"),
+			Map.entry("xslt", "text/xml"),
+			Map.entry("wsdl", "text/xml"));
+
+	/** The {@link Preferences} which define the activated formatters and their settings. */
+	private final Preferences preferences;
+
+	/** All available {@link FormatterService}s. */
+	private final Collection<? extends FormatterService> formatterServices;
+
+	/** The configuration fingerprints per {@link FormatterService#getId()}. */
+	private final Map<String, String> configFingerprints = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a new instance which uses the given {@link Preferences}, e.g. the global preferences
+	 * returned by {@link Settings#getActivePreferences(javax.swing.text.Document)}.
+	 *
+	 * @param preferences the {@link Preferences} which define the activated formatters and their settings
+	 */
+	public BatchFormatter(Preferences preferences) {
+		this(preferences, Lookup.getDefault().lookupAll(FormatterService.class));
+	}
+
+	/**
+	 * Creates a new instance which uses the given {@link Preferences} and {@link FormatterService}s.
+	 *
+	 * @param preferences the {@link Preferences} which define the activated formatters and their settings
+	 * @param formatterServices all available {@link FormatterService}s
+	 */
+	BatchFormatter(Preferences preferences, Collection<? extends FormatterService> formatterServices) {
+		this.preferences = Objects.requireNonNull(preferences, "preferences");
+		this.formatterServices = new ArrayList<>(formatterServices);
+	}
+
+	/**
+	 * Returns the mime type of the given {@code file} based on its file extension.
+	 *
+	 * @param file the file
+	 *
+	 * @return the mime type of the given {@code file} or {@code null} if the file extension is not supported
+	 */
+	@CheckForNull
+	public static String getMimeType(Path file) {
+		Path fileName = file.getFileName();
+		if (fileName == null) {
+			return null;
+		}
+
+		String extension = StringUtils.substringAfterLast(fileName.toString(), ".").toLowerCase(Locale.ROOT);
+
+		return MIME_TYPES_BY_EXTENSION.get(extension);
+	}
+
+	/**
+	 * Returns the {@link Preferences} which define the activated formatters and their settings.
+	 *
+	 * @return the {@link Preferences}
+	 */
+	@NonNull
+	public Preferences getPreferences() {
+		return preferences;
+	}
+
+	/**
+	 * Returns the {@link FormatterService} which is activated for the given {@code mimeType}.
+	 *
+	 * @param mimeType the mime type
+	 *
+	 * @return the activated {@link FormatterService}, or {@code null} if the internal NetBeans formatter
+	 *         is activated, the {@code mimeType} is not supported or the {@link FormatterService} could
+	 *         not be found
+	 */
+	@CheckForNull
+	public FormatterService getFormatterService(String mimeType) {
+		MimeType type = MimeType.getByMimeType(mimeType);
+		if (type != null) {
+			String activeFormatterId = preferences.get(Settings.ENABLED_FORMATTER_PREFIX + type.toString(), Settings.DEFAULT_FORMATTER);
+
+			for (FormatterService formatterService : formatterServices) {
+				if (Objects.equals(activeFormatterId, formatterService.getId())) {
+					return formatterService;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Formats the given {@code code} with the {@link FormatterService} which is activated for the
+	 * given {@code mimeType}.
+	 *
+	 * @param code the code to format
+	 * @param mimeType the mime type of the {@code code}
+	 *
+	 * @return the formatted code, or {@code null} if no external formatter is activated for the given
+	 *         {@code mimeType}
+	 *
+	 * @throws BadLocationException if the code could not be formatted
+	 * @throws FormattingFailedException if the external formatter failed to format the given code
+	 */
+	@CheckForNull
+	public String format(String code, String mimeType) throws BadLocationException, FormattingFailedException {
+		FormatterService formatterService = getFormatterService(mimeType);
+		if (formatterService == null) {
+			return null;
+		}
+
+		return format(formatterService, mimeType, code);
+	}
+
+	/**
+	 * Formats the given {@code code} with the given {@link FormatterService}. The line separators of
+	 * the returned code are the ones configured for the external formatter, or if there are none, the
+	 * ones of the given {@code code}, same as when the formatted document is saved in the editor.
+	 *
+	 * @param formatterService the {@link FormatterService} to use
+	 * @param mimeType the mime type of the {@code code}
+	 * @param code the code to format
+	 *
+	 * @return the formatted code, or {@code null} if the given {@link FormatterService} cannot handle
+	 *         the given {@code mimeType}
+	 *
+	 * @throws BadLocationException if the code could not be formatted
+	 * @throws FormattingFailedException if the external formatter failed to format the given code
+	 */
+	@CheckForNull
+	public String format(FormatterService formatterService, String mimeType, String code) throws BadLocationException, FormattingFailedException {
+		String lineSeparator = getLineSeparator(code);
+
+		StyledDocument document = new NbEditorDocument(mimeType);
+		document.putProperty(Settings.ACTIVE_PREFERENCES_PROPERTY, preferences);
+		document.putProperty(BaseDocument.READ_LINE_SEPARATOR_PROP, lineSeparator);
+		document.putProperty(BaseDocument.WRITE_LINE_SEPARATOR_PROP, lineSeparator);
+		document.insertString(0, code.replace("\r\n", "\n").replace('\r', '\n'), null);
+
+		if (!formatterService.canHandle(document)) {
+			return null;
+		}
+
+		formatterService.format(document, null);
+
+		String formatted = document.getText(0, document.getLength());
+
+		Object writeLineSeparator = document.getProperty(BaseDocument.WRITE_LINE_SEPARATOR_PROP);
+		if (writeLineSeparator instanceof String && !((String) writeLineSeparator).isEmpty()) {
+			lineSeparator = (String) writeLineSeparator;
+		}
+
+		if (!"\n".equals(lineSeparator)) {
+			formatted = formatted.replace("\n", lineSeparator);
+		}
+
+		return formatted;
+	}
+
+	/**
+	 * Returns a fingerprint of the configuration of the given {@link FormatterService}, which changes as
+	 * soon as any of the {@link Preferences}, the content of any configuration file referenced by the
+	 * {@link Preferences} or the version of the {@link FormatterService} changes. The fingerprint is
+	 * computed only once per instance of this class.
+	 *
+	 * @param formatterService the {@link FormatterService}
+	 *
+	 * @return the fingerprint as hex string
+	 */
+	@NonNull
+	public String getConfigFingerprint(FormatterService formatterService) {
+		return configFingerprints.computeIfAbsent(formatterService.getId(), id -> computeConfigFingerprint(formatterService));
+	}
+
+	@NonNull
+	private String computeConfigFingerprint(FormatterService formatterService) {
+		MessageDigest digest = createDigest();
+		update(digest, formatterService.getId());
+		update(digest, formatterService.getClass().getPackage().getImplementationVersion());
+
+		try {
+			String[] keys = preferences.keys();
+			Arrays.sort(keys);
+
+			for (String key : keys) {
+				String value = preferences.get(key, null);
+
+				update(digest, key);
+				update(digest, value);
+
+				Path configFile = toConfigFile(value);
+				if (configFile != null) {
+					BasicFileAttributes attributes = Files.readAttributes(configFile, BasicFileAttributes.class);
+
+					update(digest, attributes.size() + ":" + attributes.lastModifiedTime().toMillis());
+				}
+			}
+		} catch (BackingStoreException | IOException ex) {
+			log.log(Level.WARNING, "Could not read all settings of " + formatterService.getDisplayName(), ex);
+
+			// never match any previous fingerprint
+			update(digest, String.valueOf(System.nanoTime()));
+		}
+
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Returns the path of the given {@code value} if it is an absolute path to an existing file, e.g.
+	 * the location of an Eclipse formatter configuration file.
+	 */
+	@CheckForNull
+	private static Path toConfigFile(String value) {
+		if (StringUtils.isBlank(value)) {
+			return null;
+		}
+
+		try {
+			Path path = Path.of(value);
+			if (path.isAbsolute() && Files.isRegularFile(path)) {
+				return path;
+			}
+		} catch (InvalidPathException ex) {
+			// not a path
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the first line separator found in the given {@code code}, or {@code \n} if the given
+	 * {@code code} does not contain any line separator.
+	 */
+	@NonNull
+	private static String getLineSeparator(String code) {
+		int index = code.indexOf('\r');
+		if (index < 0) {
+			return "\n";
+		}
+
+		if (index + 1 < code.length() && code.charAt(index + 1) == '\n') {
+			return "\r\n";
+		}
+
+		int lineFeedIndex = code.indexOf('\n');
+		if (lineFeedIndex >= 0 && lineFeedIndex < index) {
+			return "\n";
+		}
+
+		return "\r";
+	}
+
+	/**
+	 * Creates a new SHA-256 {@link MessageDigest}.
+	 *
+	 * @return a new {@link MessageDigest}
+	 */
+	@NonNull
+	static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 is not supported", ex);
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Returns all file extensions for which a mime type is known.
+	 *
+	 * @return the supported file extensions
+	 */
+	@NonNull
+	static List<String> getSupportedExtensions() {
+		List<String> extensions = new ArrayList<>(MIME_TYPES_BY_EXTENSION.keySet());
+		extensions.sort(null);
+
+		return extensions;
+	}
+}
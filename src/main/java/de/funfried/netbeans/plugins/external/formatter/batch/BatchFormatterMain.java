@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.batch;
+
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.prefs.Preferences;
+
+import org.apache.commons.lang3.StringUtils;
+import org.netbeans.api.annotations.common.NonNull;
+
+import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
+
+/**
+ * Command line entry point which formats (or checks) all supported files of a source tree with the
+ * external formatters, see {@link SourceTreeFormatter}. Run without arguments to print the usage.
+ *
+ * <p>
+ * Exit codes: {@code 0} if all files are formatted, {@code 1} if files are not formatted in check only
+ * mode or if files could not be formatted, {@code 2} if files are not encoded in the given encoding, on
+ * invalid arguments or other errors.
+ * </p>
+ *
+ * <p>
+ * Only the given preferences (or the global preferences of the IDE) are used, project specific settings
+ * are not resolved, because no projects are opened on the command line. To format a project which uses
+ * project specific settings its preferences have to be exported and passed with {@code --preferences}.
+ * The index of already formatted files is stored in the user cache directory by default, so the source
+ * tree is never modified by anything else than the formatting.
+ * </p>
+ *
+ * @author bahlef
+ */
+public final class BatchFormatterMain {
+	/** The name of the directory of the default index files inside the user cache directory. */
+	static final String DEFAULT_INDEX_DIRECTORY_NAME = "netbeans-external-formatter";
+
+	/**
+	 * Private constructor due to static methods only.
+	 */
+	private BatchFormatterMain() {
+	}
+
+	/**
+	 * Formats (or checks) a source tree and exits the JVM with the resulting exit code.
+	 *
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args) {
+		System.exit(run(args, System.out, System.err));
+	}
+
+	/**
+	 * Formats (or checks) a source tree as configured by the given {@code args}.
+	 *
+	 * @param args the command line arguments
+	 * @param out the {@link PrintStream} for the regular output
+	 * @param err the {@link PrintStream} for the error output
+	 *
+	 * @return the exit code
+	 */
+	static int run(String[] args, PrintStream out, PrintStream err) {
+		boolean checkOnly = false;
+		boolean useIndex = true;
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		Charset charset = StandardCharsets.UTF_8;
+		Path preferencesFile = null;
+		Path indexFile = null;
+		Path root = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--check":
+						checkOnly = true;
+						break;
+					case "--no-index":
+						useIndex = false;
+						break;
+					case "--threads":
+						parallelism = Integer.parseInt(value(args, ++i));
+						break;
+					case "--encoding":
+						charset = Charset.forName(value(args, ++i));
+						break;
+					case "--preferences":
+						preferencesFile = Path.of(value(args, ++i));
+						break;
+					case "--index":
+						indexFile = Path.of(value(args, ++i));
+						break;
+					default:
+						if (args[i].startsWith("-") || root != null) {
+							throw new IllegalArgumentException("Unknown argument " + args[i]);
+						}
+
+						root = Path.of(args[i]);
+						break;
+				}
+			}
+
+			if (root == null) {
+				throw new IllegalArgumentException("No directory given");
+			}
+
+			if (!Files.isDirectory(root)) {
+				throw new IllegalArgumentException(root + " is not a directory");
+			}
+		} catch (IllegalArgumentException ex) {
+			err.println(ex.getMessage());
+			printUsage(err);
+
+			return 2;
+		}
+
+		try {
+			Preferences preferences = preferencesFile != null ? PropertiesPreferences.load(preferencesFile) : Settings.getActivePreferences(null);
+
+			FormattedFileIndex index = null;
+			if (useIndex) {
+				index = FormattedFileIndex.load(indexFile != null ? indexFile : getDefaultIndexFile(root));
+			}
+
+			SourceTreeFormatter formatter = new SourceTreeFormatter(new BatchFormatter(preferences), index, checkOnly, parallelism, charset);
+			SourceTreeFormatter.Result result = formatter.format(root);
+
+			for (Path file : result.getChangedFiles()) {
+				out.println((checkOnly ? "Not formatted: " : "Formatted: ") + root.relativize(file));
+			}
+
+			for (Map.Entry<Path, String> failure : result.getFailedFiles().entrySet()) {
+				err.println("Failed to format " + root.relativize(failure.getKey()) + ": " + failure.getValue());
+			}
+
+			out.println(result);
+
+			if (!result.getUndecodableFiles().isEmpty()) {
+				return 2;
+			}
+
+			if (!result.getFailedFiles().isEmpty() || (checkOnly && !result.getChangedFiles().isEmpty())) {
+				return 1;
+			}
+
+			return 0;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+
+			err.println("Interrupted");
+
+			return 2;
+		} catch (Exception ex) {
+			err.println("Failed to format " + root + ": " + ex);
+
+			return 2;
+		}
+	}
+
+	/**
+	 * Returns the default index file of the given {@code root} directory, which is stored in the user
+	 * cache directory, i.e. {@code $XDG_CACHE_HOME} or {@code ~/.cache}, and named after a hash of the
+	 * absolute path of the {@code root} directory.
+	 *
+	 * @param root the root directory
+	 *
+	 * @return the default index file of the given {@code root} directory
+	 */
+	@NonNull
+	static Path getDefaultIndexFile(Path root) {
+		String cacheHome = System.getenv("XDG_CACHE_HOME");
+		Path cacheDirectory = StringUtils.isNotBlank(cacheHome) ? Path.of(cacheHome) : Path.of(System.getProperty("user.home"), ".cache");
+
+		MessageDigest digest = BatchFormatter.createDigest();
+		String hash = HexFormat.of().formatHex(digest.digest(root.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8)));
+
+		return cacheDirectory.resolve(DEFAULT_INDEX_DIRECTORY_NAME).resolve(hash + ".index");
+	}
+
+	private static String value(String[] args, int index) {
+		if (index >= args.length) {
+			throw new IllegalArgumentException("Missing value of " + args[index - 1]);
+		}
+
+		return args[index];
+	}
+
+	private static void printUsage(PrintStream err) {
+		err.println("Usage: " + BatchFormatterMain.class.getName() + " [options] <directory>");
+		err.println();
+		err.println("Formats all files below <directory> with the external formatters activated in the preferences.");
+		err.println("Project specific settings are not resolved, pass the preferences of the project with --preferences instead.");
+		err.println("Supported file extensions: " + String.join(", ", BatchFormatter.getSupportedExtensions()));
+		err.println();
+		err.println("Options:");
+		err.println("  --check               only check the files, exit with 1 if any file is not formatted");
+		err.println("  --preferences <file>  the preferences to use, e.g. the file");
+		err.println("                        <userdir>/config/Preferences/de/funfried/netbeans/plugins/externalcodeformatter.properties");
+		err.println("  --threads <n>         the number of files which are formatted in parallel");
+		err.println("  --encoding <charset>  the encoding of the files, default UTF-8, exit with 2 if any file is not encoded with it");
+		err.println("  --index <file>        the index of already formatted files, default <cache>/" + DEFAULT_INDEX_DIRECTORY_NAME + "/<hash>.index");
+		err.println("                        where <cache> is $XDG_CACHE_HOME or ~/.cache");
+		err.println("  --no-index            format all files, even if they did not change since the last run");
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.batch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.netbeans.api.annotations.common.NonNull;
+
+/**
+ * Persistent index of file contents which are already formatted, keyed by the hash of the file content,
+ * the ID of the formatter and the fingerprint of its configuration (see {@link #createKey(byte[], String, String)}),
+ * so files which did not change since they were formatted can be skipped. Only the keys which were used
+ * by the last run are kept when the index is {@link #save() saved}. Instances of this class are thread
+ * safe.
+ *
+ * @author bahlef
+ */
+public class FormattedFileIndex {
+	/** {@link Logger} of this class. */
+	private static final Logger log = Logger.getLogger(FormattedFileIndex.class.getName());
+
+	/** The first line of an index file, identifies the format of the file. */
+	static final String HEADER = "# external code formatter index v1";
+
+	/** The file in which the index is stored. */
+	private final Path file;
+
+	/** The keys which were loaded from the {@code file}. */
+	private final Set<String> loadedKeys;
+
+	/** The keys which were used or added since the index was loaded. */
+	private final Set<String> usedKeys = ConcurrentHashMap.newKeySet();
+
+	private FormattedFileIndex(Path file, Set<String> loadedKeys) {
+		this.file = file;
+		this.loadedKeys = loadedKeys;
+	}
+
+	/**
+	 * Loads the index from the given {@code file}. If the {@code file} does not exist or has an
+	 * unknown format an empty index is returned.
+	 *
+	 * @param file the file in which the index is stored
+	 *
+	 * @return the loaded index
+	 *
+	 * @throws IOException if the {@code file} could not be read
+	 */
+	@NonNull
+	public static FormattedFileIndex load(Path file) throws IOException {
+		Set<String> keys = new HashSet<>();
+
+		if (Files.isRegularFile(file)) {
+			List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+			if (!lines.isEmpty() && HEADER.equals(lines.get(0))) {
+				for (int i = 1; i < lines.size(); i++) {
+					String line = lines.get(i).trim();
+					if (!line.isEmpty()) {
+						keys.add(line);
+					}
+				}
+			} else {
+				log.log(Level.INFO, "Ignoring index file {0} with unknown format", file);
+			}
+		}
+
+		return new FormattedFileIndex(file, keys);
+	}
+
+	/**
+	 * Creates the key of a file with the given {@code content} which is formatted by the formatter
+	 * with the given {@code formatterId} and configuration.
+	 *
+	 * @param content the content of the file
+	 * @param formatterId the ID of the formatter
+	 * @param configFingerprint the fingerprint of the configuration of the formatter
+	 *
+	 * @return the key
+	 */
+	@NonNull
+	public static String createKey(byte[] content, String formatterId, String configFingerprint) {
+		MessageDigest digest = BatchFormatter.createDigest();
+
+		return HexFormat.of().formatHex(digest.digest(content)) + ' ' + formatterId + ' ' + configFingerprint;
+	}
+
+	/**
+	 * Returns {@code true} if the given {@code key} is contained in this index, which means that the
+	 * file content the {@code key} belongs to is already formatted.
+	 *
+	 * @param key the key, see {@link #createKey(byte[], String, String)}
+	 *
+	 * @return {@code true} if the given {@code key} is contained in this index, otherwise {@code false}
+	 */
+	public boolean contains(String key) {
+		if (usedKeys.contains(key)) {
+			return true;
+		}
+
+		if (loadedKeys.contains(key)) {
+			usedKeys.add(key);
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Adds the given {@code key} to this index, which marks the file content the {@code key} belongs
+	 * to as formatted.
+	 *
+	 * @param key the key, see {@link #createKey(byte[], String, String)}
+	 */
+	public void add(String key) {
+		usedKeys.add(key);
+	}
+
+	/**
+	 * Returns the number of keys which will be stored when this index is {@link #save() saved}.
+	 *
+	 * @return the number of keys
+	 */
+	public int size() {
+		return usedKeys.size();
+	}
+
+	/**
+	 * Atomically replaces the file of this index with all keys which were used or added since the
+	 * index was loaded.
+	 *
+	 * @throws IOException if the file could not be written
+	 */
+	public void save() throws IOException {
+		List<String> keys = new ArrayList<>(usedKeys);
+		keys.sort(null);
+
+		StringBuilder sb = new StringBuilder(HEADER).append('\n');
+		for (String key : keys) {
+			sb.append(key).append('\n');
+		}
+
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+
+		SourceTreeFormatter.replaceAtomically(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.prefs.AbstractPreferences;
+import java.util.prefs.Preferences;
+
+import org.netbeans.api.annotations.common.NonNull;
+
+/**
+ * In memory {@link Preferences} which are initialized from a {@code .properties} file, e.g. the file in
+ * which NetBeans stores the global settings of this plugin
+ * ({@code <userdir>/config/Preferences/de/funfried/netbeans/plugins/externalcodeformatter.properties}).
+ * Changes are never written back to the file.
+ *
+ * @author bahlef
+ */
+public class PropertiesPreferences extends AbstractPreferences {
+	/** The values of this node. */
+	private final Map<String, String> values = new HashMap<>();
+
+	/** The child nodes of this node. */
+	private final Map<String, PropertiesPreferences> children = new HashMap<>();
+
+	/**
+	 * Creates a new root node without any values.
+	 */
+	public PropertiesPreferences() {
+		this(null, "");
+	}
+
+	private PropertiesPreferences(PropertiesPreferences parent, String name) {
+		super(parent, name);
+	}
+
+	/**
+	 * Loads the given {@code .properties} {@code file} into a new root node.
+	 *
+	 * @param file the {@code .properties} file to load
+	 *
+	 * @return the loaded {@link Preferences}
+	 *
+	 * @throws IOException if the {@code file} could not be read
+	 */
+	@NonNull
+	static Preferences load(Path file) throws IOException {
+		Properties properties = new Properties();
+		try (InputStream is = Files.newInputStream(file)) {
+			properties.load(is);
+		}
+
+		PropertiesPreferences preferences = new PropertiesPreferences();
+		for (String key : properties.stringPropertyNames()) {
+			preferences.values.put(key, properties.getProperty(key));
+		}
+
+		return preferences;
+	}
+
+	@Override
+	protected void putSpi(String key, String value) {
+		values.put(key, value);
+	}
+
+	@Override
+	protected String getSpi(String key) {
+		return values.get(key);
+	}
+
+	@Override
+	protected void removeSpi(String key) {
+		values.remove(key);
+	}
+
+	@Override
+	protected void removeNodeSpi() {
+		values.clear();
+	}
+
+	@Override
+	protected String[] keysSpi() {
+		return values.keySet().toArray(new String[0]);
+	}
+
+	@Override
+	protected String[] childrenNamesSpi() {
+		return children.keySet().toArray(new String[0]);
+	}
+
+	@Override
+	protected AbstractPreferences childSpi(String name) {
+		return children.computeIfAbsent(name, n -> new PropertiesPreferences(this, n));
+	}
+
+	@Override
+	protected void syncSpi() {
+		// nothing to synchronize, the values are kept in memory only
+	}
+
+	@Override
+	protected void flushSpi() {
+		// nothing to flush, the values are kept in memory only
+	}
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.netbeans.api.annotations.common.NonNull;
+
+import de.funfried.netbeans.plugins.external.formatter.FormatterService;
+
+/**
+ * Formats all supported files of a source tree in parallel on a {@link ForkJoinPool} using a
+ * {@link BatchFormatter}. Changed files are written with an atomic replace, files whose content is
+ * already known to be formatted by the same formatter and configuration are skipped using a
+ * {@link FormattedFileIndex}. In check only mode no file is written, the files which are not formatted
+ * are only reported. Files which are not valid in the configured {@link Charset} are reported as
+ * {@link Result#getUndecodableFiles() undecodable} and are never written.
+ *
+ * @author bahlef
+ */
+public class SourceTreeFormatter {
+	/** {@link Logger} of this class. */
+	private static final Logger log = Logger.getLogger(SourceTreeFormatter.class.getName());
+
+	/** The {@link BatchFormatter} used to format the files. */
+	private final BatchFormatter batchFormatter;
+
+	/** The {@link FormattedFileIndex} or {@code null} if no index should be used. */
+	private final FormattedFileIndex index;
+
+	/** {@code true} if the files should only be checked, but not written. */
+	private final boolean checkOnly;
+
+	/** The number of files which are formatted in parallel. */
+	private final int parallelism;
+
+	/** The {@link Charset} of the files. */
+	private final Charset charset;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param batchFormatter the {@link BatchFormatter} used to format the files
+	 * @param index the {@link FormattedFileIndex} or {@code null} if every file should be formatted
+	 * @param checkOnly {@code true} if the files should only be checked, but not written
+	 * @param parallelism the number of files which are formatted in parallel
+	 * @param charset the {@link Charset} of the files
+	 */
+	public SourceTreeFormatter(BatchFormatter batchFormatter, FormattedFileIndex index, boolean checkOnly, int parallelism, Charset charset) {
+		this.batchFormatter = Objects.requireNonNull(batchFormatter, "batchFormatter");
+		this.index = index;
+		this.checkOnly = checkOnly;
+		this.parallelism = Math.max(1, parallelism);
+		this.charset = Objects.requireNonNull(charset, "charset");
+	}
+
+	/**
+	 * Formats (or checks) all files below the given {@code root} directory for which an external
+	 * formatter is activated. Hidden directories (e.g. {@code .git}) are skipped. If a
+	 * {@link FormattedFileIndex} is used it is saved afterwards.
+	 *
+	 * @param root the root directory
+	 *
+	 * @return the {@link Result}
+	 *
+	 * @throws IOException if the directory could not be traversed or the index could not be saved
+	 * @throws InterruptedException if the current thread was interrupted while waiting for the formatting
+	 */
+	@NonNull
+	public Result format(Path root) throws IOException, InterruptedException {
+		List<Path> files = collectFiles(root);
+
+		Result result = new Result();
+		long start = System.nanoTime();
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.submit(() -> files.parallelStream().forEach(file -> format(file, result))).get();
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException("Formatting of " + root + " failed", ex.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		result.elapsedNanos = System.nanoTime() - start;
+
+		if (index != null) {
+			index.save();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns all files below the given {@code root} directory for which an external formatter is
+	 * activated.
+	 */
+	@NonNull
+	private List<Path> collectFiles(Path root) throws IOException {
+		List<Path> files = new ArrayList<>();
+
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				Path name = dir.getFileName();
+				if (!dir.equals(root) && name != null && name.toString().startsWith(".")) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile()) {
+					String mimeType = BatchFormatter.getMimeType(file);
+					if (mimeType != null && batchFormatter.getFormatterService(mimeType) != null) {
+						files.add(file);
+					}
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		return files;
+	}
+
+	private void format(Path file, Result result) {
+		try {
+			String mimeType = BatchFormatter.getMimeType(file);
+			FormatterService formatterService = batchFormatter.getFormatterService(mimeType);
+			if (formatterService == null) {
+				return;
+			}
+
+			byte[] content = Files.readAllBytes(file);
+
+			result.files.increment();
+			result.bytes.add(content.length);
+
+			String key = null;
+			if (index != null) {
+				key = FormattedFileIndex.createKey(content, formatterService.getId(), batchFormatter.getConfigFingerprint(formatterService));
+				if (index.contains(key)) {
+					result.skippedFiles.increment();
+
+					return;
+				}
+			}
+
+			String code;
+			try {
+				code = decode(content);
+			} catch (CharacterCodingException ex) {
+				log.log(Level.FINE, "Failed to decode " + file + " as " + charset, ex);
+
+				result.undecodableFiles.add(file);
+				result.failedFiles.put(file, "Not encoded in " + charset.name());
+
+				return;
+			}
+
+			String formatted = batchFormatter.format(formatterService, mimeType, code);
+			if (formatted == null || formatted.equals(code)) {
+				if (key != null) {
+					index.add(key);
+				}
+
+				return;
+			}
+
+			result.changedFiles.add(file);
+
+			if (!checkOnly) {
+				byte[] formattedContent = encode(formatted);
+
+				replaceAtomically(file, formattedContent);
+
+				if (index != null) {
+					index.add(FormattedFileIndex.createKey(formattedContent, formatterService.getId(), batchFormatter.getConfigFingerprint(formatterService)));
+				}
+			}
+		} catch (Exception ex) {
+			log.log(Level.FINE, "Failed to format " + file, ex);
+
+			result.failedFiles.put(file, StringUtils.defaultIfBlank(ex.getMessage(), ex.getClass().getName()));
+		}
+	}
+
+	/**
+	 * Decodes the given {@code content} with the {@link #charset}, malformed or unmappable input is
+	 * reported instead of being replaced, so the file is never written with replacement characters.
+	 */
+	@NonNull
+	private String decode(byte[] content) throws CharacterCodingException {
+		return charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT).decode(ByteBuffer.wrap(content)).toString();
+	}
+
+	/**
+	 * Encodes the given {@code code} with the {@link #charset}, unmappable characters introduced by the
+	 * formatter are reported instead of being replaced.
+	 */
+	@NonNull
+	private byte[] encode(String code) throws CharacterCodingException {
+		ByteBuffer buffer = charset.newEncoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT).encode(CharBuffer.wrap(code));
+
+		byte[] content = new byte[buffer.remaining()];
+		buffer.get(content);
+
+		return content;
+	}
+
+	/**
+	 * Replaces the given {@code file} with the given {@code content} by writing the {@code content} to
+	 * a temporary file in the same directory, which is then moved atomically to the {@code file}, so
+	 * the {@code file} is never partially written. The file permissions of the {@code file} are kept.
+	 *
+	 * @param file the file to replace
+	 * @param content the new content
+	 *
+	 * @throws IOException if the file could not be written
+	 */
+	static void replaceAtomically(Path file, byte[] content) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(directory, "." + file.getFileName(), ".tmp");
+
+		try {
+			Files.write(temp, content);
+
+			if (Files.exists(file)) {
+				try {
+					Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(file));
+				} catch (UnsupportedOperationException ex) {
+					// no POSIX file system
+				}
+			}
+
+			try {
+				Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException ex) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * The result of {@link SourceTreeFormatter#format(Path)}.
+	 */
+	public static class Result {
+		private final LongAdder files = new LongAdder();
+
+		private final LongAdder bytes = new LongAdder();
+
+		private final LongAdder skippedFiles = new LongAdder();
+
+		private final SortedSet<Path> changedFiles = new ConcurrentSkipListSet<>();
+
+		private final SortedMap<Path, String> failedFiles = new ConcurrentSkipListMap<>();
+
+		private final SortedSet<Path> undecodableFiles = new ConcurrentSkipListSet<>();
+
+		private long elapsedNanos;
+
+		private Result() {
+		}
+
+		/**
+		 * Returns the number of processed files, including the skipped ones.
+		 *
+		 * @return the number of processed files
+		 */
+		public long getFileCount() {
+			return files.sum();
+		}
+
+		/**
+		 * Returns the number of bytes of all processed files.
+		 *
+		 * @return the number of bytes
+		 */
+		public long getByteCount() {
+			return bytes.sum();
+		}
+
+		/**
+		 * Returns the number of files which were skipped, because they were already formatted.
+		 *
+		 * @return the number of skipped files
+		 */
+		public long getSkippedFileCount() {
+			return skippedFiles.sum();
+		}
+
+		/**
+		 * Returns the files which were changed by the formatter, in check only mode these are the files
+		 * which are not formatted.
+		 *
+		 * @return the changed files in ascending order
+		 */
+		@NonNull
+		public List<Path> getChangedFiles() {
+			return Collections.unmodifiableList(new ArrayList<>(changedFiles));
+		}
+
+		/**
+		 * Returns the files which could not be formatted together with the reason.
+		 *
+		 * @return the failed files in ascending order
+		 */
+		@NonNull
+		public SortedMap<Path, String> getFailedFiles() {
+			return Collections.unmodifiableSortedMap(failedFiles);
+		}
+
+		/**
+		 * Returns the files which could not be decoded with the configured {@link Charset}. These files
+		 * are also contained in the {@link #getFailedFiles() failed files} and were not written.
+		 *
+		 * @return the undecodable files in ascending order
+		 */
+		@NonNull
+		public List<Path> getUndecodableFiles() {
+			return Collections.unmodifiableList(new ArrayList<>(undecodableFiles));
+		}
+
+		/**
+		 * Returns the elapsed time of the formatting in nanoseconds.
+		 *
+		 * @return the elapsed time in nanoseconds
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/**
+		 * Returns the number of processed files per second.
+		 *
+		 * @return the number of processed files per second
+		 */
+		public double getFilesPerSecond() {
+			return perSecond(getFileCount());
+		}
+
+		/**
+		 * Returns the number of processed bytes per second.
+		 *
+		 * @return the number of processed bytes per second
+		 */
+		public double getBytesPerSecond() {
+			return perSecond(getByteCount());
+		}
+
+		private double perSecond(long count) {
+			if (elapsedNanos <= 0L) {
+				return 0.0d;
+			}
+
+			return count * 1_000_000_000.0d / elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%d files (%d changed, %d skipped, %d failed), %d bytes in %.2f s: %.1f files/s, %.1f bytes/s", getFileCount(),
+					changedFiles.size(), getSkippedFileCount(), failedFiles.size(), getByteCount(), elapsedNanos / 1_000_000_000.0d, getFilesPerSecond(), getBytesPerSecond());
+		}
+	}
+}
@@ -20,6 +20,7 @@ import org.openide.awt.StatusDisplayer;
 
 import de.funfried.netbeans.plugins.external.formatter.AbstractFormatJob;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -60,7 +61,14 @@ class CssParserFormatJob extends AbstractFormatJob {
 		String code = getCode();
 
 		try {
-			String formattedContent = formatter.format(code, indentPref, rgbAsHexPref, useSingleQuotesPref, useSourceStringValuesPref);
+			long formatStart = FormatterMetrics.startTimer();
+
+			String formattedContent;
+			try {
+				formattedContent = formatter.format(code, indentPref, rgbAsHexPref, useSingleQuotesPref, useSourceStringValuesPref);
+			} finally {
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, formatStart);
+			}
 
 			if (setFormattedCode(code, formattedContent)) {
 				SwingUtilities.invokeLater(() -> {
@@ -11,6 +11,7 @@ package de.funfried.netbeans.plugins.external.formatter.css.cssparser;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.List;
 
 import org.netbeans.api.annotations.common.CheckForNull;
 import org.w3c.css.sac.InputSource;
@@ -20,6 +21,7 @@ import com.steadystate.css.format.CSSFormat;
 import com.steadystate.css.parser.CSSOMParser;
 import com.steadystate.css.parser.SACParserCSS3;
 
+import de.funfried.netbeans.plugins.external.formatter.FormatterEnginePool;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
 
 /**
@@ -28,6 +30,13 @@ import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFail
  * @author bahlef
  */
 public final class CssParserFormatterWrapper {
+	/** The {@link CSSFormat}s per settings, which are only read while formatting and therefore shared. */
+	private final FormatterEnginePool<List<Object>, CSSFormat> formats = FormatterEnginePool.shared(key -> new CSSFormat()
+			.setPropertiesInSeparateLines((Integer) key.get(0))
+			.setRgbAsHex((Boolean) key.get(1))
+			.setUseSingleQuotes((Boolean) key.get(2))
+			.setUseSourceStringValues((Boolean) key.get(3)));
+
 	/**
 	 * Package private Constructor for creating a new instance of {@link CssParserFormatterWrapper}.
 	 */
@@ -54,11 +63,7 @@ public final class CssParserFormatterWrapper {
 			return null;
 		}
 
-		CSSFormat formatter = new CSSFormat()
-				.setPropertiesInSeparateLines(indent)
-				.setRgbAsHex(rgbAsHex)
-				.setUseSingleQuotes(useSingleQuotes)
-				.setUseSourceStringValues(useSourceStringValues);
+		CSSFormat formatter = formats.get(List.of(indent, rgbAsHex, useSingleQuotes, useSourceStringValues));
 
 		try (StringReader reader = new StringReader(code)) {
 			InputSource source = new InputSource(reader);
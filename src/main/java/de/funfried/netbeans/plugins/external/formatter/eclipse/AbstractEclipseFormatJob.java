@@ -30,6 +30,7 @@ import de.funfried.netbeans.plugins.external.formatter.exceptions.CannotLoadConf
 import de.funfried.netbeans.plugins.external.formatter.exceptions.ConfigReadException;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.ProfileNotFoundException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -127,7 +128,15 @@ public abstract class AbstractEclipseFormatJob extends AbstractFormatJob {
 		String code = getCode(pref);
 
 		try {
-			String formattedContent = getFormattedContent(pref, formatterFile, formatterProfile, code);
+			long formatStart = FormatterMetrics.startTimer();
+
+			String formattedContent;
+			try {
+				formattedContent = getFormattedContent(pref, formatterFile, formatterProfile, code);
+			} finally {
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, formatStart);
+			}
+
 			if (setFormattedCode(code, formattedContent)) {
 				String msg = getNotificationMessageForEclipseFormatterConfigurationFileType(formatterFile, formatterProfile);
 
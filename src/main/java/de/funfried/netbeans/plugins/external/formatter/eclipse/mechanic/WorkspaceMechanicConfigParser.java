@@ -49,22 +49,81 @@ public class WorkspaceMechanicConfigParser {
 		return EclipseFormatterUtils.toMap(properties, prefix);
 	}
 
+	/**
+	 * Returns all local {@link File}s which are read when parsing the given {@code path}, which are the
+	 * given file itself and all files and directories referenced through the workspace mechanic source
+	 * directories setting. Paths which are no local files (e.g. URLs) are not included.
+	 *
+	 * @param path a configuration file path or URL
+	 *
+	 * @return all local {@link File}s which are read when parsing the given {@code path}
+	 *
+	 * @throws IOException if there is an issue accessing the given configuration file
+	 */
+	@NonNull
+	public static List<File> getReferencedFiles(String path) throws IOException {
+		List<File> result = new ArrayList<>();
+		if (StringUtils.isBlank(path)) {
+			return result;
+		}
+
+		addReferencedFiles(new File(path), result);
+
+		Properties properties = createPropertiesFromPath(path);
+		if (properties.containsKey(MULTI_FILE_SETUP_PREFIX)) {
+			for (String additionalFilesPath : splitAdditionalFilesPaths((String) properties.get(MULTI_FILE_SETUP_PREFIX))) {
+				if (!UrlValidator.getInstance().isValid(additionalFilesPath)) {
+					addReferencedFiles(new File(additionalFilesPath), result);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static void addReferencedFiles(File file, List<File> result) {
+		if (file == null) {
+			return;
+		}
+
+		result.add(file);
+
+		if (file.isDirectory()) {
+			File[] files = file.listFiles();
+			if (files != null) {
+				for (File f : files) {
+					addReferencedFiles(f, result);
+				}
+			}
+		}
+	}
+
 	@NonNull
 	private static List<Properties> parseAdditionalFiles(String pathStruct) throws IOException {
+		List<Properties> result = new ArrayList<>();
+		for (String additionalFilesPath : splitAdditionalFilesPaths(pathStruct)) {
+			Properties additionalProperties = createPropertiesFromPath(additionalFilesPath);
+			result.add(additionalProperties);
+		}
+
+		return result;
+	}
+
+	@NonNull
+	private static List<String> splitAdditionalFilesPaths(String pathStruct) {
 		// the pathStruct looks as follows:
 		// ["/path/to/additional/mechanic/files","/path/to/origin/mechanic/file"]
 		pathStruct = StringUtils.trimToEmpty(pathStruct);
 		pathStruct = StringUtils.removeStart(pathStruct, "[");
 		pathStruct = StringUtils.removeEnd(pathStruct, "]");
 
-		List<Properties> result = new ArrayList<>();
+		List<String> result = new ArrayList<>();
 		String[] additionalFilesPaths = StringUtils.split(pathStruct, ",");
 		for (String additionalFilesPath : additionalFilesPaths) {
 			additionalFilesPath = StringUtils.removeStart(additionalFilesPath, "\"");
 			additionalFilesPath = StringUtils.removeEnd(additionalFilesPath, "\"");
 
-			Properties additionalProperties = createPropertiesFromPath(additionalFilesPath);
-			result.add(additionalProperties);
+			result.add(additionalFilesPath);
 		}
 
 		return result;
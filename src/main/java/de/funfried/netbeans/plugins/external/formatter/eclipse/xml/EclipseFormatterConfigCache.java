@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.eclipse.xml;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.collections4.map.AbstractMapDecorator;
+import org.apache.commons.lang3.StringUtils;
+import org.netbeans.api.annotations.common.CheckForNull;
+import org.netbeans.api.annotations.common.NonNull;
+
+import de.funfried.netbeans.plugins.external.formatter.eclipse.mechanic.WorkspaceMechanicConfigParser;
+
+/**
+ * Cache for parsed Eclipse formatter configurations. A cached configuration is only reused as long as
+ * none of the files it was read from (including additional workspace mechanic source files) changed
+ * their last modification time or size. Configurations which are not read from local files (e.g. URLs)
+ * are never cached.
+ *
+ * <p>
+ * The returned configurations compute their fingerprint only once, see {@link #getFingerprint(Map)}, so
+ * they can be used to look up formatter engines without hashing all of their entries on each lookup.
+ * </p>
+ *
+ * @author bahlef
+ */
+public final class EclipseFormatterConfigCache {
+	/** {@link Logger} of this class. */
+	private static final Logger log = Logger.getLogger(EclipseFormatterConfigCache.class.getName());
+
+	/** The cached configurations. */
+	private static final Map<Key, Entry> cache = new ConcurrentHashMap<>();
+
+	/** Number of lookups which were served from the cache. */
+	private static final AtomicLong hits = new AtomicLong();
+
+	/** Number of lookups which required parsing the configuration. */
+	private static final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Private constructor due to static methods only.
+	 */
+	private EclipseFormatterConfigCache() {
+	}
+
+	/**
+	 * Returns the cached configuration for the given parameters if it is still up to date, otherwise
+	 * {@code null}.
+	 *
+	 * @param formatterFile the path to the formatter configuration file
+	 * @param formatterProfile the name of the formatter configuration profile
+	 * @param additionalProperties optional additional properties
+	 * @param workspaceMechanicPrefix the workspace mechanic prefix
+	 * @param projectPrefFile the expected Eclipse project specific formatter configuration file name
+	 *
+	 * @return the cached configuration for the given parameters if it is still up to date, otherwise
+	 *         {@code null}
+	 */
+	@CheckForNull
+	static Map<String, String> get(String formatterFile, String formatterProfile, Map<String, String> additionalProperties, String workspaceMechanicPrefix, String projectPrefFile) {
+		Key key = createKey(formatterFile, formatterProfile, additionalProperties, workspaceMechanicPrefix, projectPrefFile);
+		if (key == null) {
+			misses.incrementAndGet();
+
+			return null;
+		}
+
+		Entry entry = cache.get(key);
+		if (entry != null && entry.isUpToDate()) {
+			hits.incrementAndGet();
+
+			return entry.config;
+		}
+
+		misses.incrementAndGet();
+
+		if (entry != null) {
+			cache.remove(key, entry);
+
+			log.log(Level.FINE, "Configuration {0} changed, reloading it", key.path);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Captures the current state of the files which are read for the given {@code formatterFile}. This has
+	 * to be called before the configuration is parsed, so that a concurrent change of any of the files
+	 * will lead to a reload on the next lookup.
+	 *
+	 * @param formatterFile the path to the formatter configuration file
+	 *
+	 * @return the captured state of the files, or {@code null} if the given {@code formatterFile} is no
+	 *         local file and therefore cannot be cached
+	 */
+	@CheckForNull
+	static List<FileStamp> stamp(String formatterFile) {
+		String path = resolvePath(formatterFile);
+		if (path == null) {
+			return null;
+		}
+
+		List<FileStamp> stamps = new ArrayList<>();
+
+		try {
+			if (EclipseFormatterUtils.isWorkspaceMechanicFile(path)) {
+				for (File file : WorkspaceMechanicConfigParser.getReferencedFiles(path)) {
+					stamps.add(new FileStamp(file));
+				}
+			} else {
+				stamps.add(new FileStamp(new File(path)));
+			}
+		} catch (IOException ex) {
+			log.log(Level.FINE, "Could not determine referenced files of " + path + ", configuration will not be cached", ex);
+
+			return null;
+		}
+
+		return stamps;
+	}
+
+	/**
+	 * Puts the given parsed {@code config} into the cache.
+	 *
+	 * @param formatterFile the path to the formatter configuration file
+	 * @param formatterProfile the name of the formatter configuration profile
+	 * @param additionalProperties optional additional properties
+	 * @param workspaceMechanicPrefix the workspace mechanic prefix
+	 * @param projectPrefFile the expected Eclipse project specific formatter configuration file name
+	 * @param stamps the state of the files captured via {@link #stamp(String)} before parsing
+	 * @param config the parsed configuration
+	 *
+	 * @return an unmodifiable view of the given {@code config}
+	 */
+	@NonNull
+	static Map<String, String> put(String formatterFile, String formatterProfile, Map<String, String> additionalProperties, String workspaceMechanicPrefix, String projectPrefFile,
+			List<FileStamp> stamps, Map<String, String> config) {
+		Map<String, String> unmodifiableConfig = new ParsedConfig(config);
+
+		Key key = createKey(formatterFile, formatterProfile, additionalProperties, workspaceMechanicPrefix, projectPrefFile);
+		if (key != null && stamps != null) {
+			cache.put(key, new Entry(stamps, unmodifiableConfig));
+		}
+
+		return unmodifiableConfig;
+	}
+
+	/**
+	 * Returns a fingerprint of the given {@code config}, i.e. a hash of all its entries. The fingerprint of
+	 * a configuration returned by this cache is only computed once.
+	 *
+	 * @param config the configuration
+	 *
+	 * @return a fingerprint of the given {@code config}
+	 */
+	@NonNull
+	static String getFingerprint(Map<String, String> config) {
+		if (config instanceof ParsedConfig) {
+			return ((ParsedConfig) config).getFingerprint();
+		}
+
+		return computeFingerprint(config);
+	}
+
+	/**
+	 * Removes all cached configurations.
+	 */
+	public static void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Returns the number of lookups which were served from the cache.
+	 *
+	 * @return the number of lookups which were served from the cache
+	 */
+	public static long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of lookups which required parsing the configuration.
+	 *
+	 * @return the number of lookups which required parsing the configuration
+	 */
+	public static long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the absolute and normalized path of the given {@code formatterFile} if it is an existing
+	 * local file, otherwise {@code null}.
+	 *
+	 * @param formatterFile the path to the formatter configuration file
+	 *
+	 * @return the absolute and normalized path of the given {@code formatterFile} if it is an existing
+	 *         local file, otherwise {@code null}
+	 */
+	@CheckForNull
+	private static String resolvePath(String formatterFile) {
+		if (StringUtils.isBlank(formatterFile)) {
+			return null;
+		}
+
+		try {
+			File file = new File(formatterFile);
+			if (file.isFile()) {
+				return file.toPath().toAbsolutePath().normalize().toString();
+			}
+		} catch (RuntimeException ex) {
+			log.log(Level.FINEST, "Could not resolve " + formatterFile + " as a local file", ex);
+		}
+
+		return null;
+	}
+
+	@CheckForNull
+	private static Key createKey(String formatterFile, String formatterProfile, Map<String, String> additionalProperties, String workspaceMechanicPrefix, String projectPrefFile) {
+		String path = resolvePath(formatterFile);
+		if (path == null) {
+			return null;
+		}
+
+		return new Key(path, formatterProfile, additionalProperties, workspaceMechanicPrefix, projectPrefFile);
+	}
+
+	/**
+	 * Cache key, identifying a parsed configuration.
+	 */
+	private static final class Key {
+		private final String path;
+
+		private final String profile;
+
+		private final Map<String, String> additionalProperties;
+
+		private final String prefix;
+
+		private final String projectPrefFile;
+
+		private final int hashCode;
+
+		private Key(String path, String profile, Map<String, String> additionalProperties, String prefix, String projectPrefFile) {
+			this.path = path;
+			this.profile = profile;
+			this.additionalProperties = additionalProperties == null ? Collections.emptyMap() : Map.copyOf(additionalProperties);
+			this.prefix = prefix;
+			this.projectPrefFile = projectPrefFile;
+			this.hashCode = Objects.hash(path, profile, this.additionalProperties, prefix, projectPrefFile);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			Key other = (Key) obj;
+
+			return Objects.equals(path, other.path) && Objects.equals(profile, other.profile) && Objects.equals(additionalProperties, other.additionalProperties)
+					&& Objects.equals(prefix, other.prefix) && Objects.equals(projectPrefFile, other.projectPrefFile);
+		}
+	}
+
+	@NonNull
+	private static String computeFingerprint(Map<String, String> config) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 is not supported", ex);
+		}
+
+		for (Map.Entry<String, String> entry : new TreeMap<>(config).entrySet()) {
+			digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Unmodifiable parsed configuration which computes its fingerprint lazily and only once.
+	 */
+	private static final class ParsedConfig extends AbstractMapDecorator<String, String> {
+		private volatile String fingerprint;
+
+		private ParsedConfig(Map<String, String> config) {
+			super(Collections.unmodifiableMap(config));
+		}
+
+		private String getFingerprint() {
+			String ret = fingerprint;
+			if (ret == null) {
+				ret = computeFingerprint(decorated());
+				fingerprint = ret;
+			}
+
+			return ret;
+		}
+	}
+
+	/**
+	 * Cached configuration along with the state of the files it was read from.
+	 */
+	private static final class Entry {
+		private final List<FileStamp> stamps;
+
+		private final Map<String, String> config;
+
+		private Entry(List<FileStamp> stamps, Map<String, String> config) {
+			this.stamps = stamps;
+			this.config = config;
+		}
+
+		private boolean isUpToDate() {
+			for (FileStamp stamp : stamps) {
+				if (!stamp.isUpToDate()) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * The last modification time and size of a file at a given time.
+	 */
+	static final class FileStamp {
+		private final File file;
+
+		private final long lastModified;
+
+		private final long length;
+
+		private FileStamp(File file) {
+			this.file = file;
+			this.lastModified = file.lastModified();
+			this.length = file.length();
+		}
+
+		private boolean isUpToDate() {
+			return lastModified == file.lastModified() && length == file.length();
+		}
+	}
+}
@@ -17,8 +17,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
@@ -39,6 +41,7 @@ import de.funfried.netbeans.plugins.external.formatter.eclipse.mechanic.Workspac
 import de.funfried.netbeans.plugins.external.formatter.exceptions.CannotLoadConfigurationException;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.ConfigReadException;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.ProfileNotFoundException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 
 /**
  *
@@ -163,16 +166,19 @@ public class EclipseFormatterUtils {
 	/**
 	 * Parses the configuration parameters from the given {@code formatterProfile} of the
 	 * given {@code formatterFile} and returns it as a {@link Map} containing the
-	 * configuration as key value pairs.
+	 * configuration as key value pairs. Configurations read from local files are cached by the
+	 * {@link EclipseFormatterConfigCache} until one of the underlying files changes, therefore the
+	 * returned {@link Map} is unmodifiable.
 	 *
 	 * @param formatterFile the path to the formatter configuration file
 	 * @param formatterProfile the name of the formatter configuration profile
-	 * @param defaultProperties the default properties
+	 * @param defaultProperties the default properties, which have to be the same for all calls with
+	 *        the same {@code workspaceMechanicPrefix} and {@code projectPrefFile}
 	 * @param additionalProperties optional additional properties
 	 * @param workspaceMechanicPrefix the workspace mechanic prefix
 	 * @param projectPrefFile the expected Eclipse project specific formatter configuration file name
 	 *
-	 * @return a {@link Map} containing the configuration as key value pairs
+	 * @return an unmodifiable {@link Map} containing the configuration as key value pairs
 	 *
 	 * @throws ConfigReadException if there is an issue parsing the formatter configuration
 	 * @throws ProfileNotFoundException if the given {@code profile} could not be found
@@ -180,6 +186,44 @@ public class EclipseFormatterUtils {
 	 */
 	public static Map<String, String> parseConfig(String formatterFile, String formatterProfile, Map<String, String> defaultProperties, Map<String, String> additionalProperties,
 			String workspaceMechanicPrefix, String projectPrefFile) throws ProfileNotFoundException, ConfigReadException, CannotLoadConfigurationException {
+		return parseConfig(formatterFile, formatterProfile, defaultProperties, additionalProperties, workspaceMechanicPrefix, projectPrefFile, null);
+	}
+
+	/**
+	 * Parses the configuration parameters from the given {@code formatterProfile} of the
+	 * given {@code formatterFile} and returns it as a {@link Map} containing the
+	 * configuration as key value pairs. Configurations read from local files are cached by the
+	 * {@link EclipseFormatterConfigCache} until one of the underlying files changes, therefore the
+	 * returned {@link Map} is unmodifiable.
+	 *
+	 * @param formatterFile the path to the formatter configuration file
+	 * @param formatterProfile the name of the formatter configuration profile
+	 * @param defaultProperties the default properties, which have to be the same for all calls with
+	 *        the same {@code workspaceMechanicPrefix} and {@code projectPrefFile}
+	 * @param additionalProperties optional additional properties
+	 * @param workspaceMechanicPrefix the workspace mechanic prefix
+	 * @param projectPrefFile the expected Eclipse project specific formatter configuration file name
+	 * @param postProcessor an optional {@link Consumer} which is able to modify the parsed configuration
+	 *        before it gets cached, which has to behave the same for all calls with the same
+	 *        {@code workspaceMechanicPrefix} and {@code projectPrefFile}
+	 *
+	 * @return an unmodifiable {@link Map} containing the configuration as key value pairs
+	 *
+	 * @throws ConfigReadException if there is an issue parsing the formatter configuration
+	 * @throws ProfileNotFoundException if the given {@code profile} could not be found
+	 * @throws CannotLoadConfigurationException if there is any issue accessing or reading the formatter configuration
+	 */
+	public static Map<String, String> parseConfig(String formatterFile, String formatterProfile, Map<String, String> defaultProperties, Map<String, String> additionalProperties,
+			String workspaceMechanicPrefix, String projectPrefFile, Consumer<Map<String, String>> postProcessor) throws ProfileNotFoundException, ConfigReadException, CannotLoadConfigurationException {
+		Map<String, String> cachedConfig = EclipseFormatterConfigCache.get(formatterFile, formatterProfile, additionalProperties, workspaceMechanicPrefix, projectPrefFile);
+		if (cachedConfig != null) {
+			return cachedConfig;
+		}
+
+		long start = FormatterMetrics.startTimer();
+
+		List<EclipseFormatterConfigCache.FileStamp> stamps = EclipseFormatterConfigCache.stamp(formatterFile);
+
 		Map<String, String> allConfig = new HashMap<>();
 		try {
 			Map<String, String> configFromFile;
@@ -199,6 +243,10 @@ public class EclipseFormatterUtils {
 			if (additionalProperties != null) {
 				allConfig.putAll(additionalProperties);
 			}
+
+			if (postProcessor != null) {
+				postProcessor.accept(allConfig);
+			}
 		} catch (ConfigReadException | ProfileNotFoundException ex) {
 			log.log(Level.WARNING, "Could not load configuration: " + formatterFile, ex);
 
@@ -207,9 +255,26 @@ public class EclipseFormatterUtils {
 			log.log(Level.WARNING, "Could not load configuration: " + formatterFile, ex);
 
 			throw new CannotLoadConfigurationException(ex);
+		} finally {
+			FormatterMetrics.stopTimer(FormatterMetrics.Phase.CONFIG_PARSE, start);
 		}
 
-		return allConfig;
+		return EclipseFormatterConfigCache.put(formatterFile, formatterProfile, additionalProperties, workspaceMechanicPrefix, projectPrefFile, stamps, allConfig);
+	}
+
+	/**
+	 * Returns a fingerprint of the given {@code config}, which can be compared instead of the whole
+	 * configuration, e.g. to look up a formatter engine which was built with the same configuration. The
+	 * fingerprint of a configuration returned by
+	 * {@link #parseConfig(String, String, Map, Map, String, String, Consumer)} is only computed once.
+	 *
+	 * @param config the configuration
+	 *
+	 * @return a fingerprint of the given {@code config}
+	 */
+	@NonNull
+	public static String getConfigFingerprint(Map<String, String> config) {
+		return EclipseFormatterConfigCache.getFingerprint(config);
 	}
 
 	/**
@@ -86,14 +86,14 @@ public final class EclipseFormatterConfig {
 	public static Map<String, String> parseConfig(String formatterFile, String formatterProfile, String sourceLevel)
 			throws ProfileNotFoundException, ConfigReadException, CannotLoadConfigurationException {
 		Map<String, String> config = EclipseFormatterUtils.parseConfig(formatterFile, formatterProfile, ECLIPSE_JAVA_FORMATTER_DEFAULTS, getSourceLevelOptions(sourceLevel), WORKSPACE_MECHANIC_PREFIX,
-				EclipseJavaFormatterSettings.PROJECT_PREF_FILE);
-
-		// https://github.com/markiewb/eclipsecodeformatter_for_netbeans/issues/77
-		// https://bugs.eclipse.org/bugs/show_bug.cgi?id=449262
-		if (org.eclipse.jdt.core.JavaCore.DEFAULT_JAVA_FORMATTER.equals(config.get("org.eclipse.jdt.core.javaFormatter"))) {
-			//ignore default formatter as configured extension point
-			config.remove("org.eclipse.jdt.core.javaFormatter");
-		}
+				EclipseJavaFormatterSettings.PROJECT_PREF_FILE, parsedConfig -> {
+					// https://github.com/markiewb/eclipsecodeformatter_for_netbeans/issues/77
+					// https://bugs.eclipse.org/bugs/show_bug.cgi?id=449262
+					if (org.eclipse.jdt.core.JavaCore.DEFAULT_JAVA_FORMATTER.equals(parsedConfig.get("org.eclipse.jdt.core.javaFormatter"))) {
+						//ignore default formatter as configured extension point
+						parsedConfig.remove("org.eclipse.jdt.core.javaFormatter");
+					}
+				});
 
 		if (null != config.get("org.eclipse.jdt.core.javaFormatter")) {
 			throw new CannotLoadConfigurationException("The use of third-party Java code formatters is not supported by this plugin.\n"
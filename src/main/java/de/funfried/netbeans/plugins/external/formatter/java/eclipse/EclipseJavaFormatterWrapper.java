@@ -27,6 +27,8 @@ import org.eclipse.text.edits.TextEdit;
 import org.netbeans.api.annotations.common.CheckForNull;
 import org.netbeans.api.annotations.common.NonNull;
 
+import de.funfried.netbeans.plugins.external.formatter.FormatterEnginePool;
+import de.funfried.netbeans.plugins.external.formatter.eclipse.xml.EclipseFormatterUtils;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.CannotLoadConfigurationException;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.ConfigReadException;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
@@ -41,12 +43,24 @@ public final class EclipseJavaFormatterWrapper {
 	/** Use to specify the kind of the code snippet to format. */
 	private static final int FORMATTER_OPTS = CodeFormatter.K_COMPILATION_UNIT | CodeFormatter.F_INCLUDE_COMMENTS /* + CodeFormatter.K_CLASS_BODY_DECLARATIONS + CodeFormatter.K_STATEMENTS */;
 
+	/** The {@link CodeFormatter}s per configuration, which are not thread safe and therefore leased to one thread at a time. */
+	private final FormatterEnginePool<FormatterKey, CodeFormatter> formatters = FormatterEnginePool.exclusive(key -> ToolFactory.createCodeFormatter(key.config, ToolFactory.M_FORMAT_EXISTING));
+
 	/**
 	 * Package private Constructor for creating a new instance of {@link EclipseJavaFormatterWrapper}.
 	 */
 	EclipseJavaFormatterWrapper() {
 	}
 
+	/**
+	 * Returns the {@link FormatterEnginePool} of the {@link CodeFormatter}s.
+	 *
+	 * @return the {@link FormatterEnginePool} of the {@link CodeFormatter}s
+	 */
+	FormatterEnginePool<?, CodeFormatter> getFormatters() {
+		return formatters;
+	}
+
 	/**
 	 * Formats the given {@code code} with the given configurations and returns
 	 * the formatted code.
@@ -93,10 +107,10 @@ public final class EclipseJavaFormatterWrapper {
 
 		Map<String, String> allConfig = EclipseFormatterConfig.parseConfig(formatterFile, formatterProfile, sourceLevel);
 
-		CodeFormatter formatter = ToolFactory.createCodeFormatter(allConfig, ToolFactory.M_FORMAT_EXISTING);
 		//see http://help.eclipse.org/juno/index.jsp?topic=%2Forg.eclipse.jdt.doc.isv%2Freference%2Fapi%2Forg%2Feclipse%2Fjdt%2Fcore%2Fformatter%2FCodeFormatter.html&anchor=format(int,
-
-		return format(formatter, code, regions.toArray(IRegion[]::new), lineFeed);
+		try (FormatterEnginePool.Lease<CodeFormatter> formatter = formatters.acquire(new FormatterKey(allConfig))) {
+			return format(formatter.get(), code, regions.toArray(IRegion[]::new), lineFeed);
+		}
 	}
 
 	/**
@@ -137,4 +151,37 @@ public final class EclipseJavaFormatterWrapper {
 
 		return formattedCode;
 	}
+
+	/**
+	 * Key of the {@link CodeFormatter}s, which compares the fingerprints of the configurations instead of
+	 * the configurations themselves, which consist of several hundred entries.
+	 */
+	private static final class FormatterKey {
+		private final Map<String, String> config;
+
+		private final String fingerprint;
+
+		private FormatterKey(Map<String, String> config) {
+			this.config = config;
+			this.fingerprint = EclipseFormatterUtils.getConfigFingerprint(config);
+		}
+
+		@Override
+		public int hashCode() {
+			return fingerprint.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (!(obj instanceof FormatterKey)) {
+				return false;
+			}
+
+			return fingerprint.equals(((FormatterKey) obj).fingerprint);
+		}
+	}
 }
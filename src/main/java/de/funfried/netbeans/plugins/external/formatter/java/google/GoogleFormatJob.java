@@ -24,6 +24,7 @@ import com.google.googlejavaformat.java.JavaFormatterOptions;
 
 import de.funfried.netbeans.plugins.external.formatter.AbstractFormatJob;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -65,7 +66,15 @@ class GoogleFormatJob extends AbstractFormatJob {
 
 		try {
 			JavaFormatterOptions.Style codeStyle = JavaFormatterOptions.Style.valueOf(codeStylePref);
-			String formattedContent = formatter.format(code, codeStyle, regions);
+
+			long formatStart = FormatterMetrics.startTimer();
+
+			String formattedContent;
+			try {
+				formattedContent = formatter.format(code, codeStyle, regions);
+			} finally {
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, formatStart);
+			}
 
 			if (setFormattedCode(code, formattedContent)) {
 				SwingUtilities.invokeLater(() -> {
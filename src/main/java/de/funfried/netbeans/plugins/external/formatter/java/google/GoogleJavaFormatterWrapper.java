@@ -24,6 +24,7 @@ import com.google.googlejavaformat.java.ImportOrderer;
 import com.google.googlejavaformat.java.JavaFormatterOptions;
 import com.google.googlejavaformat.java.RemoveUnusedImports;
 
+import de.funfried.netbeans.plugins.external.formatter.FormatterEnginePool;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
 
 /**
@@ -32,12 +33,24 @@ import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFail
  * @author bahlef
  */
 public final class GoogleJavaFormatterWrapper {
+	/** The thread safe Google {@link Formatter}s per code style. */
+	private final FormatterEnginePool<JavaFormatterOptions.Style, Formatter> formatters = FormatterEnginePool.shared(style -> new Formatter(JavaFormatterOptions.builder().style(style).build()));
+
 	/**
 	 * Package private Constructor for creating a new instance of {@link GoogleJavaFormatterWrapper}.
 	 */
 	GoogleJavaFormatterWrapper() {
 	}
 
+	/**
+	 * Returns the {@link FormatterEnginePool} of the Google {@link Formatter}s.
+	 *
+	 * @return the {@link FormatterEnginePool} of the Google {@link Formatter}s
+	 */
+	FormatterEnginePool<JavaFormatterOptions.Style, Formatter> getFormatters() {
+		return formatters;
+	}
+
 	/**
 	 * Formats the given {@code code} with the given configurations and returns
 	 * the formatted code.
@@ -82,7 +95,7 @@ public final class GoogleJavaFormatterWrapper {
 
 		if (changedElements == null || !CollectionUtils.isEmpty(changedElements)) {
 			try {
-				Formatter formatter = new Formatter(JavaFormatterOptions.builder().style(codeStyle).build());
+				Formatter formatter = formatters.get(codeStyle);
 				code = formatter.formatSource(code, characterRanges);
 			} catch (FormatterException ex) {
 				throw new FormattingFailedException(ex);
@@ -22,6 +22,7 @@ import org.openide.awt.StatusDisplayer;
 
 import de.funfried.netbeans.plugins.external.formatter.AbstractFormatJob;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -60,7 +61,15 @@ class PalantirFormatJob extends AbstractFormatJob {
 		SortedSet<Pair<Integer, Integer>> regions = getFormatableSections(code);
 
 		try {
-			String formattedContent = formatter.format(code, regions);
+			long formatStart = FormatterMetrics.startTimer();
+
+			String formattedContent;
+			try {
+				formattedContent = formatter.format(code, regions);
+			} finally {
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, formatStart);
+			}
+
 			if (setFormattedCode(code, formattedContent)) {
 				SwingUtilities.invokeLater(() -> {
 					if (pref.getBoolean(Settings.SHOW_NOTIFICATIONS, false)) {
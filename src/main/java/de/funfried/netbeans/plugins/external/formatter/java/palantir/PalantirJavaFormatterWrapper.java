@@ -24,6 +24,7 @@ import com.palantir.javaformat.java.ImportOrderer;
 import com.palantir.javaformat.java.JavaFormatterOptions;
 import com.palantir.javaformat.java.RemoveUnusedImports;
 
+import de.funfried.netbeans.plugins.external.formatter.FormatterEnginePool;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
 
 /**
@@ -32,6 +33,10 @@ import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFail
  * @author bahlef
  */
 public final class PalantirJavaFormatterWrapper {
+	/** The thread safe Palantir {@link Formatter}s per code style. */
+	private final FormatterEnginePool<JavaFormatterOptions.Style, Formatter> formatters = FormatterEnginePool
+			.shared(style -> Formatter.createFormatter(JavaFormatterOptions.builder().style(style).build()));
+
 	/**
 	 * Package private Constructor for creating a new instance of {@link PalantirJavaFormatterWrapper}.
 	 */
@@ -74,7 +79,7 @@ public final class PalantirJavaFormatterWrapper {
 
 		if (changedElements == null || !CollectionUtils.isEmpty(changedElements)) {
 			try {
-				Formatter formatter = Formatter.createFormatter(JavaFormatterOptions.builder().style(JavaFormatterOptions.Style.PALANTIR).build());
+				Formatter formatter = formatters.get(JavaFormatterOptions.Style.PALANTIR);
 				code = formatter.formatSource(code, characterRanges);
 			} catch (FormatterException ex) {
 				throw new FormattingFailedException(ex);
@@ -23,6 +23,7 @@ import org.openide.awt.StatusDisplayer;
 
 import de.funfried.netbeans.plugins.external.formatter.AbstractFormatJob;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -70,7 +71,15 @@ class SpringFormatJob extends AbstractFormatJob {
 		SortedSet<Pair<Integer, Integer>> regions = getFormatableSections(code);
 
 		try {
-			String formattedContent = formatter.format(code, lineFeed, regions);
+			long formatStart = FormatterMetrics.startTimer();
+
+			String formattedContent;
+			try {
+				formattedContent = formatter.format(code, lineFeed, regions);
+			} finally {
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, formatStart);
+			}
+
 			if (setFormattedCode(code, formattedContent)) {
 				SwingUtilities.invokeLater(() -> {
 					if (pref.getBoolean(Settings.SHOW_NOTIFICATIONS, false)) {
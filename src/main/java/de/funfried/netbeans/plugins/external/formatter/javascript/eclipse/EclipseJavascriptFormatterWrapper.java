@@ -21,6 +21,8 @@ import org.eclipse.wst.jsdt.core.formatter.CodeFormatter;
 import org.netbeans.api.annotations.common.CheckForNull;
 import org.netbeans.api.annotations.common.NonNull;
 
+import de.funfried.netbeans.plugins.external.formatter.FormatterEnginePool;
+import de.funfried.netbeans.plugins.external.formatter.eclipse.xml.EclipseFormatterUtils;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.CannotLoadConfigurationException;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.ConfigReadException;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
@@ -35,12 +37,24 @@ public final class EclipseJavascriptFormatterWrapper {
 	/** Use to specify the kind of the code snippet to format. */
 	private static final int FORMATTER_OPTS = CodeFormatter.K_JAVASCRIPT_UNIT;
 
+	/** The {@link CodeFormatter}s per configuration, which are not thread safe and therefore leased to one thread at a time. */
+	private final FormatterEnginePool<FormatterKey, CodeFormatter> formatters = FormatterEnginePool.exclusive(key -> ToolFactory.createCodeFormatter(key.config, ToolFactory.M_FORMAT_EXISTING));
+
 	/**
 	 * Package private Constructor for creating a new instance of {@link EclipseJavascriptFormatterWrapper}.
 	 */
 	EclipseJavascriptFormatterWrapper() {
 	}
 
+	/**
+	 * Returns the {@link FormatterEnginePool} of the {@link CodeFormatter}s.
+	 *
+	 * @return the {@link FormatterEnginePool} of the {@link CodeFormatter}s
+	 */
+	FormatterEnginePool<?, CodeFormatter> getFormatters() {
+		return formatters;
+	}
+
 	/**
 	 * Formats the given {@code code} with the given configurations and returns
 	 * the formatted code.
@@ -67,8 +81,6 @@ public final class EclipseJavascriptFormatterWrapper {
 
 		Map<String, String> allConfig = EclipseFormatterConfig.parseConfig(formatterFile, formatterProfile);
 
-		CodeFormatter formatter = ToolFactory.createCodeFormatter(allConfig, ToolFactory.M_FORMAT_EXISTING);
-
 		int codeLength = code.length();
 
 		int offset = 0;
@@ -86,7 +98,9 @@ public final class EclipseJavascriptFormatterWrapper {
 			}
 		}
 
-		return format(formatter, code, offset, length, lineFeed);
+		try (FormatterEnginePool.Lease<CodeFormatter> formatter = formatters.acquire(new FormatterKey(allConfig))) {
+			return format(formatter.get(), code, offset, length, lineFeed);
+		}
 	}
 
 	/**
@@ -127,4 +141,37 @@ public final class EclipseJavascriptFormatterWrapper {
 
 		return formattedCode;
 	}
+
+	/**
+	 * Key of the {@link CodeFormatter}s, which compares the fingerprints of the configurations instead of
+	 * the configurations themselves, which consist of several hundred entries.
+	 */
+	private static final class FormatterKey {
+		private final Map<String, String> config;
+
+		private final String fingerprint;
+
+		private FormatterKey(Map<String, String> config) {
+			this.config = config;
+			this.fingerprint = EclipseFormatterUtils.getConfigFingerprint(config);
+		}
+
+		@Override
+		public int hashCode() {
+			return fingerprint.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (!(obj instanceof FormatterKey)) {
+				return false;
+			}
+
+			return fingerprint.equals(((FormatterKey) obj).fingerprint);
+		}
+	}
 }
@@ -34,8 +34,9 @@ public abstract class AbstractJsonFormatterService implements FormatterService {
 	 * Returns the {@link FormatJob}.
 	 *
 	 * @param document the {@link StyledDocument} which should be formatted
+	 * @param changedElements a {@link SortedSet} containing ranges as {@link Pair} objects that should be formatted
 	 */
-	protected abstract FormatJob getFormatJob(StyledDocument document);
+	protected abstract FormatJob getFormatJob(StyledDocument document, SortedSet<Pair<Integer, Integer>> changedElements);
 
 	/**
 	 * {@inheritDoc}
@@ -46,7 +47,7 @@ public abstract class AbstractJsonFormatterService implements FormatterService {
 			throw new FormattingFailedException("The file type '" + MimeType.getMimeTypeAsString(document) + "' is not supported");
 		}
 
-		getFormatJob(document).format();
+		getFormatJob(document, changedElements).format();
 
 		return true;
 	}
@@ -9,18 +9,22 @@
  */
 package de.funfried.netbeans.plugins.external.formatter.json.jackson;
 
+import java.util.SortedSet;
 import java.util.prefs.Preferences;
 
 import javax.swing.SwingUtilities;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.StyledDocument;
 
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.netbeans.editor.BaseDocument;
 import org.openide.awt.NotificationDisplayer;
 import org.openide.awt.StatusDisplayer;
 
 import de.funfried.netbeans.plugins.external.formatter.AbstractFormatJob;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -39,9 +43,10 @@ class JacksonFormatJob extends AbstractFormatJob {
 	 *
 	 * @param document the {@link StyledDocument} which sould be formatted
 	 * @param formatter the {@link JacksonJsonFormatterWrapper} to use
+	 * @param changedElements {@link SortedSet} containing ranges as {@link Pair} objects that should be formatted or {@code null} to format the whole document
 	 */
-	JacksonFormatJob(StyledDocument document, JacksonJsonFormatterWrapper formatter) {
-		super(document, null);
+	JacksonFormatJob(StyledDocument document, JacksonJsonFormatterWrapper formatter, SortedSet<Pair<Integer, Integer>> changedElements) {
+		super(document, changedElements);
 
 		this.formatter = formatter;
 	}
@@ -73,9 +78,18 @@ class JacksonFormatJob extends AbstractFormatJob {
 		}
 
 		String code = getCode();
+		SortedSet<Pair<Integer, Integer>> regions = CollectionUtils.isEmpty(changedElements) ? null : getFormatableSections(code);
 
 		try {
-			String formattedContent = formatter.format(code, lineFeed, options);
+			long formatStart = FormatterMetrics.startTimer();
+
+			String formattedContent;
+			try {
+				formattedContent = formatter.format(code, lineFeed, options, regions);
+			} finally {
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, formatStart);
+			}
+
 			if (setFormattedCode(code, formattedContent)) {
 				SwingUtilities.invokeLater(() -> {
 					if (pref.getBoolean(Settings.SHOW_NOTIFICATIONS, false)) {
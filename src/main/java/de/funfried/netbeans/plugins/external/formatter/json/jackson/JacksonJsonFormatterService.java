@@ -10,11 +10,13 @@
  */
 package de.funfried.netbeans.plugins.external.formatter.json.jackson;
 
+import java.util.SortedSet;
 import java.util.prefs.Preferences;
 
 import javax.swing.text.Document;
 import javax.swing.text.StyledDocument;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.netbeans.api.annotations.common.CheckForNull;
 import org.netbeans.api.annotations.common.NonNull;
 import org.netbeans.api.project.Project;
@@ -133,8 +135,8 @@ public class JacksonJsonFormatterService extends AbstractJsonFormatterService {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected FormatJob getFormatJob(StyledDocument document) {
-		return new JacksonFormatJob(document, formatter);
+	protected FormatJob getFormatJob(StyledDocument document, SortedSet<Pair<Integer, Integer>> changedElements) {
+		return new JacksonFormatJob(document, formatter, changedElements);
 	}
 
 	/**
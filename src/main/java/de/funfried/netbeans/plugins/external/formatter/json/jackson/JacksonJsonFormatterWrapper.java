@@ -9,29 +9,55 @@
  */
 package de.funfried.netbeans.plugins.external.formatter.json.jackson;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.SortedSet;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.netbeans.api.annotations.common.CheckForNull;
 import org.netbeans.api.annotations.common.NonNull;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.core.util.BufferRecycler;
 import com.fasterxml.jackson.core.util.DefaultIndenter;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.core.util.Separators;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 
+import de.funfried.netbeans.plugins.external.formatter.FormatterEnginePool;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
 
 /**
- * Wrapper class to the revelc.net formatter implementation.
+ * Wrapper class to the Jackson Json formatter implementation. The tokens of the code are streamed from a
+ * {@link JsonParser} directly into a {@link JsonGenerator}, so no object tree is built, the memory usage
+ * only depends on the nesting depth of the code and numbers are copied exactly as they are written.
+ * Comments are not reported by the {@link JsonParser}, they are read from the code between the tokens
+ * and written in front of the next token.
  *
  * @author bahlef
  */
 public final class JacksonJsonFormatterWrapper {
+	/** The thread safe {@link JsonFactory} which creates the parsers and generators. */
+	private static final JsonFactory factory = JsonFactory.builder()
+			.enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+			.enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+			.enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+			.enable(JsonReadFeature.ALLOW_YAML_COMMENTS)
+			.build();
+
+	/** The {@link DefaultPrettyPrinter} prototypes per indent string, line feed and space before separator flag. */
+	private final FormatterEnginePool<List<Object>, DefaultPrettyPrinter> prettyPrinters = FormatterEnginePool
+			.shared(key -> createPrettyPrinter((String) key.get(0), (String) key.get(1), (Boolean) key.get(2)));
+
 	/**
 	 * Package private Constructor for creating a new instance of {@link JacksonJsonFormatterWrapper}.
 	 */
@@ -50,6 +76,26 @@ public final class JacksonJsonFormatterWrapper {
 	 */
 	@CheckForNull
 	public String format(String code, String lineFeed, Options options) throws FormattingFailedException {
+		return format(code, lineFeed, options, null);
+	}
+
+	/**
+	 * Formats the given {@code code} with the given configurations and returns the formatted code. If
+	 * {@code changedElements} are given, only the innermost object or array which encloses all of the
+	 * {@code changedElements} is formatted, the rest of the {@code code} is kept as it is.
+	 *
+	 * @param code            the unformatted code
+	 * @param lineFeed        the line feed to use for formatting
+	 * @param options         the {@link Options}
+	 * @param changedElements a {@link SortedSet} containing ranges as {@link Pair} objects defining the
+	 *                        offsets which should be formatted, or {@code null} to format the whole code
+	 *
+	 * @return the formatted code, or {@code null} if the code did not change
+	 *
+	 * @throws FormattingFailedException if the given code could not be formatted
+	 */
+	@CheckForNull
+	public String format(String code, String lineFeed, Options options, SortedSet<Pair<Integer, Integer>> changedElements) throws FormattingFailedException {
 		if (code == null) {
 			return null;
 		}
@@ -62,6 +108,10 @@ public final class JacksonJsonFormatterWrapper {
 			options = new Options();
 		}
 
+		if (changedElements != null && changedElements.isEmpty()) {
+			return null;
+		}
+
 		int indentSize = options.getIndentSize();
 		int spacesPerTab = options.getSpacesPerTab();
 		boolean spaceBeforeSeparator = options.isSpaceBeforeSeparator();
@@ -74,52 +124,245 @@ public final class JacksonJsonFormatterWrapper {
 			indentString = StringUtils.repeat("\t", indentSize / spacesPerTab) + StringUtils.repeat(" ", indentSize % spacesPerTab);
 		}
 
+		DefaultPrettyPrinter prettyPrinter = prettyPrinters.get(List.of(indentString, lineFeed, spaceBeforeSeparator));
+
+		String formattedCode;
+		try {
+			int[] container = changedElements != null ? findEnclosingContainer(code, changedElements) : null;
+			if (container == null) {
+				formattedCode = format(prettyPrinter, null, code);
+			} else {
+				int start = container[0];
+				int end = container[1];
+				DefaultPrettyPrinter.Indenter indenter = new NestedIndenter(new DefaultIndenter(indentString, lineFeed), container[2]);
+
+				formattedCode = code.substring(0, start) + format(prettyPrinter, indenter, code.substring(start, end)) + code.substring(end);
+			}
+		} catch (IOException ex) {
+			throw new FormattingFailedException(ex);
+		}
+
+		if (Objects.equals(code, formattedCode)) {
+			return null;
+		}
+
+		return formattedCode;
+	}
+
+	/**
+	 * Creates and configures a new {@link DefaultPrettyPrinter} with the given settings, which is used
+	 * as prototype for the pretty printers of the generators.
+	 *
+	 * @param indentString the string used for one level of indentation
+	 * @param lineFeed     the line feed to use for formatting
+	 * @param spaceBeforeSeparator {@code true} to add a space between the key and before the value separator
+	 *
+	 * @return the new {@link DefaultPrettyPrinter}
+	 */
+	@NonNull
+	private static DefaultPrettyPrinter createPrettyPrinter(String indentString, String lineFeed, boolean spaceBeforeSeparator) {
 		DefaultPrettyPrinter.Indenter indenter = new DefaultIndenter(indentString, lineFeed);
 
-		DefaultPrettyPrinter printer = new JacksonPrettyPrinter(spaceBeforeSeparator);
+		DefaultPrettyPrinter printer = new JacksonPrettyPrinter(spaceBeforeSeparator, lineFeed);
 		printer.withSeparators(DefaultPrettyPrinter.DEFAULT_SEPARATORS);
 		printer.indentObjectsWith(indenter);
 		printer.indentArraysWith(indenter);
 
-		ObjectMapper objectMapper = new ObjectMapper();
-		objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
-		objectMapper.setDefaultPrettyPrinter(printer);
+		return printer;
+	}
+
+	/**
+	 * Streams all tokens and comments of the given {@code code} into a {@link JsonGenerator} using a copy
+	 * of the given {@code prettyPrinter} and returns the formatted code. The code is written into the
+	 * recycled segments of a {@link SegmentedStringWriter}, which are only joined once for the result.
+	 *
+	 * @param prettyPrinter the prototype of the {@link DefaultPrettyPrinter}
+	 * @param indenter      the {@link DefaultPrettyPrinter.Indenter} to use instead of the ones of the
+	 *                      {@code prettyPrinter}, or {@code null}
+	 * @param code          the unformatted code
+	 *
+	 * @return the formatted code
+	 *
+	 * @throws IOException if the given code could not be parsed
+	 */
+	@NonNull
+	private static String format(DefaultPrettyPrinter prettyPrinter, DefaultPrettyPrinter.Indenter indenter, String code) throws IOException {
+		CommentPrettyPrinter printer = new CommentPrettyPrinter(prettyPrinter);
+		if (indenter != null) {
+			printer.indentObjectsWith(indenter);
+			printer.indentArraysWith(indenter);
+		}
 
-		JsonFactory factory = objectMapper.getFactory();
-		factory.enable(JsonParser.Feature.ALLOW_COMMENTS);
-		factory.enable(JsonParser.Feature.ALLOW_SINGLE_QUOTES);
-		factory.enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES);
-		factory.enable(JsonParser.Feature.ALLOW_YAML_COMMENTS);
+		boolean mayContainComments = code.indexOf('/') >= 0 || code.indexOf('#') >= 0;
+
+		BufferRecycler bufferRecycler = factory._getBufferRecycler();
+		try (SegmentedStringWriter writer = new SegmentedStringWriter(bufferRecycler)) {
+			try (JsonParser parser = factory.createParser(code);
+					JsonGenerator generator = factory.createGenerator(writer)) {
+				generator.setPrettyPrinter(printer);
+
+				int previousTokenStart = -1;
+				while (parser.nextToken() != null) {
+					if (mayContainComments) {
+						int tokenStart = (int) parser.currentTokenLocation().getCharOffset();
+
+						readComments(code, previousTokenStart, tokenStart, printer);
+						if (previousTokenStart < 0) {
+							printer.writeCommentsBeforeFirstToken(generator);
+						}
+
+						previousTokenStart = tokenStart;
+					}
+
+					copyCurrentToken(parser, generator);
+				}
+
+				if (mayContainComments) {
+					readComments(code, previousTokenStart, code.length(), printer);
+					if (previousTokenStart < 0) {
+						printer.writeCommentsBeforeFirstToken(generator);
+					} else {
+						printer.writeCommentsAfterLastToken(generator);
+					}
+				}
+			}
 
-		return format(objectMapper, code);
+			return writer.getAndClear();
+		} finally {
+			bufferRecycler.releaseToPool();
+		}
 	}
 
 	/**
-	 * Formats the given {@code code} with the given {@link ObjectMapper} and returns
-	 * the formatted code.
+	 * Reads the comments of the given {@code code} between the token which starts at the given
+	 * {@code tokenStart} and the given {@code end} and adds them to the given {@link CommentPrettyPrinter}.
+	 * Comments on the same line as the token are added as trailing comments.
 	 *
-	 * @param objectMapper the {@link ObjectMapper}
-	 * @param code         the unformatted code
+	 * @param code       the code
+	 * @param tokenStart the start offset of the previous token, or {@code -1} if there is none
+	 * @param end        the end offset (exclusive), i.e. the start offset of the next token
+	 * @param printer    the {@link CommentPrettyPrinter} which writes the comments
+	 */
+	private static void readComments(String code, int tokenStart, int end, CommentPrettyPrinter printer) {
+		boolean trailing = tokenStart >= 0;
+		int i = trailing ? skipToken(code, tokenStart) : 0;
+
+		while (i < end) {
+			char c = code.charAt(i);
+			if (c == '\n' || c == '\r') {
+				trailing = false;
+				i++;
+			} else if (c == '#' || (c == '/' && i + 1 < end && code.charAt(i + 1) == '/')) {
+				int commentEnd = i;
+				while (commentEnd < end && code.charAt(commentEnd) != '\n' && code.charAt(commentEnd) != '\r') {
+					commentEnd++;
+				}
+
+				printer.addComment(StringUtils.stripEnd(code.substring(i, commentEnd), null), trailing);
+				i = commentEnd;
+			} else if (c == '/' && i + 1 < end && code.charAt(i + 1) == '*') {
+				int commentEnd = code.indexOf("*/", i + 2);
+				commentEnd = commentEnd < 0 || commentEnd + 2 > end ? end : commentEnd + 2;
+
+				printer.addComment(code.substring(i, commentEnd), trailing);
+				i = commentEnd;
+			} else {
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Returns the end offset (exclusive) of the token which starts at the given {@code start} offset of
+	 * the given {@code code}.
 	 *
-	 * @return the formatted code
+	 * @param code  the code
+	 * @param start the start offset of the token
 	 *
-	 * @throws FormattingFailedException if the given code could not be formatted
-	 *                                   with this formatter
+	 * @return the end offset (exclusive) of the token
+	 */
+	private static int skipToken(String code, int start) {
+		char c = code.charAt(start);
+		if (c == '"' || c == '\'') {
+			int i = start + 1;
+			while (i < code.length() && code.charAt(i) != c) {
+				i += code.charAt(i) == '\\' ? 2 : 1;
+			}
+
+			return i + 1;
+		} else if (c == '{' || c == '}' || c == '[' || c == ']') {
+			return start + 1;
+		}
+
+		int i = start;
+		while (i < code.length() && !Character.isWhitespace(code.charAt(i)) && ",:{}[]/#".indexOf(code.charAt(i)) < 0) {
+			i++;
+		}
+
+		return i;
+	}
+
+	/**
+	 * Copies the current token of the given {@link JsonParser} to the given {@link JsonGenerator}.
+	 * Numbers are copied as they are written in the code, so neither their precision nor their notation
+	 * changes.
+	 */
+	private static void copyCurrentToken(JsonParser parser, JsonGenerator generator) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+			generator.writeNumber(parser.getText());
+		} else {
+			generator.copyCurrentEvent(parser);
+		}
+	}
+
+	/**
+	 * Returns the innermost object or array of the given {@code code} which encloses all of the given
+	 * {@code changedElements}. The {@code code} is only parsed until the closing token of that object
+	 * or array is found.
+	 *
+	 * @param code            the code
+	 * @param changedElements the ranges of the code which should be formatted
+	 *
+	 * @return an array containing the start offset (inclusive), the end offset (exclusive) and the
+	 *         nesting depth of the object or array, or {@code null} if there is no object or array
+	 *         which encloses all of the {@code changedElements}
+	 *
+	 * @throws IOException if the given code could not be parsed
 	 */
 	@CheckForNull
-	private String format(ObjectMapper objectMapper, @NonNull String code) throws FormattingFailedException {
-		String formattedCode;
-		try {
-			Object json = objectMapper.readValue(code, Object.class);
-			formattedCode = objectMapper.writer().writeValueAsString(json);
-			if (Objects.equals(code, formattedCode)) {
-				return null;
+	private static int[] findEnclosingContainer(String code, SortedSet<Pair<Integer, Integer>> changedElements) throws IOException {
+		int regionStart = Integer.MAX_VALUE;
+		int regionEnd = Integer.MIN_VALUE;
+		for (Pair<Integer, Integer> changedElement : changedElements) {
+			regionStart = Math.min(regionStart, changedElement.getLeft());
+			regionEnd = Math.max(regionEnd, changedElement.getRight());
+		}
+
+		int[] starts = new int[16];
+		int depth = 0;
+
+		try (JsonParser parser = factory.createParser(code)) {
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+					if (depth == starts.length) {
+						starts = Arrays.copyOf(starts, depth * 2);
+					}
+
+					starts[depth++] = (int) parser.currentTokenLocation().getCharOffset();
+				} else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+					int start = starts[--depth];
+					int end = (int) parser.currentTokenLocation().getCharOffset() + 1;
+
+					if (start <= regionStart && end > regionEnd) {
+						return new int[] { start, end, depth };
+					}
+				}
 			}
-		} catch (JsonProcessingException ex) {
-			throw new FormattingFailedException(ex);
 		}
 
-		return formattedCode;
+		return null;
 	}
 
 	/**
@@ -135,10 +378,12 @@ public final class JacksonJsonFormatterWrapper {
 		 *
 		 * @param spaceBeforeSeparator {@code true} to add a space between the
 		 *                             key and before the value separator
+		 * @param rootSeparator        the separator between multiple root values
 		 */
-		public JacksonPrettyPrinter(boolean spaceBeforeSeparator) {
+		public JacksonPrettyPrinter(boolean spaceBeforeSeparator, String rootSeparator) {
 			super();
 			this.spaceBeforeSeparator = spaceBeforeSeparator;
+			this._rootSeparator = new SerializedString(rootSeparator);
 		}
 
 		/**
@@ -161,6 +406,259 @@ public final class JacksonJsonFormatterWrapper {
 		}
 	}
 
+	/**
+	 * {@link DefaultPrettyPrinter} which writes the comments read from the code in front of the next
+	 * token. Comments which were on the same line as the previous token are kept at the end of the line
+	 * of that token, all others are written on separate lines with the indentation of the next token.
+	 */
+	private static class CommentPrettyPrinter extends DefaultPrettyPrinter {
+		private static final long serialVersionUID = 1L;
+
+		/** The comments on the same line as the previous token. */
+		private final List<String> trailingComments = new ArrayList<>();
+
+		/** The comments on separate lines before the next token. */
+		private final List<String> leadingComments = new ArrayList<>();
+
+		/**
+		 * Creates a new instance of {@link CommentPrettyPrinter}.
+		 *
+		 * @param base the {@link DefaultPrettyPrinter} whose settings are copied
+		 */
+		CommentPrettyPrinter(DefaultPrettyPrinter base) {
+			super(base);
+		}
+
+		/**
+		 * Adds a comment which is written in front of the next token.
+		 *
+		 * @param comment  the comment, including its delimiters
+		 * @param trailing {@code true} if the comment was on the same line as the previous token
+		 */
+		void addComment(String comment, boolean trailing) {
+			(trailing ? trailingComments : leadingComments).add(comment);
+		}
+
+		/**
+		 * Writes the pending comments in front of the first token, each on a separate line.
+		 *
+		 * @param g the {@link JsonGenerator}
+		 *
+		 * @throws IOException if the comments could not be written
+		 */
+		void writeCommentsBeforeFirstToken(JsonGenerator g) throws IOException {
+			leadingComments.addAll(0, trailingComments);
+			trailingComments.clear();
+
+			for (String comment : leadingComments) {
+				g.writeRaw(comment);
+				g.writeRaw(_rootSeparator);
+			}
+
+			leadingComments.clear();
+		}
+
+		/**
+		 * Writes the pending comments after the last token.
+		 *
+		 * @param g the {@link JsonGenerator}
+		 *
+		 * @throws IOException if the comments could not be written
+		 */
+		void writeCommentsAfterLastToken(JsonGenerator g) throws IOException {
+			writeTrailingComments(g);
+
+			for (String comment : leadingComments) {
+				g.writeRaw(_rootSeparator);
+				g.writeRaw(comment);
+			}
+
+			leadingComments.clear();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void writeRootValueSeparator(JsonGenerator g) throws IOException {
+			writeTrailingComments(g);
+			super.writeRootValueSeparator(g);
+
+			for (String comment : leadingComments) {
+				g.writeRaw(comment);
+				super.writeRootValueSeparator(g);
+			}
+
+			leadingComments.clear();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void beforeObjectEntries(JsonGenerator g) throws IOException {
+			writeComments(g, _objectIndenter);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void writeObjectFieldValueSeparator(JsonGenerator g) throws IOException {
+			super.writeObjectFieldValueSeparator(g);
+
+			leadingComments.addAll(0, trailingComments);
+			trailingComments.clear();
+
+			for (String comment : leadingComments) {
+				g.writeRaw(comment);
+
+				if (isLineComment(comment)) {
+					_objectIndenter.writeIndentation(g, _nesting);
+				} else {
+					g.writeRaw(' ');
+				}
+			}
+
+			leadingComments.clear();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void writeObjectEntrySeparator(JsonGenerator g) throws IOException {
+			g.writeRaw(_objectEntrySeparator);
+
+			writeComments(g, _objectIndenter);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void writeEndObject(JsonGenerator g, int nrOfEntries) throws IOException {
+			super.writeEndObject(g, writeCommentsBeforeEnd(g, _objectIndenter, nrOfEntries));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void beforeArrayValues(JsonGenerator g) throws IOException {
+			writeComments(g, _arrayIndenter);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void writeArrayValueSeparator(JsonGenerator g) throws IOException {
+			g.writeRaw(_arrayValueSeparator);
+
+			writeComments(g, _arrayIndenter);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void writeEndArray(JsonGenerator g, int nrOfValues) throws IOException {
+			super.writeEndArray(g, writeCommentsBeforeEnd(g, _arrayIndenter, nrOfValues));
+		}
+
+		/**
+		 * Writes the trailing comments, the indentation of the next token and the leading comments, each
+		 * followed by the indentation of the next token.
+		 */
+		private void writeComments(JsonGenerator g, DefaultPrettyPrinter.Indenter indenter) throws IOException {
+			writeTrailingComments(g);
+
+			indenter.writeIndentation(g, _nesting);
+
+			for (String comment : leadingComments) {
+				g.writeRaw(comment);
+				indenter.writeIndentation(g, _nesting);
+			}
+
+			leadingComments.clear();
+		}
+
+		/**
+		 * Writes the comments in front of the end of an object or array, the leading comments are indented
+		 * like the entries of the object or array.
+		 *
+		 * @return the number of entries to pass to the {@link DefaultPrettyPrinter}, which is at least
+		 *         {@code 1} if comments were written, so the end is written on a new line
+		 */
+		private int writeCommentsBeforeEnd(JsonGenerator g, DefaultPrettyPrinter.Indenter indenter, int nrOfEntries) throws IOException {
+			if (trailingComments.isEmpty() && leadingComments.isEmpty()) {
+				return nrOfEntries;
+			}
+
+			writeTrailingComments(g);
+
+			for (String comment : leadingComments) {
+				indenter.writeIndentation(g, _nesting);
+				g.writeRaw(comment);
+			}
+
+			leadingComments.clear();
+
+			return Math.max(nrOfEntries, 1);
+		}
+
+		private void writeTrailingComments(JsonGenerator g) throws IOException {
+			for (String comment : trailingComments) {
+				g.writeRaw(' ');
+				g.writeRaw(comment);
+			}
+
+			trailingComments.clear();
+		}
+
+		private static boolean isLineComment(String comment) {
+			return comment.startsWith("//") || comment.startsWith("#");
+		}
+	}
+
+	/**
+	 * {@link DefaultPrettyPrinter.Indenter} which indents every line by additional levels, used when only
+	 * a nested object or array is formatted.
+	 */
+	private static class NestedIndenter implements DefaultPrettyPrinter.Indenter {
+		private final DefaultPrettyPrinter.Indenter indenter;
+
+		private final int depth;
+
+		/**
+		 * Creates a new instance of {@link NestedIndenter}.
+		 *
+		 * @param indenter the {@link DefaultPrettyPrinter.Indenter} to delegate to
+		 * @param depth    the number of additional levels of indentation
+		 */
+		NestedIndenter(DefaultPrettyPrinter.Indenter indenter, int depth) {
+			this.indenter = indenter;
+			this.depth = depth;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void writeIndentation(JsonGenerator g, int level) throws IOException {
+			indenter.writeIndentation(g, level + depth);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isInline() {
+			return indenter.isInline();
+		}
+	}
+
 	public static class Options {
 		private int indentSize = 2;
 
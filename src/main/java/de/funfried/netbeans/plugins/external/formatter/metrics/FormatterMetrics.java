@@ -0,0 +1,526 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.netbeans.api.annotations.common.NonNull;
+import org.openide.util.NbPreferences;
+
+import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
+
+/**
+ * Collects performance metrics of the external formatters per formatter ID and MIME type in lock-free
+ * {@link Histogram}s. A formatting is wrapped in a {@link Recording} which is attached to the current
+ * thread, the phases of the formatting are measured with {@link #startTimer()} and
+ * {@link #stopTimer(Phase, long)} wherever they happen, without passing the {@link Recording} around.
+ * Each phase should be recorded once per formatting, phases which are repeated on another thread
+ * (e.g. applying the code of a background formatting) or formattings which are not triggered by the user
+ * can be excluded with a {@link Suppression}.
+ *
+ * <p>
+ * The collection is disabled by default, see {@link Settings#COLLECT_PERFORMANCE_METRICS}. While it is
+ * disabled {@link #start(String, String, int, int)} returns a shared no-op {@link Recording} and the
+ * timer methods only read a volatile flag, so the instrumentation has next to no overhead. The metrics
+ * are also available via JMX as {@value #OBJECT_NAME} while the module is running, see
+ * {@link FormatterMetricsLifecycle}.
+ * </p>
+ *
+ * @author bahlef
+ */
+public final class FormatterMetrics {
+	/** {@link Logger} of this class. */
+	private static final Logger log = Logger.getLogger(FormatterMetrics.class.getName());
+
+	/** The name of the {@link FormatterMetricsMXBean}. */
+	public static final String OBJECT_NAME = "de.funfried.netbeans.plugins.external.formatter:type=FormatterMetrics";
+
+	/** The value returned by {@link #startTimer()} if no time should be measured. */
+	private static final long NOT_STARTED = Long.MIN_VALUE;
+
+	/** The header of the CSV export. */
+	private static final String CSV_HEADER = "formatter,mimeType,metric,unit,count,mean,p50,p90,p99,max";
+
+	/** The {@link FormatterStatistics} per formatter ID and MIME type. */
+	private static final Map<Pair<String, String>, FormatterStatistics> statistics = new ConcurrentHashMap<>();
+
+	/** The {@link FormatterStatistics} of the {@link Recording} which is attached to the current thread. */
+	private static final ThreadLocal<FormatterStatistics> current = new ThreadLocal<>();
+
+	/** The {@link Suppression} of the current thread, if any. */
+	private static final ThreadLocal<Suppression> suppression = new ThreadLocal<>();
+
+	/** {@code true} if the performance metrics are collected. */
+	private static volatile boolean enabled;
+
+	static {
+		try {
+			enabled = NbPreferences.forModule(FormatterMetrics.class).getBoolean(Settings.COLLECT_PERFORMANCE_METRICS, false);
+		} catch (RuntimeException ex) {
+			log.log(Level.FINE, "Could not read the performance metrics settings", ex);
+		}
+	}
+
+	/**
+	 * The measured phases of a formatting.
+	 */
+	public enum Phase {
+		/** Resolving the active preferences of the document. */
+		CONFIG_RESOLUTION,
+		/** Parsing a configuration file, which may be part of {@link #FORMAT} if a formatter parses it lazily. */
+		CONFIG_PARSE,
+		/** Formatting the code by the formatter engine. */
+		FORMAT,
+		/** Computing the differences between the unformatted and the formatted code. */
+		DIFF,
+		/** Applying the differences to the document. */
+		APPLY,
+		/** The whole formatting, for background formattings until the formatted code is applied. */
+		TOTAL
+	}
+
+	/**
+	 * Private constructor due to static methods only.
+	 */
+	private FormatterMetrics() {
+	}
+
+	/**
+	 * Returns {@code true} if the performance metrics are collected.
+	 *
+	 * @return {@code true} if the performance metrics are collected, otherwise {@code false}
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables the collection of the performance metrics. The already collected metrics are
+	 * kept.
+	 *
+	 * @param enabled {@code true} to collect the performance metrics
+	 */
+	public static void setEnabled(boolean enabled) {
+		FormatterMetrics.enabled = enabled;
+	}
+
+	/**
+	 * Registers the {@link FormatterMetricsMXBean} as {@value #OBJECT_NAME} at the platform MBean server.
+	 * An instance which is still registered, e.g. by a previous instance of this module which was not
+	 * stopped properly, is replaced.
+	 */
+	static synchronized void registerMXBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+
+			server.registerMBean(new FormatterMetricsMXBeanImpl(), name);
+		} catch (JMException | RuntimeException ex) {
+			log.log(Level.WARNING, "Could not register " + OBJECT_NAME, ex);
+		}
+	}
+
+	/**
+	 * Unregisters the {@link FormatterMetricsMXBean} from the platform MBean server, if it is registered.
+	 */
+	static synchronized void unregisterMXBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException | RuntimeException ex) {
+			log.log(Level.WARNING, "Could not unregister " + OBJECT_NAME, ex);
+		}
+	}
+
+	/**
+	 * Starts the {@link Recording} of a formatting and attaches it to the current thread. The returned
+	 * {@link Recording} has to be {@link Recording#close() closed} when the formatting is done.
+	 *
+	 * @param formatterId the ID of the formatter
+	 * @param mimeType the MIME type of the formatted document
+	 * @param inputSize the size of the formatted document
+	 * @param regionCount the number of regions which should be formatted, {@code 0} for the whole document
+	 *
+	 * @return the started {@link Recording}, or a no-op {@link Recording} if the collection is disabled
+	 */
+	@NonNull
+	public static Recording start(String formatterId, String mimeType, int inputSize, int regionCount) {
+		if (!enabled || isSuppressed(null)) {
+			return Recording.NONE;
+		}
+
+		FormatterStatistics stats = getStatistics(formatterId, mimeType);
+		stats.recordInput(inputSize, regionCount);
+
+		Recording recording = new Recording(stats, System.nanoTime());
+		recording.attach();
+
+		return recording;
+	}
+
+	/**
+	 * Counts a formatting of a document with the given {@code mimeType} which was delegated to the
+	 * NetBeans formatter although the formatter with the given {@code formatterId} is activated.
+	 *
+	 * @param formatterId the ID of the formatter
+	 * @param mimeType the MIME type of the document
+	 */
+	public static void recordFallback(String formatterId, String mimeType) {
+		if (enabled && !isSuppressed(null)) {
+			getStatistics(formatterId, mimeType).fallback();
+		}
+	}
+
+	/**
+	 * Returns the start time of a phase which is passed to {@link #stopTimer(Phase, long)} when the phase
+	 * is done.
+	 *
+	 * @return the start time of a phase
+	 */
+	public static long startTimer() {
+		return enabled ? System.nanoTime() : NOT_STARTED;
+	}
+
+	/**
+	 * Records the time since the given {@code start} for the given {@code phase} to the {@link Recording}
+	 * which is attached to the current thread, if any.
+	 *
+	 * @param phase the {@link Phase}
+	 * @param start the start time returned by {@link #startTimer()}
+	 */
+	public static void stopTimer(Phase phase, long start) {
+		if (start == NOT_STARTED || isSuppressed(phase)) {
+			return;
+		}
+
+		FormatterStatistics stats = current.get();
+		if (stats != null) {
+			stats.record(phase, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Suppresses all performance metrics of the current thread, i.e. no {@link Recording} is started, no
+	 * fallback is counted and no phase is recorded, until the returned {@link Suppression} is closed.
+	 *
+	 * @return the {@link Suppression} which has to be closed to end the suppression
+	 */
+	@NonNull
+	public static Suppression suppress() {
+		return new Suppression(EnumSet.allOf(Phase.class), true);
+	}
+
+	/**
+	 * Suppresses the recording of the given {@link Phase}s by the current thread until the returned
+	 * {@link Suppression} is closed, e.g. if the phases are recorded by another thread later on.
+	 *
+	 * @param phase the first {@link Phase} to suppress
+	 * @param phases further {@link Phase}s to suppress
+	 *
+	 * @return the {@link Suppression} which has to be closed to end the suppression
+	 */
+	@NonNull
+	public static Suppression suppress(Phase phase, Phase... phases) {
+		return new Suppression(EnumSet.of(phase, phases), false);
+	}
+
+	/**
+	 * Returns a snapshot of the collected performance metrics, ordered by formatter ID and MIME type.
+	 *
+	 * @return a snapshot of the collected performance metrics
+	 */
+	@NonNull
+	public static List<FormatterMetricsRow> getRows() {
+		List<Map.Entry<Pair<String, String>, FormatterStatistics>> entries = new ArrayList<>(statistics.entrySet());
+		entries.sort(Map.Entry.comparingByKey());
+
+		List<FormatterMetricsRow> rows = new ArrayList<>();
+		for (Map.Entry<Pair<String, String>, FormatterStatistics> entry : entries) {
+			rows.addAll(entry.getValue().getRows());
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Writes the collected performance metrics as CSV to the given {@link Appendable}.
+	 *
+	 * @param out the {@link Appendable} to write to
+	 *
+	 * @throws IOException if the CSV could not be written
+	 */
+	public static void exportCsv(Appendable out) throws IOException {
+		out.append(CSV_HEADER).append('\n');
+
+		for (FormatterMetricsRow row : getRows()) {
+			out.append(escapeCsv(row.getFormatterId())).append(',');
+			out.append(escapeCsv(row.getMimeType())).append(',');
+			out.append(row.getMetric()).append(',');
+			out.append(row.getUnit()).append(',');
+			out.append(Long.toString(row.getCount())).append(',');
+			out.append(String.format(Locale.ROOT, "%.3f,%.3f,%.3f,%.3f,%.3f", row.getMean(), row.getP50(), row.getP90(), row.getP99(), row.getMax()));
+			out.append('\n');
+		}
+	}
+
+	/**
+	 * Removes all collected performance metrics.
+	 */
+	public static void reset() {
+		statistics.values().forEach(FormatterStatistics::reset);
+	}
+
+	@NonNull
+	private static FormatterStatistics getStatistics(String formatterId, String mimeType) {
+		String id = StringUtils.defaultString(formatterId);
+		String type = StringUtils.defaultString(mimeType);
+
+		return statistics.computeIfAbsent(Pair.of(id, type), key -> new FormatterStatistics(id, type));
+	}
+
+	/**
+	 * Returns {@code true} if the given {@code phase} is suppressed for the current thread.
+	 *
+	 * @param phase the {@link Phase}, or {@code null} to check whether all performance metrics are suppressed
+	 *
+	 * @return {@code true} if the given {@code phase} is suppressed for the current thread
+	 */
+	private static boolean isSuppressed(Phase phase) {
+		Suppression active = suppression.get();
+
+		return active != null && (phase != null ? active.phases.contains(phase) : active.all);
+	}
+
+	@NonNull
+	private static String escapeCsv(String value) {
+		if (StringUtils.containsAny(value, ',', '"', '\n', '\r')) {
+			return '"' + value.replace("\"", "\"\"") + '"';
+		}
+
+		return value;
+	}
+
+	/**
+	 * The recording of a single formatting. It is attached to the thread which started it, if the
+	 * formatting continues on another thread (e.g. the formatted code of a background formatting is
+	 * applied in the AWT event dispatch thread) it has to be {@link #detach() detached} and
+	 * {@link #attach() attached} to the other thread.
+	 */
+	public static final class Recording implements AutoCloseable {
+		/** The no-op {@link Recording} which is used while the collection is disabled. */
+		private static final Recording NONE = new Recording(null, 0L);
+
+		/** The {@link FormatterStatistics} to record to, or {@code null} for {@link #NONE}. */
+		private final FormatterStatistics statistics;
+
+		/** The start time of the formatting. */
+		private final long start;
+
+		/** {@code true} if the recording was already closed. */
+		private volatile boolean closed;
+
+		/** {@code true} if the formatting was cancelled. */
+		private volatile boolean cancelled;
+
+		private Recording(FormatterStatistics statistics, long start) {
+			this.statistics = statistics;
+			this.start = start;
+		}
+
+		/**
+		 * Attaches this recording to the current thread, so the phases measured by this thread are
+		 * recorded to it.
+		 */
+		public void attach() {
+			if (statistics != null) {
+				current.set(statistics);
+			}
+		}
+
+		/**
+		 * Detaches this recording from the current thread without closing it.
+		 */
+		public void detach() {
+			if (statistics != null) {
+				current.remove();
+			}
+		}
+
+		/**
+		 * Counts the formatting as failed.
+		 */
+		public void failed() {
+			if (statistics != null) {
+				statistics.failed();
+			}
+		}
+
+		/**
+		 * Counts the formatting as delegated to the NetBeans formatter.
+		 */
+		public void fallback() {
+			if (statistics != null) {
+				statistics.fallback();
+			}
+		}
+
+		/**
+		 * Counts the formatting as cancelled, e.g. because the document was modified while it was
+		 * formatted in the background. The {@link Phase#TOTAL total} time of a cancelled formatting is not
+		 * recorded, but the recording still has to be {@link #close() closed}.
+		 */
+		public void cancelled() {
+			if (statistics == null || closed || cancelled) {
+				return;
+			}
+
+			cancelled = true;
+
+			statistics.cancelled();
+		}
+
+		/**
+		 * Records the {@link Phase#TOTAL total} time of the formatting, unless it was
+		 * {@link #cancelled() cancelled}, and detaches this recording from the current thread. Subsequent
+		 * calls are ignored.
+		 */
+		@Override
+		public void close() {
+			if (statistics == null || closed) {
+				return;
+			}
+
+			closed = true;
+
+			if (!cancelled) {
+				statistics.record(Phase.TOTAL, System.nanoTime() - start);
+			}
+
+			detach();
+		}
+	}
+
+	/**
+	 * Suppression of performance metrics on the thread which created it, see {@link #suppress()} and
+	 * {@link #suppress(Phase, Phase...)}. Suppressions can be nested, closing a suppression restores the
+	 * enclosing one.
+	 */
+	public static final class Suppression implements AutoCloseable {
+		/** The enclosing {@link Suppression}, or {@code null} if there is none. */
+		private final Suppression previous;
+
+		/** The suppressed {@link Phase}s, including the ones of the enclosing {@link Suppression}. */
+		private final Set<Phase> phases;
+
+		/** {@code true} if all performance metrics are suppressed. */
+		private final boolean all;
+
+		private Suppression(Set<Phase> phases, boolean all) {
+			this.previous = suppression.get();
+			this.phases = phases;
+			this.all = all || (previous != null && previous.all);
+
+			if (previous != null) {
+				this.phases.addAll(previous.phases);
+			}
+
+			suppression.set(this);
+		}
+
+		/**
+		 * Ends this suppression and restores the enclosing one.
+		 */
+		@Override
+		public void close() {
+			if (previous != null) {
+				suppression.set(previous);
+			} else {
+				suppression.remove();
+			}
+		}
+	}
+
+	/**
+	 * {@link FormatterMetricsMXBean} implementation which delegates to the static methods of
+	 * {@link FormatterMetrics}.
+	 */
+	private static class FormatterMetricsMXBeanImpl implements FormatterMetricsMXBean {
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isEnabled() {
+			return FormatterMetrics.isEnabled();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void setEnabled(boolean enabled) {
+			FormatterMetrics.setEnabled(enabled);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<FormatterMetricsRow> getRows() {
+			return FormatterMetrics.getRows();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String exportCsv() {
+			StringBuilder sb = new StringBuilder();
+
+			try {
+				FormatterMetrics.exportCsv(sb);
+			} catch (IOException ex) {
+				// cannot happen for a StringBuilder
+				throw new IllegalStateException(ex);
+			}
+
+			return sb.toString();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void reset() {
+			FormatterMetrics.reset();
+		}
+	}
+}
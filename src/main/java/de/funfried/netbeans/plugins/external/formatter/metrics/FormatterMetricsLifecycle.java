@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.metrics;
+
+import org.openide.modules.OnStart;
+import org.openide.modules.OnStop;
+
+/**
+ * Registers the {@link FormatterMetricsMXBean} when the module is started and unregisters it when the
+ * module is stopped, so a reloaded or uninstalled module does not leave its instance (and its class
+ * loader) behind in the platform MBean server.
+ *
+ * @author bahlef
+ */
+public final class FormatterMetricsLifecycle {
+	/**
+	 * Private constructor, the lifecycle is handled by the nested classes.
+	 */
+	private FormatterMetricsLifecycle() {
+	}
+
+	/**
+	 * Registers the {@link FormatterMetricsMXBean} when the module is started.
+	 */
+	@OnStart
+	public static final class Start implements Runnable {
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			FormatterMetrics.registerMXBean();
+		}
+	}
+
+	/**
+	 * Unregisters the {@link FormatterMetricsMXBean} when the module is stopped.
+	 */
+	@OnStop
+	public static final class Stop implements Runnable {
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			FormatterMetrics.unregisterMXBean();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.metrics;
+
+import java.util.List;
+
+/**
+ * JMX interface of the {@link FormatterMetrics}, registered as
+ * {@value FormatterMetrics#OBJECT_NAME}.
+ *
+ * @author bahlef
+ */
+public interface FormatterMetricsMXBean {
+	/**
+	 * Returns {@code true} if the performance metrics are collected.
+	 *
+	 * @return {@code true} if the performance metrics are collected, otherwise {@code false}
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Enables or disables the collection of the performance metrics until the IDE is restarted.
+	 *
+	 * @param enabled {@code true} to collect the performance metrics
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Returns the collected performance metrics.
+	 *
+	 * @return the collected performance metrics
+	 */
+	List<FormatterMetricsRow> getRows();
+
+	/**
+	 * Returns the collected performance metrics as CSV.
+	 *
+	 * @return the collected performance metrics as CSV
+	 */
+	String exportCsv();
+
+	/**
+	 * Removes all collected performance metrics.
+	 */
+	void reset();
+}
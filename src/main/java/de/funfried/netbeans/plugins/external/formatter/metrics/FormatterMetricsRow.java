@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable snapshot of a single metric of a formatter for a MIME type, e.g. the format time of the
+ * Eclipse Java formatter for {@code text/x-java}. Times are reported in milliseconds.
+ *
+ * @author bahlef
+ */
+public final class FormatterMetricsRow {
+	private final String formatterId;
+
+	private final String mimeType;
+
+	private final String metric;
+
+	private final String unit;
+
+	private final long count;
+
+	private final double mean;
+
+	private final double p50;
+
+	private final double p90;
+
+	private final double p99;
+
+	private final double max;
+
+	/**
+	 * Creates a new instance of {@link FormatterMetricsRow}.
+	 *
+	 * @param formatterId the ID of the formatter
+	 * @param mimeType the MIME type of the formatted documents
+	 * @param metric the name of the metric
+	 * @param unit the unit of the values
+	 * @param count the number of recorded values
+	 * @param mean the arithmetic mean of the recorded values
+	 * @param p50 the median of the recorded values
+	 * @param p90 the 90th percentile of the recorded values
+	 * @param p99 the 99th percentile of the recorded values
+	 * @param max the maximum of the recorded values
+	 */
+	@ConstructorProperties({ "formatterId", "mimeType", "metric", "unit", "count", "mean", "p50", "p90", "p99", "max" })
+	public FormatterMetricsRow(String formatterId, String mimeType, String metric, String unit, long count, double mean, double p50, double p90, double p99, double max) {
+		this.formatterId = formatterId;
+		this.mimeType = mimeType;
+		this.metric = metric;
+		this.unit = unit;
+		this.count = count;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.max = max;
+	}
+
+	/**
+	 * Returns the ID of the formatter.
+	 *
+	 * @return the ID of the formatter
+	 */
+	public String getFormatterId() {
+		return formatterId;
+	}
+
+	/**
+	 * Returns the MIME type of the formatted documents.
+	 *
+	 * @return the MIME type of the formatted documents
+	 */
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	/**
+	 * Returns the name of the metric, which is the name of a {@link FormatterMetrics.Phase} or one of
+	 * {@code INPUT_SIZE}, {@code REGIONS}, {@code FAILURES} and {@code FALLBACKS}.
+	 *
+	 * @return the name of the metric
+	 */
+	public String getMetric() {
+		return metric;
+	}
+
+	/**
+	 * Returns the unit of the values.
+	 *
+	 * @return the unit of the values
+	 */
+	public String getUnit() {
+		return unit;
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 *
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the arithmetic mean of the recorded values.
+	 *
+	 * @return the arithmetic mean of the recorded values
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Returns the median of the recorded values.
+	 *
+	 * @return the median of the recorded values
+	 */
+	public double getP50() {
+		return p50;
+	}
+
+	/**
+	 * Returns the 90th percentile of the recorded values.
+	 *
+	 * @return the 90th percentile of the recorded values
+	 */
+	public double getP90() {
+		return p90;
+	}
+
+	/**
+	 * Returns the 99th percentile of the recorded values.
+	 *
+	 * @return the 99th percentile of the recorded values
+	 */
+	public double getP99() {
+		return p99;
+	}
+
+	/**
+	 * Returns the maximum of the recorded values.
+	 *
+	 * @return the maximum of the recorded values
+	 */
+	public double getMax() {
+		return max;
+	}
+}
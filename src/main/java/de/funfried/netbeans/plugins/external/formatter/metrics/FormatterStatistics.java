@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.netbeans.api.annotations.common.NonNull;
+
+/**
+ * The performance metrics of a single formatter for a single MIME type.
+ *
+ * @author bahlef
+ */
+final class FormatterStatistics {
+	/** The number of nanoseconds per millisecond, times are recorded in nanoseconds but reported in milliseconds. */
+	private static final double NANOS_PER_MILLI = 1_000_000.0d;
+
+	/** The ID of the formatter. */
+	private final String formatterId;
+
+	/** The MIME type of the formatted documents. */
+	private final String mimeType;
+
+	/** The {@link Histogram}s of the times per {@link FormatterMetrics.Phase}. */
+	private final Histogram[] phases = new Histogram[FormatterMetrics.Phase.values().length];
+
+	/** The {@link Histogram} of the sizes of the formatted documents. */
+	private final Histogram inputSizes = new Histogram();
+
+	/** The {@link Histogram} of the number of regions which should be formatted, {@code 0} for the whole document. */
+	private final Histogram regionCounts = new Histogram();
+
+	/** The number of failed formattings. */
+	private final LongAdder failures = new LongAdder();
+
+	/** The number of formattings which were delegated to the NetBeans formatter. */
+	private final LongAdder fallbacks = new LongAdder();
+
+	/** The number of cancelled formattings. */
+	private final LongAdder cancellations = new LongAdder();
+
+	/**
+	 * Creates a new instance of {@link FormatterStatistics}.
+	 *
+	 * @param formatterId the ID of the formatter
+	 * @param mimeType the MIME type of the formatted documents
+	 */
+	FormatterStatistics(String formatterId, String mimeType) {
+		this.formatterId = formatterId;
+		this.mimeType = mimeType;
+
+		for (int i = 0; i < phases.length; i++) {
+			phases[i] = new Histogram();
+		}
+	}
+
+	/**
+	 * Records the time of the given {@code phase}.
+	 *
+	 * @param phase the {@link FormatterMetrics.Phase}
+	 * @param nanos the elapsed time in nanoseconds
+	 */
+	void record(FormatterMetrics.Phase phase, long nanos) {
+		phases[phase.ordinal()].record(nanos);
+	}
+
+	/**
+	 * Records the size and the number of regions of a formatted document.
+	 *
+	 * @param inputSize the size of the document
+	 * @param regionCount the number of regions which should be formatted, {@code 0} for the whole document
+	 */
+	void recordInput(int inputSize, int regionCount) {
+		inputSizes.record(inputSize);
+		regionCounts.record(regionCount);
+	}
+
+	/**
+	 * Counts a failed formatting.
+	 */
+	void failed() {
+		failures.increment();
+	}
+
+	/**
+	 * Counts a formatting which was delegated to the NetBeans formatter.
+	 */
+	void fallback() {
+		fallbacks.increment();
+	}
+
+	/**
+	 * Counts a cancelled formatting.
+	 */
+	void cancelled() {
+		cancellations.increment();
+	}
+
+	/**
+	 * Returns a snapshot of all metrics which contain at least one value.
+	 *
+	 * @return a snapshot of all metrics which contain at least one value
+	 */
+	@NonNull
+	List<FormatterMetricsRow> getRows() {
+		List<FormatterMetricsRow> rows = new ArrayList<>();
+
+		for (FormatterMetrics.Phase phase : FormatterMetrics.Phase.values()) {
+			addRow(rows, phase.name(), "ms", phases[phase.ordinal()], NANOS_PER_MILLI);
+		}
+
+		addRow(rows, "INPUT_SIZE", "chars", inputSizes, 1.0d);
+		addRow(rows, "REGIONS", "regions", regionCounts, 1.0d);
+		addCount(rows, "FAILURES", failures.sum());
+		addCount(rows, "FALLBACKS", fallbacks.sum());
+		addCount(rows, "CANCELLATIONS", cancellations.sum());
+
+		return rows;
+	}
+
+	private void addRow(List<FormatterMetricsRow> rows, String metric, String unit, Histogram histogram, double divisor) {
+		long count = histogram.getCount();
+		if (count > 0L) {
+			rows.add(new FormatterMetricsRow(formatterId, mimeType, metric, unit, count, histogram.getMean() / divisor, histogram.getPercentile(0.5d) / divisor,
+					histogram.getPercentile(0.9d) / divisor, histogram.getPercentile(0.99d) / divisor, histogram.getMax() / divisor));
+		}
+	}
+
+	private void addCount(List<FormatterMetricsRow> rows, String metric, long count) {
+		if (count > 0L) {
+			rows.add(new FormatterMetricsRow(formatterId, mimeType, metric, "formattings", count, 0.0d, 0.0d, 0.0d, 0.0d, 0.0d));
+		}
+	}
+
+	/**
+	 * Removes all recorded metrics.
+	 */
+	void reset() {
+		for (Histogram histogram : phases) {
+			histogram.reset();
+		}
+
+		inputSizes.reset();
+		regionCounts.reset();
+		failures.reset();
+		fallbacks.reset();
+		cancellations.reset();
+	}
+}
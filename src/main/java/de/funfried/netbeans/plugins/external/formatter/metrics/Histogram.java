@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative {@code long} values. The values are counted in log-linear
+ * buckets, each power of two is split into {@value #SUB_BUCKETS} buckets, so percentiles are
+ * reported with a relative error of at most 12.5%. The count, sum and maximum are exact. Recording
+ * a value never blocks, so instances of this class can be used by any number of threads.
+ *
+ * @author bahlef
+ */
+public final class Histogram {
+	/** The number of buckets per power of two. */
+	private static final int SUB_BUCKETS = 8;
+
+	/** The number of bits which are needed to address the {@link #SUB_BUCKETS}. */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	/** The number of buckets which are needed to count all non-negative {@code long} values. */
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	/** The counts per bucket. */
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	/** The number of recorded values. */
+	private final LongAdder count = new LongAdder();
+
+	/** The sum of all recorded values. */
+	private final LongAdder sum = new LongAdder();
+
+	/** The maximum of all recorded values. */
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+	/**
+	 * Records the given {@code value}, negative values are recorded as {@code 0}.
+	 *
+	 * @param value the value to record
+	 */
+	public void record(long value) {
+		long v = Math.max(0L, value);
+
+		buckets.incrementAndGet(getBucket(v));
+		count.increment();
+		sum.add(v);
+		max.accumulate(v);
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 *
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the sum of all recorded values.
+	 *
+	 * @return the sum of all recorded values
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * Returns the maximum of all recorded values.
+	 *
+	 * @return the maximum of all recorded values, or {@code 0} if no value was recorded
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the arithmetic mean of all recorded values.
+	 *
+	 * @return the arithmetic mean of all recorded values, or {@code 0} if no value was recorded
+	 */
+	public double getMean() {
+		long c = getCount();
+		if (c == 0L) {
+			return 0.0d;
+		}
+
+		return (double) getSum() / c;
+	}
+
+	/**
+	 * Returns the estimated value below or at which the given {@code percentile} of all recorded
+	 * values lie. The returned value is the upper bound of the bucket which contains the percentile,
+	 * but never larger than the {@link #getMax() maximum}.
+	 *
+	 * @param percentile the percentile between {@code 0.0} and {@code 1.0}, e.g. {@code 0.99}
+	 *
+	 * @return the estimated value of the given {@code percentile}, or {@code 0} if no value was recorded
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long total = 0L;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+
+		if (total == 0L) {
+			return 0L;
+		}
+
+		long rank = Math.max(1L, (long) Math.ceil(Math.min(1.0d, Math.max(0.0d, percentile)) * total));
+		long seen = 0L;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(getUpperBound(i), getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * Removes all recorded values. Values which are recorded concurrently may be partially kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0L);
+		}
+
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+
+	/**
+	 * Returns the index of the bucket for the given non-negative {@code value}.
+	 *
+	 * @param value the non-negative value
+	 *
+	 * @return the index of the bucket
+	 */
+	static int getBucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Returns the largest value which is counted in the bucket with the given {@code index}.
+	 *
+	 * @param index the index of the bucket
+	 *
+	 * @return the largest value of the bucket
+	 */
+	static long getUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int subBucket = index % SUB_BUCKETS;
+		int shift = exponent - SUB_BUCKET_BITS;
+
+		return ((long) (SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1L;
+	}
+}
@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+
+/**
+ * Package containing the performance metrics of the external formatters.
+ */
+package de.funfried.netbeans.plugins.external.formatter.metrics;
@@ -23,6 +23,7 @@ import org.openide.awt.StatusDisplayer;
 
 import de.funfried.netbeans.plugins.external.formatter.AbstractFormatJob;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -59,7 +60,14 @@ class DBeaverFormatterJob extends AbstractFormatJob {
 		String code = getCode();
 
 		try {
-			String formattedContent = formatter.format(code, getProperties(pref));
+			long formatStart = FormatterMetrics.startTimer();
+
+			String formattedContent;
+			try {
+				formattedContent = formatter.format(code, getProperties(pref));
+			} finally {
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, formatStart);
+			}
 
 			if (setFormattedCode(code, formattedContent)) {
 				SwingUtilities.invokeLater(() -> {
@@ -9,6 +9,8 @@
  */
 package de.funfried.netbeans.plugins.external.formatter.sql.dbeaver;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import org.netbeans.api.annotations.common.CheckForNull;
@@ -16,6 +18,7 @@ import org.netbeans.api.annotations.common.CheckForNull;
 import com.diffplug.spotless.sql.dbeaver.DBeaverSQLFormatterConfiguration;
 import com.diffplug.spotless.sql.dbeaver.SQLTokenizedFormatter;
 
+import de.funfried.netbeans.plugins.external.formatter.FormatterEnginePool;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
 
 /**
@@ -24,12 +27,33 @@ import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFail
  * @author bahlef
  */
 public final class DBeaverFormatterWrapper {
+	/**
+	 * The parsed {@link DBeaverSQLFormatterConfiguration}s per configuration, which are immutable and
+	 * therefore shared between all threads. The {@link SQLTokenizedFormatter} itself is not reused, because
+	 * it collects the statement delimiters of each formatting and never clears them.
+	 */
+	private final FormatterEnginePool<Map<Object, Object>, DBeaverSQLFormatterConfiguration> configurations = FormatterEnginePool.shared(config -> {
+		Properties properties = new Properties();
+		properties.putAll(config);
+
+		return new DBeaverSQLFormatterConfiguration(properties);
+	});
+
 	/**
 	 * Package private Constructor for creating a new instance of {@link DBeaverFormatterWrapper}.
 	 */
 	DBeaverFormatterWrapper() {
 	}
 
+	/**
+	 * Returns the {@link FormatterEnginePool} of the {@link DBeaverSQLFormatterConfiguration}s.
+	 *
+	 * @return the {@link FormatterEnginePool} of the {@link DBeaverSQLFormatterConfiguration}s
+	 */
+	FormatterEnginePool<Map<Object, Object>, DBeaverSQLFormatterConfiguration> getConfigurations() {
+		return configurations;
+	}
+
 	/**
 	 * Formats the given {@code code} with the given configurations and returns
 	 * the formatted code.
@@ -48,8 +72,7 @@ public final class DBeaverFormatterWrapper {
 		}
 
 		try {
-			DBeaverSQLFormatterConfiguration configuration = new DBeaverSQLFormatterConfiguration(properties);
-			SQLTokenizedFormatter sqlTokenizedFormatter = new SQLTokenizedFormatter(configuration);
+			SQLTokenizedFormatter sqlTokenizedFormatter = new SQLTokenizedFormatter(configurations.get(properties == null ? Map.of() : new HashMap<>(properties)));
 			return sqlTokenizedFormatter.format(code);
 		} catch (Exception ex) {
 			throw new FormattingFailedException(ex);
@@ -25,6 +25,7 @@ import com.manticore.jsqlformatter.JSQLFormatter.FormattingOption;
 
 import de.funfried.netbeans.plugins.external.formatter.AbstractFormatJob;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -63,7 +64,15 @@ class JSQLFormatterJob extends AbstractFormatJob {
 		try {
 			//@todo: hand over the formatting options
 			//@todo: obey the selected region
-			String formattedContent = formatter.format(code, getOptions(pref));
+
+			long formatStart = FormatterMetrics.startTimer();
+
+			String formattedContent;
+			try {
+				formattedContent = formatter.format(code, getOptions(pref));
+			} finally {
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, formatStart);
+			}
 
 			if (setFormattedCode(code, formattedContent)) {
 				SwingUtilities.invokeLater(() -> {
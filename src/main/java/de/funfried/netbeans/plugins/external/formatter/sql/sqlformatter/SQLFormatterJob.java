@@ -26,6 +26,7 @@ import com.github.vertical_blank.sqlformatter.languages.Dialect;
 
 import de.funfried.netbeans.plugins.external.formatter.AbstractFormatJob;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -62,7 +63,14 @@ class SQLFormatterJob extends AbstractFormatJob {
 		String code = getCode();
 
 		try {
-			String formattedContent = formatter.format(code, getDialect(pref), getFormatConfig(pref));
+			long formatStart = FormatterMetrics.startTimer();
+
+			String formattedContent;
+			try {
+				formattedContent = formatter.format(code, getDialect(pref), getFormatConfig(pref));
+			} finally {
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, formatStart);
+			}
 
 			if (setFormattedCode(code, formattedContent)) {
 				SwingUtilities.invokeLater(() -> {
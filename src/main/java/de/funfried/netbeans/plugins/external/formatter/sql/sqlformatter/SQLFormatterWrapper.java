@@ -15,6 +15,7 @@ import com.github.vertical_blank.sqlformatter.SqlFormatter;
 import com.github.vertical_blank.sqlformatter.core.FormatConfig;
 import com.github.vertical_blank.sqlformatter.languages.Dialect;
 
+import de.funfried.netbeans.plugins.external.formatter.FormatterEnginePool;
 import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
 
 /**
@@ -23,6 +24,9 @@ import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFail
  * @author bahlef
  */
 public final class SQLFormatterWrapper {
+	/** The thread safe {@link SqlFormatter.Formatter}s per {@link Dialect}. */
+	private final FormatterEnginePool<Dialect, SqlFormatter.Formatter> formatters = FormatterEnginePool.shared(SqlFormatter::of);
+
 	/**
 	 * Package private Constructor for creating a new instance of {@link SQLFormatterWrapper}.
 	 */
@@ -48,7 +52,7 @@ public final class SQLFormatterWrapper {
 		}
 
 		try {
-			return SqlFormatter.of(dialect).format(code, formatConfig);
+			return formatters.get(dialect).format(code, formatConfig);
 		} catch (Exception ex) {
 			throw new FormattingFailedException(ex);
 		}
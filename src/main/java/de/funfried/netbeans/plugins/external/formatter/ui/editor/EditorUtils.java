@@ -13,6 +13,7 @@ package de.funfried.netbeans.plugins.external.formatter.ui.editor;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.prefs.Preferences;
 
 import javax.swing.text.Document;
 import javax.swing.text.StyledDocument;
@@ -25,6 +26,9 @@ import org.netbeans.modules.editor.indent.spi.Context;
 import org.openide.loaders.DataObject;
 import org.openide.text.NbDocument;
 
+import de.funfried.netbeans.plugins.external.formatter.FormatterServiceDelegate;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
+
 /**
  *
  * @author bahlef
@@ -99,4 +103,49 @@ public class EditorUtils {
 
 		return styledDocument;
 	}
+
+	/**
+	 * Formats the {@link Context#document()} of the given {@link Context} using the active external
+	 * formatter, either off the editor thread if asynchronous formatting is enabled (see
+	 * {@link #isAsyncFormattingEnabled(Document)}) or synchronously. Only used by the reformat task,
+	 * indenting (e.g. after typing a new line) is always done synchronously, because the editor expects
+	 * the indentation to be done when the task returns.
+	 *
+	 * @param context the {@link Context}
+	 *
+	 * @return {@code true} if and only if a external formatter was found to handle the document,
+	 *         otherwise {@code false}
+	 */
+	public static boolean formatWithExternalFormatter(Context context) {
+		Document document = context.document();
+		StyledDocument styledDocument = toStyledDocument(document);
+		SortedSet<Pair<Integer, Integer>> changedElements = getChangedElements(context);
+
+		FormatterServiceDelegate delegate = FormatterServiceDelegate.getInstance();
+		if (styledDocument != null && isAsyncFormattingEnabled(document)) {
+			return delegate.formatAsync(styledDocument, changedElements);
+		}
+
+		return delegate.format(styledDocument, changedElements);
+	}
+
+	/**
+	 * Returns {@code true} if the given {@link Document} should be formatted off the editor thread. This
+	 * is the case if the asynchronous formatting is activated and the {@link Document} is not formatted
+	 * while it is saved (format on save), where blocking until the formatting is done is expected.
+	 *
+	 * @param document the {@link Document}
+	 *
+	 * @return {@code true} if the given {@link Document} should be formatted off the editor thread,
+	 *         otherwise {@code false}
+	 */
+	public static boolean isAsyncFormattingEnabled(Document document) {
+		if (SaveInProgressMarker.isSaveInProgress(document)) {
+			return false;
+		}
+
+		Preferences prefs = Settings.getActivePreferences(document);
+
+		return prefs.getBoolean(Settings.ASYNC_FORMATTING, false);
+	}
 }
@@ -33,7 +33,6 @@ import org.openide.awt.NotificationDisplayer;
 import org.openide.awt.StatusDisplayer;
 
 import de.funfried.netbeans.plugins.external.formatter.FormatterServiceDelegate;
-import de.funfried.netbeans.plugins.external.formatter.MimeType;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -64,30 +63,26 @@ public class ExternalFormatterIndentTaskFactory implements IndentTask.Factory {
 			return netbeansDefaultTask;
 		}
 
-		MimeType mimeType = MimeType.getMimeType(document);
-		if (mimeType != null) {
-			Preferences prefs = Settings.getActivePreferences(document);
-			if (Settings.DEFAULT_FORMATTER.equals(prefs.get(Settings.ENABLED_FORMATTER_PREFIX + mimeType.toString(), Settings.DEFAULT_FORMATTER))) {
-				IndentTask wrapper = new IndentTask() {
-					/**
-					 * {@inheritDoc}
-					 */
-					@Override
-					public void reindent() throws BadLocationException {
-						formatWithNetBeansIndenter(netbeansDefaultTask, document);
-					}
+		if (FormatterServiceDelegate.getInstance().isNetBeansFormatterActivated(document)) {
+			IndentTask wrapper = new IndentTask() {
+				/**
+				 * {@inheritDoc}
+				 */
+				@Override
+				public void reindent() throws BadLocationException {
+					formatWithNetBeansIndenter(netbeansDefaultTask, document);
+				}
 
-					/**
-					 * {@inheritDoc}
-					 */
-					@Override
-					public ExtraLock indentLock() {
-						return netbeansDefaultTask.indentLock();
-					}
-				};
+				/**
+				 * {@inheritDoc}
+				 */
+				@Override
+				public ExtraLock indentLock() {
+					return netbeansDefaultTask.indentLock();
+				}
+			};
 
-				return wrapper;
-			}
+			return wrapper;
 		}
 
 		return new IndentTask() {
@@ -32,7 +32,6 @@ import org.openide.awt.NotificationDisplayer;
 import org.openide.awt.StatusDisplayer;
 
 import de.funfried.netbeans.plugins.external.formatter.FormatterServiceDelegate;
-import de.funfried.netbeans.plugins.external.formatter.MimeType;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -58,34 +57,30 @@ public class ExternalFormatterReformatTaskFactory implements ReformatTask.Factor
 		ReformatTask.Factory netbeansDefaultFactory = getDefaultForMimePath(context.mimePath());
 		ReformatTask netbeansDefaultTask = netbeansDefaultFactory.createTask(context);
 
-		MimeType mimeType = MimeType.getMimeType(document);
-		if (mimeType != null) {
-			Preferences prefs = Settings.getActivePreferences(document);
-			if (Settings.DEFAULT_FORMATTER.equals(prefs.get(Settings.ENABLED_FORMATTER_PREFIX + mimeType.toString(), Settings.DEFAULT_FORMATTER))) {
-				ReformatTask wrapper = new ReformatTask() {
-					/**
-					 * {@inheritDoc}
-					 */
-					@Override
-					public void reformat() throws BadLocationException {
-						formatWithNetBeansFormatter(netbeansDefaultTask, document);
-					}
-
-					/**
-					 * {@inheritDoc}
-					 */
-					@Override
-					public ExtraLock reformatLock() {
-						if (netbeansDefaultTask != null) {
-							return netbeansDefaultTask.reformatLock();
-						}
+		if (FormatterServiceDelegate.getInstance().isNetBeansFormatterActivated(document)) {
+			ReformatTask wrapper = new ReformatTask() {
+				/**
+				 * {@inheritDoc}
+				 */
+				@Override
+				public void reformat() throws BadLocationException {
+					formatWithNetBeansFormatter(netbeansDefaultTask, document);
+				}
 
-						return null;
+				/**
+				 * {@inheritDoc}
+				 */
+				@Override
+				public ExtraLock reformatLock() {
+					if (netbeansDefaultTask != null) {
+						return netbeansDefaultTask.reformatLock();
 					}
-				};
 
-				return wrapper;
-			}
+					return null;
+				}
+			};
+
+			return wrapper;
 		}
 
 		return new ReformatTask() {
@@ -94,7 +89,7 @@ public class ExternalFormatterReformatTaskFactory implements ReformatTask.Factor
 			 */
 			@Override
 			public void reformat() throws BadLocationException {
-				if (!FormatterServiceDelegate.getInstance().format(EditorUtils.toStyledDocument(document), EditorUtils.getChangedElements(context))) {
+				if (!EditorUtils.formatWithExternalFormatter(context)) {
 					formatWithNetBeansFormatter(netbeansDefaultTask, document);
 				}
 			}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.ui.editor;
+
+import javax.swing.text.Document;
+
+import org.netbeans.spi.editor.document.OnSaveTask;
+
+/**
+ * {@link OnSaveTask} which marks a {@link Document} as being saved while the on save tasks run, e.g.
+ * the reformat on save of NetBeans. All on save tasks of a {@link Document} are performed inside the
+ * nested {@link #runLocked(Runnable)} calls of all tasks, so the mark is set whenever a reformat is
+ * triggered by a save.
+ *
+ * @author bahlef
+ */
+public class SaveInProgressMarker implements OnSaveTask {
+	/** Document property key which is set to {@link Boolean#TRUE} while the {@link Document} is saved. */
+	static final String SAVE_IN_PROGRESS_PROPERTY = "externalFormatter.saveInProgress";
+
+	/** The {@link Document} which is saved. */
+	private final Document document;
+
+	/**
+	 * Creates a new instance of {@link SaveInProgressMarker}.
+	 *
+	 * @param document the {@link Document} which is saved
+	 */
+	SaveInProgressMarker(Document document) {
+		this.document = document;
+	}
+
+	/**
+	 * Returns {@code true} if the given {@link Document} is currently saved.
+	 *
+	 * @param document the {@link Document}
+	 *
+	 * @return {@code true} if the given {@link Document} is currently saved, otherwise {@code false}
+	 */
+	public static boolean isSaveInProgress(Document document) {
+		return document != null && Boolean.TRUE.equals(document.getProperty(SAVE_IN_PROGRESS_PROPERTY));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void performTask() {
+		// only marks the document while the other tasks are performed
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void runLocked(Runnable run) {
+		Object previous = document.getProperty(SAVE_IN_PROGRESS_PROPERTY);
+		document.putProperty(SAVE_IN_PROGRESS_PROPERTY, Boolean.TRUE);
+
+		try {
+			run.run();
+		} finally {
+			document.putProperty(SAVE_IN_PROGRESS_PROPERTY, previous);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean cancel() {
+		return true;
+	}
+
+	/**
+	 * {@link OnSaveTask.Factory} of the {@link SaveInProgressMarker}.
+	 */
+	public static class Factory implements OnSaveTask.Factory {
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public OnSaveTask createTask(Context context) {
+			return new SaveInProgressMarker(context.getDocument());
+		}
+	}
+}
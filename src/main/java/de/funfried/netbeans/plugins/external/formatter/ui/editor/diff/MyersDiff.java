@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.ui.editor.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Linear space implementation of the Myers O(ND) difference algorithm on {@code int} sequences, which
+ * splits the sequences at the middle snake and recursively diffs both halves (the same approach as
+ * used by Google's diff-match-patch bisect).
+ *
+ * <p>
+ * To keep large inputs fast, larger ranges are first split at elements which occur exactly once in
+ * both sequences (the longest increasing subsequence of them, like patience/histogram diff does), and
+ * the middle snake search gives up and reports the whole range as changed once the edit distance
+ * exceeds {@link #MAX_EDIT_COST}.
+ * </p>
+ *
+ * @author bahlef
+ */
+final class MyersDiff {
+	/** Minimum number of elements (of both sequences) of a range before it is split at unique elements. */
+	static final int MIN_ANCHOR_LENGTH = 64;
+
+	/** Maximum edit distance the middle snake search tries before it reports the whole range as changed. */
+	static final int MAX_EDIT_COST = 2048;
+
+	/**
+	 * Private constructor due to static methods only.
+	 */
+	private MyersDiff() {
+	}
+
+	/**
+	 * Computes the differences between the sequences {@code a} and {@code b} and returns them as
+	 * a {@link List} of hunks in ascending order. Each hunk is an array of four values
+	 * {@code [aStart, aEnd, bStart, bEnd]} (end exclusive) which means that the elements of
+	 * {@code a} within {@code [aStart, aEnd)} have to be replaced by the elements of {@code b}
+	 * within {@code [bStart, bEnd)}.
+	 *
+	 * @param a the first sequence
+	 * @param b the second sequence
+	 *
+	 * @return the differences as a {@link List} of hunks in ascending order
+	 */
+	static List<int[]> diff(int[] a, int[] b) {
+		List<int[]> hunks = new ArrayList<>();
+
+		diff(a, 0, a.length, b, 0, b.length, hunks);
+
+		return hunks;
+	}
+
+	private static void diff(int[] a, int aStart, int aEnd, int[] b, int bStart, int bEnd, List<int[]> hunks) {
+		// trim common prefix
+		while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+			aStart++;
+			bStart++;
+		}
+
+		// trim common suffix
+		while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1]) {
+			aEnd--;
+			bEnd--;
+		}
+
+		if (aStart == aEnd && bStart == bEnd) {
+			return;
+		}
+
+		if (aStart == aEnd || bStart == bEnd) {
+			addHunk(hunks, aStart, aEnd, bStart, bEnd);
+
+			return;
+		}
+
+		if ((aEnd - aStart) + (bEnd - bStart) >= MIN_ANCHOR_LENGTH && splitAtUniqueElements(a, aStart, aEnd, b, bStart, bEnd, hunks)) {
+			return;
+		}
+
+		bisect(a, aStart, aEnd, b, bStart, bEnd, hunks);
+	}
+
+	/**
+	 * Splits the given ranges at the longest increasing subsequence of elements which occur exactly once
+	 * in both ranges and diffs the gaps between them.
+	 *
+	 * @return {@code true} if the ranges were split and diffed, {@code false} if there are no unique
+	 *         elements in common
+	 */
+	private static boolean splitAtUniqueElements(int[] a, int aStart, int aEnd, int[] b, int bStart, int bEnd, List<int[]> hunks) {
+		// [occurrences in a, occurrences in b, index in a, index in b]
+		Map<Integer, int[]> occurrences = new HashMap<>();
+		for (int i = aStart; i < aEnd; i++) {
+			int[] occurrence = occurrences.computeIfAbsent(a[i], k -> new int[4]);
+			occurrence[0]++;
+			occurrence[2] = i;
+		}
+
+		for (int i = bStart; i < bEnd; i++) {
+			int[] occurrence = occurrences.get(b[i]);
+			if (occurrence != null) {
+				occurrence[1]++;
+				occurrence[3] = i;
+			}
+		}
+
+		List<int[]> uniques = new ArrayList<>();
+		for (int i = aStart; i < aEnd; i++) {
+			int[] occurrence = occurrences.get(a[i]);
+			if (occurrence[0] == 1 && occurrence[1] == 1) {
+				uniques.add(new int[] { occurrence[2], occurrence[3] });
+			}
+		}
+
+		if (uniques.isEmpty()) {
+			return false;
+		}
+
+		List<int[]> anchors = longestIncreasingSubsequence(uniques);
+
+		int aPos = aStart;
+		int bPos = bStart;
+		for (int[] anchor : anchors) {
+			diff(a, aPos, anchor[0], b, bPos, anchor[1], hunks);
+
+			aPos = anchor[0] + 1;
+			bPos = anchor[1] + 1;
+		}
+
+		diff(a, aPos, aEnd, b, bPos, bEnd, hunks);
+
+		return true;
+	}
+
+	/**
+	 * Returns the longest subsequence of the given {@code pairs} (which are ordered by their first value)
+	 * whose second values are increasing, using patience sorting.
+	 */
+	private static List<int[]> longestIncreasingSubsequence(List<int[]> pairs) {
+		int[] tails = new int[pairs.size()];
+		int[] predecessors = new int[pairs.size()];
+		int length = 0;
+
+		for (int i = 0; i < pairs.size(); i++) {
+			int value = pairs.get(i)[1];
+
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (pairs.get(tails[mid])[1] < value) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+
+			predecessors[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == length) {
+				length++;
+			}
+		}
+
+		int[][] ret = new int[length][];
+		for (int i = length - 1, index = tails[length - 1]; i >= 0; i--, index = predecessors[index]) {
+			ret[i] = pairs.get(index);
+		}
+
+		return Arrays.asList(ret);
+	}
+
+	private static void bisect(int[] a, int aStart, int aEnd, int[] b, int bStart, int bEnd, List<int[]> hunks) {
+		int aLength = aEnd - aStart;
+		int bLength = bEnd - bStart;
+		int maxD = Math.min((aLength + bLength + 1) / 2, MAX_EDIT_COST);
+		int vOffset = maxD;
+		int vLength = 2 * maxD + 2;
+
+		int[] v1 = new int[vLength];
+		int[] v2 = new int[vLength];
+		Arrays.fill(v1, -1);
+		Arrays.fill(v2, -1);
+		v1[vOffset + 1] = 0;
+		v2[vOffset + 1] = 0;
+
+		int delta = aLength - bLength;
+		// if the total number of elements is odd, then the front path will collide with the reverse path
+		boolean front = (delta % 2 != 0);
+
+		// offsets for start and end of k loop, prevents mapping of space beyond the grid
+		int k1start = 0;
+		int k1end = 0;
+		int k2start = 0;
+		int k2end = 0;
+
+		for (int d = 0; d < maxD; d++) {
+			// walk the front path one step
+			for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+				int k1Offset = vOffset + k1;
+				int x1;
+				if (k1 == -d || (k1 != d && v1[k1Offset - 1] < v1[k1Offset + 1])) {
+					x1 = v1[k1Offset + 1];
+				} else {
+					x1 = v1[k1Offset - 1] + 1;
+				}
+
+				int y1 = x1 - k1;
+				while (x1 < aLength && y1 < bLength && a[aStart + x1] == b[bStart + y1]) {
+					x1++;
+					y1++;
+				}
+
+				v1[k1Offset] = x1;
+				if (x1 > aLength) {
+					// ran off the right of the graph
+					k1end += 2;
+				} else if (y1 > bLength) {
+					// ran off the bottom of the graph
+					k1start += 2;
+				} else if (front) {
+					int k2Offset = vOffset + delta - k1;
+					if (k2Offset >= 0 && k2Offset < vLength && v2[k2Offset] != -1) {
+						// mirror x2 onto top-left coordinate system
+						int x2 = aLength - v2[k2Offset];
+						if (x1 >= x2) {
+							// overlap detected
+							split(a, aStart, aEnd, b, bStart, bEnd, x1, y1, hunks);
+
+							return;
+						}
+					}
+				}
+			}
+
+			// walk the reverse path one step
+			for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+				int k2Offset = vOffset + k2;
+				int x2;
+				if (k2 == -d || (k2 != d && v2[k2Offset - 1] < v2[k2Offset + 1])) {
+					x2 = v2[k2Offset + 1];
+				} else {
+					x2 = v2[k2Offset - 1] + 1;
+				}
+
+				int y2 = x2 - k2;
+				while (x2 < aLength && y2 < bLength && a[aEnd - x2 - 1] == b[bEnd - y2 - 1]) {
+					x2++;
+					y2++;
+				}
+
+				v2[k2Offset] = x2;
+				if (x2 > aLength) {
+					// ran off the left of the graph
+					k2end += 2;
+				} else if (y2 > bLength) {
+					// ran off the top of the graph
+					k2start += 2;
+				} else if (!front) {
+					int k1Offset = vOffset + delta - k2;
+					if (k1Offset >= 0 && k1Offset < vLength && v1[k1Offset] != -1) {
+						int x1 = v1[k1Offset];
+						int y1 = vOffset + x1 - k1Offset;
+						// mirror x2 onto top-left coordinate system
+						x2 = aLength - x2;
+						if (x1 >= x2) {
+							// overlap detected
+							split(a, aStart, aEnd, b, bStart, bEnd, x1, y1, hunks);
+
+							return;
+						}
+					}
+				}
+			}
+		}
+
+		// no commonality at all, or too expensive to find out
+		addHunk(hunks, aStart, aEnd, bStart, bEnd);
+	}
+
+	private static void split(int[] a, int aStart, int aEnd, int[] b, int bStart, int bEnd, int x, int y, List<int[]> hunks) {
+		diff(a, aStart, aStart + x, b, bStart, bStart + y, hunks);
+		diff(a, aStart + x, aEnd, b, bStart + y, bEnd, hunks);
+	}
+
+	/**
+	 * Adds the given hunk to the given {@link List} of {@code hunks}, merging it with the last hunk if
+	 * both are adjacent.
+	 */
+	private static void addHunk(List<int[]> hunks, int aStart, int aEnd, int bStart, int bEnd) {
+		if (!hunks.isEmpty()) {
+			int[] last = hunks.get(hunks.size() - 1);
+			if (last[1] == aStart && last[3] == bStart) {
+				last[1] = aEnd;
+				last[3] = bEnd;
+
+				return;
+			}
+		}
+
+		hunks.add(new int[] { aStart, aEnd, bStart, bEnd });
+	}
+}
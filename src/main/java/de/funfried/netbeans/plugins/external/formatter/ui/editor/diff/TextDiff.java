@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.ui.editor.diff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.netbeans.api.annotations.common.NonNull;
+
+/**
+ * Creates a minimal list of character level {@link TextEdit}s between two texts. The texts are
+ * first compared line by line (on interned line numbers, so that every line is hashed only once)
+ * using a linear space Myers diff, afterwards the characters inside of each changed hunk are
+ * compared again, so that e.g. a changed indentation only replaces the whitespaces instead of
+ * the whole line.
+ *
+ * @author bahlef
+ */
+public final class TextDiff {
+	/**
+	 * Maximum number of characters (of both texts) inside of a single hunk up to which the characters of
+	 * the hunk are diffed, larger hunks are compared line by line if possible, or otherwise only reduced
+	 * by their common prefix and suffix.
+	 */
+	static final int MAX_CHARACTER_DIFF_LENGTH = 8192;
+
+	/**
+	 * Private constructor due to static methods only.
+	 */
+	private TextDiff() {
+	}
+
+	/**
+	 * Computes the {@link TextEdit}s which transform the {@code original} text into the {@code revised}
+	 * text. The returned {@link TextEdit}s are in ascending order and do not overlap, their offsets are
+	 * relative to the {@code original} text, so they have to be applied from the last to the first
+	 * {@link TextEdit} if they are applied one by one.
+	 *
+	 * @param original the original text
+	 * @param revised the revised text
+	 *
+	 * @return the {@link TextEdit}s in ascending order, or an empty {@link List} if both texts are equal
+	 */
+	@NonNull
+	public static List<TextEdit> diff(String original, String revised) {
+		List<TextEdit> edits = new ArrayList<>();
+		if (original.equals(revised)) {
+			return edits;
+		}
+
+		int[] originalLineOffsets = lineOffsets(original);
+		int[] revisedLineOffsets = lineOffsets(revised);
+
+		Map<String, Integer> lineIds = new HashMap<>();
+		int[] originalLines = internLines(original, originalLineOffsets, lineIds);
+		int[] revisedLines = internLines(revised, revisedLineOffsets, lineIds);
+
+		for (int[] hunk : MyersDiff.diff(originalLines, revisedLines)) {
+			int aStart = originalLineOffsets[hunk[0]];
+			int aEnd = originalLineOffsets[hunk[1]];
+			int bStart = revisedLineOffsets[hunk[2]];
+			int bEnd = revisedLineOffsets[hunk[3]];
+
+			if ((aEnd - aStart) + (bEnd - bStart) <= MAX_CHARACTER_DIFF_LENGTH) {
+				diffCharacters(original, aStart, aEnd, revised, bStart, bEnd, edits);
+			} else if (hunk[1] - hunk[0] == hunk[3] - hunk[2]) {
+				// e.g. the indentation of a large block changed, compare the lines pairwise
+				for (int i = 0; i < hunk[1] - hunk[0]; i++) {
+					int lineStartA = originalLineOffsets[hunk[0] + i];
+					int lineEndA = originalLineOffsets[hunk[0] + i + 1];
+					int lineStartB = revisedLineOffsets[hunk[2] + i];
+					int lineEndB = revisedLineOffsets[hunk[2] + i + 1];
+
+					if ((lineEndA - lineStartA) + (lineEndB - lineStartB) <= MAX_CHARACTER_DIFF_LENGTH) {
+						diffCharacters(original, lineStartA, lineEndA, revised, lineStartB, lineEndB, edits);
+					} else {
+						trimAndReplace(original, lineStartA, lineEndA, revised, lineStartB, lineEndB, edits);
+					}
+				}
+			} else {
+				trimAndReplace(original, aStart, aEnd, revised, bStart, bEnd, edits);
+			}
+		}
+
+		return edits;
+	}
+
+	/**
+	 * Returns the start offsets of all lines of the given {@code text}, followed by the length of the
+	 * {@code text}, so that line {@code i} spans from {@code offsets[i]} to {@code offsets[i + 1]}
+	 * including its line break.
+	 */
+	private static int[] lineOffsets(String text) {
+		int lines = 0;
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			if (text.charAt(i) == '\n') {
+				lines++;
+			}
+		}
+
+		if (length > 0 && text.charAt(length - 1) != '\n') {
+			lines++;
+		}
+
+		int[] offsets = new int[lines + 1];
+		int line = 1;
+		for (int i = 0; i < length; i++) {
+			if (text.charAt(i) == '\n' && line < lines) {
+				offsets[line++] = i + 1;
+			}
+		}
+
+		offsets[lines] = length;
+
+		return offsets;
+	}
+
+	/**
+	 * Maps every line of the given {@code text} to an unique {@code int} identifier, equal lines of both
+	 * texts share the same identifier.
+	 */
+	private static int[] internLines(String text, int[] lineOffsets, Map<String, Integer> lineIds) {
+		int[] lines = new int[lineOffsets.length - 1];
+		for (int i = 0; i < lines.length; i++) {
+			String line = text.substring(lineOffsets[i], lineOffsets[i + 1]);
+
+			Integer id = lineIds.get(line);
+			if (id == null) {
+				id = lineIds.size();
+				lineIds.put(line, id);
+			}
+
+			lines[i] = id;
+		}
+
+		return lines;
+	}
+
+	private static void diffCharacters(String a, int aStart, int aEnd, String b, int bStart, int bEnd, List<TextEdit> edits) {
+		int[] aChars = toCharacters(a, aStart, aEnd);
+		int[] bChars = toCharacters(b, bStart, bEnd);
+
+		for (int[] hunk : MyersDiff.diff(aChars, bChars)) {
+			addEdit(edits, aStart + hunk[0], hunk[1] - hunk[0], b.substring(bStart + hunk[2], bStart + hunk[3]));
+		}
+	}
+
+	private static void trimAndReplace(String a, int aStart, int aEnd, String b, int bStart, int bEnd, List<TextEdit> edits) {
+		while (aStart < aEnd && bStart < bEnd && a.charAt(aStart) == b.charAt(bStart)) {
+			aStart++;
+			bStart++;
+		}
+
+		while (aStart < aEnd && bStart < bEnd && a.charAt(aEnd - 1) == b.charAt(bEnd - 1)) {
+			aEnd--;
+			bEnd--;
+		}
+
+		if (aStart < aEnd || bStart < bEnd) {
+			addEdit(edits, aStart, aEnd - aStart, b.substring(bStart, bEnd));
+		}
+	}
+
+	private static int[] toCharacters(String text, int start, int end) {
+		int[] chars = new int[end - start];
+		for (int i = start; i < end; i++) {
+			chars[i - start] = text.charAt(i);
+		}
+
+		return chars;
+	}
+
+	/**
+	 * Adds a new {@link TextEdit} to the given {@code edits}, merging it with the last {@link TextEdit}
+	 * if both are adjacent.
+	 */
+	private static void addEdit(List<TextEdit> edits, int offset, int length, String text) {
+		if (!edits.isEmpty()) {
+			int lastIndex = edits.size() - 1;
+			TextEdit last = edits.get(lastIndex);
+			if (last.getOffset() + last.getLength() == offset) {
+				edits.set(lastIndex, new TextEdit(last.getOffset(), last.getLength() + length, last.getText() + text));
+
+				return;
+			}
+		}
+
+		edits.add(new TextEdit(offset, length, text));
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.ui.editor.diff;
+
+import java.util.Objects;
+
+import org.netbeans.api.annotations.common.NonNull;
+
+/**
+ * A single character level edit of a text, which replaces {@link #getLength()} characters starting at
+ * {@link #getOffset()} of the original text with {@link #getText()}.
+ *
+ * @author bahlef
+ */
+public final class TextEdit {
+	/** The offset in the original text. */
+	private final int offset;
+
+	/** The number of characters to remove from the original text. */
+	private final int length;
+
+	/** The text to insert at the offset. */
+	private final String text;
+
+	/**
+	 * Package private constructor to create a new instance of {@link TextEdit}.
+	 *
+	 * @param offset the offset in the original text
+	 * @param length the number of characters to remove from the original text
+	 * @param text the text to insert at the offset
+	 */
+	TextEdit(int offset, int length, String text) {
+		this.offset = offset;
+		this.length = length;
+		this.text = text;
+	}
+
+	/**
+	 * Returns the offset in the original text.
+	 *
+	 * @return the offset in the original text
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the number of characters to remove from the original text.
+	 *
+	 * @return the number of characters to remove from the original text
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the text to insert at the offset, maybe empty but never {@code null}.
+	 *
+	 * @return the text to insert at the offset
+	 */
+	@NonNull
+	public String getText() {
+		return text;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(offset, length, text);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+
+		if (!(obj instanceof TextEdit)) {
+			return false;
+		}
+
+		TextEdit other = (TextEdit) obj;
+
+		return offset == other.offset && length == other.length && Objects.equals(text, other.text);
+	}
+
+	@Override
+	public String toString() {
+		return "TextEdit[offset=" + offset + ", length=" + length + ", text=" + text + "]";
+	}
+}
@@ -249,6 +249,9 @@ public class ExternalFormatterPanel extends JPanel implements VerifiableConfigPa
         useIndentationSettingsChkBox = new JCheckBox();
         overrideTabSizeSpn = new JSpinner();
         overrideTabSizeChkBox = new JCheckBox();
+        asyncFormattingChkBox = new JCheckBox();
+        asyncFormattingTimeoutLbl = new JLabel();
+        asyncFormattingTimeoutSpn = new JSpinner();
         formatterOptionsPanel = new JPanel();
         chooseLanguageLbl = new JLabel();
         chooseMimeTypeCmbBox = new JComboBox<>();
@@ -311,6 +314,25 @@ public class ExternalFormatterPanel extends JPanel implements VerifiableConfigPa
             }
         });
 
+        Mnemonics.setLocalizedText(asyncFormattingChkBox, NbBundle.getMessage(ExternalFormatterPanel.class, "ExternalFormatterPanel.asyncFormattingChkBox.text")); // NOI18N
+        asyncFormattingChkBox.setToolTipText(NbBundle.getMessage(ExternalFormatterPanel.class, "ExternalFormatterPanel.asyncFormattingChkBox.toolTipText")); // NOI18N
+        asyncFormattingChkBox.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                asyncFormattingChkBoxActionPerformed(evt);
+            }
+        });
+
+        Mnemonics.setLocalizedText(asyncFormattingTimeoutLbl, NbBundle.getMessage(ExternalFormatterPanel.class, "ExternalFormatterPanel.asyncFormattingTimeoutLbl.text")); // NOI18N
+
+        asyncFormattingTimeoutSpn.setModel(new SpinnerNumberModel(10, 1, 600, 1));
+        asyncFormattingTimeoutSpn.setToolTipText(NbBundle.getMessage(ExternalFormatterPanel.class, "ExternalFormatterPanel.asyncFormattingTimeoutSpn.toolTipText")); // NOI18N
+        asyncFormattingTimeoutSpn.setEnabled(false);
+        asyncFormattingTimeoutSpn.addChangeListener(new ChangeListener() {
+            public void stateChanged(ChangeEvent evt) {
+                asyncFormattingTimeoutSpnStateChanged(evt);
+            }
+        });
+
         formatterOptionsPanel.setLayout(new BorderLayout());
 
         Mnemonics.setLocalizedText(chooseLanguageLbl, NbBundle.getMessage(ExternalFormatterPanel.class, "ExternalFormatterPanel.chooseLanguageLbl.text")); // NOI18N
@@ -349,6 +371,12 @@ public class ExternalFormatterPanel extends JPanel implements VerifiableConfigPa
                             .addGroup(layout.createSequentialGroup()
                                 .addGroup(layout.createParallelGroup(GroupLayout.Alignment.LEADING)
                                     .addComponent(cbShowNotifications)
+                                    .addGroup(layout.createSequentialGroup()
+                                        .addComponent(asyncFormattingChkBox)
+                                        .addGap(18, 18, 18)
+                                        .addComponent(asyncFormattingTimeoutLbl)
+                                        .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
+                                        .addComponent(asyncFormattingTimeoutSpn, GroupLayout.PREFERRED_SIZE, GroupLayout.DEFAULT_SIZE, GroupLayout.PREFERRED_SIZE))
                                     .addGroup(layout.createSequentialGroup()
                                         .addComponent(useIndentationSettingsChkBox)
                                         .addGap(18, 18, 18)
@@ -383,6 +411,11 @@ public class ExternalFormatterPanel extends JPanel implements VerifiableConfigPa
                     .addComponent(overrideTabSizeSpn, GroupLayout.PREFERRED_SIZE, GroupLayout.DEFAULT_SIZE, GroupLayout.PREFERRED_SIZE)
                     .addComponent(overrideTabSizeChkBox))
                 .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
+                    .addComponent(asyncFormattingChkBox)
+                    .addComponent(asyncFormattingTimeoutLbl)
+                    .addComponent(asyncFormattingTimeoutSpn, GroupLayout.PREFERRED_SIZE, GroupLayout.DEFAULT_SIZE, GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(cbShowNotifications)
                 .addGap(13, 13, 13)
                 .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
@@ -516,6 +549,17 @@ public class ExternalFormatterPanel extends JPanel implements VerifiableConfigPa
 		fireChangedListener();
     }//GEN-LAST:event_cbShowNotificationsActionPerformed
 
+    private void asyncFormattingChkBoxActionPerformed(ActionEvent evt) {//GEN-FIRST:event_asyncFormattingChkBoxActionPerformed
+		updateEnabledState();
+		fireChangedListener();
+    }//GEN-LAST:event_asyncFormattingChkBoxActionPerformed
+
+    private void asyncFormattingTimeoutSpnStateChanged(ChangeEvent evt) {//GEN-FIRST:event_asyncFormattingTimeoutSpnStateChanged
+		asyncFormattingTimeoutSpn.setToolTipText(Objects.toString(asyncFormattingTimeoutSpn.getValue(), null));
+
+		fireChangedListener();
+    }//GEN-LAST:event_asyncFormattingTimeoutSpnStateChanged
+
 		/**
 		 * {@inheritDoc}
 		 */
@@ -553,6 +597,10 @@ public class ExternalFormatterPanel extends JPanel implements VerifiableConfigPa
 
 			cbShowNotifications.setSelected(showNotifications);
 
+			asyncFormattingChkBox.setSelected(preferences.getBoolean(Settings.ASYNC_FORMATTING, false));
+			asyncFormattingTimeoutSpn.setValue(preferences.getInt(Settings.ASYNC_FORMATTING_TIMEOUT, Settings.DEFAULT_ASYNC_FORMATTING_TIMEOUT));
+			asyncFormattingTimeoutSpn.setToolTipText(Objects.toString(asyncFormattingTimeoutSpn.getValue(), null));
+
 			updateEnabledState();
 		}
 
@@ -576,6 +624,8 @@ public class ExternalFormatterPanel extends JPanel implements VerifiableConfigPa
 			preferences.putBoolean(Settings.OVERRIDE_TAB_SIZE, overrideTabSizeChkBox.isSelected());
 			preferences.putInt(Settings.OVERRIDE_TAB_SIZE_VALUE, Integer.parseInt(overrideTabSizeSpn.getValue().toString()));
 			preferences.putBoolean(Settings.SHOW_NOTIFICATIONS, cbShowNotifications.isSelected());
+			preferences.putBoolean(Settings.ASYNC_FORMATTING, asyncFormattingChkBox.isSelected());
+			preferences.putInt(Settings.ASYNC_FORMATTING_TIMEOUT, Integer.parseInt(asyncFormattingTimeoutSpn.getValue().toString()));
 
 			try {
 				preferences.flush();
@@ -610,6 +660,9 @@ public class ExternalFormatterPanel extends JPanel implements VerifiableConfigPa
 		}
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
+    private JCheckBox asyncFormattingChkBox;
+    private JLabel asyncFormattingTimeoutLbl;
+    private JSpinner asyncFormattingTimeoutSpn;
     private JLabel btnDonate;
     private JLabel btnVisitHomePage;
     private JCheckBox cbShowNotifications;
@@ -630,6 +683,7 @@ public class ExternalFormatterPanel extends JPanel implements VerifiableConfigPa
 		private void updateEnabledState() {
 			overrideTabSizeChkBox.setEnabled(useIndentationSettingsChkBox.isSelected());
 			overrideTabSizeSpn.setEnabled(overrideTabSizeChkBox.isEnabled() && overrideTabSizeChkBox.isSelected());
+			asyncFormattingTimeoutSpn.setEnabled(asyncFormattingChkBox.isSelected());
 
 			txtProjectSpecificHint.setVisible(project == null);
 		}
@@ -9,6 +9,8 @@
  */
 package de.funfried.netbeans.plugins.external.formatter.ui.options;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.swing.event.ChangeListener;
 
 import org.openide.util.ChangeSupport;
@@ -23,6 +25,9 @@ import org.openide.util.lookup.ServiceProvider;
 public class ExternalFormatterPreferencesChangeSupport {
 	private final ChangeSupport cs;
 
+	/** The number of fired changes, see {@link #getModificationCount()}. */
+	private final AtomicLong modificationCount = new AtomicLong();
+
 	/**
 	 * Creates a new instance of the {@link ExternalFormatterPreferencesChangeSupport}.
 	 */
@@ -43,9 +48,22 @@ public class ExternalFormatterPreferencesChangeSupport {
 	 * Notifies about changes to all registered {@link ChangeListener}s.
 	 */
 	public void fireChange() {
+		modificationCount.incrementAndGet();
+
 		cs.fireChange();
 	}
 
+	/**
+	 * Returns the number of changes fired so far. The count is incremented before the registered
+	 * {@link ChangeListener}s are notified, so caches comparing it are already outdated when any
+	 * listener runs, regardless of the order in which the listeners were registered.
+	 *
+	 * @return the number of changes fired so far
+	 */
+	public long getModificationCount() {
+		return modificationCount.get();
+	}
+
 	/**
 	 * Unregisters a {@link ChangeListener} from this {@link ExternalFormatterPreferencesChangeSupport}.
 	 *
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.ui.options;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.netbeans.spi.options.OptionsPanelController;
+import org.openide.util.HelpCtx;
+import org.openide.util.Lookup;
+import org.openide.util.NbPreferences;
+import org.openide.util.WeakListeners;
+
+/**
+ * {@link OptionsPanelController} implementation for the {@link PerformancePanel}, which is shown next
+ * to the {@link ExternalFormatterPanel}.
+ *
+ * @author bahlef
+ */
+@OptionsPanelController.SubRegistration(id = "de.funfried.netbeans.plugins.external.formatter.ui.options.performance", location = "Editor", position = 202, displayName = "#AdvancedOption_DisplayName_ExternalFormatterPerformance", keywords = "#AdvancedOption_Keywords_ExternalFormatterPerformance", keywordsCategory = "Editor/ExternalFormatterPerformance")
+@org.openide.util.NbBundle.Messages({ "AdvancedOption_DisplayName_ExternalFormatterPerformance=External Formatter Performance",
+		"AdvancedOption_Keywords_ExternalFormatterPerformance=External Formatter Performance Metrics" })
+public final class PerformanceOptionsPanelController extends OptionsPanelController implements ChangeListener {
+	/** Holder of the {@link PerformancePanel}. */
+	private PerformancePanel panel;
+
+	/** Holder of the {@link PropertyChangeSupport}. */
+	private final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void update() {
+		createOrGetPanel().load();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void applyChanges() {
+		SwingUtilities.invokeLater(() -> createOrGetPanel().store());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void cancel() {
+		// need not do anything special, if no changes have been persisted yet
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isValid() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isChanged() {
+		return createOrGetPanel().isChanged();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public HelpCtx getHelpCtx() {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PerformancePanel getComponent(Lookup masterLookup) {
+		return createOrGetPanel();
+	}
+
+	/**
+	 * Returns the cached {@link PerformancePanel} or creates a new one and caches it for the next call.
+	 *
+	 * @return the cached {@link PerformancePanel} or creates a new one and caches it for the next call
+	 */
+	private PerformancePanel createOrGetPanel() {
+		if (null == panel) {
+			panel = new PerformancePanel(NbPreferences.forModule(PerformancePanel.class));
+			panel.addChangeListener(WeakListeners.change(this, panel));
+		}
+
+		return panel;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addPropertyChangeListener(PropertyChangeListener l) {
+		pcs.addPropertyChangeListener(l);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removePropertyChangeListener(PropertyChangeListener l) {
+		pcs.removePropertyChangeListener(l);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		pcs.firePropertyChange(OptionsPanelController.PROP_CHANGED, null, null);
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.ui.options;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.prefs.Preferences;
+
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.event.ChangeListener;
+import javax.swing.table.AbstractTableModel;
+
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.awt.Mnemonics;
+import org.openide.util.ChangeSupport;
+import org.openide.util.NbBundle;
+
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetricsRow;
+import de.funfried.netbeans.plugins.external.formatter.warmup.FormatterWarmUp;
+
+/**
+ * Options panel which shows the performance metrics of the external formatters collected by the
+ * {@link FormatterMetrics}, and allows to export them as CSV. It also enables the
+ * {@link FormatterWarmUp}.
+ *
+ * @author bahlef
+ */
+public class PerformancePanel extends JPanel {
+	private static final long serialVersionUID = 1L;
+
+	/** {@link Logger} of this class. */
+	private static final Logger log = Logger.getLogger(PerformancePanel.class.getName());
+
+	/** The {@link ChangeSupport} to notify about changes. */
+	private transient final ChangeSupport changeSupport = new ChangeSupport(this);
+
+	/** The {@link Preferences} modified by this options dialog. */
+	private transient final Preferences preferences;
+
+	/** The {@link JCheckBox} to enable the collection of the performance metrics. */
+	private final JCheckBox collectMetricsChkBox = new JCheckBox();
+
+	/** The {@link JCheckBox} to enable the warm-up of the activated formatters. */
+	private final JCheckBox warmUpChkBox = new JCheckBox();
+
+	/** The {@link MetricsTableModel} of the {@link #metricsTable}. */
+	private final MetricsTableModel metricsTableModel = new MetricsTableModel();
+
+	/** The {@link JTable} which shows the performance metrics. */
+	private final JTable metricsTable = new JTable(metricsTableModel);
+
+	/**
+	 * Creates a new instance of {@link PerformancePanel}.
+	 *
+	 * @param preferences the {@link Preferences}
+	 */
+	public PerformancePanel(Preferences preferences) {
+		this.preferences = preferences;
+
+		initComponents();
+	}
+
+	/**
+	 * Adds a given {@link ChangeListener} to this option dialog, which will be notified as
+	 * soon as an user has changed the state of the components inside this options dialog.
+	 *
+	 * @param listener the {@link ChangeListener} to add
+	 */
+	public void addChangeListener(ChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	/**
+	 * Removes a given {@link ChangeListener} from this option dialog.
+	 *
+	 * @param listener the {@link ChangeListener} which should be removed
+	 */
+	public void removeChangeListener(ChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	/**
+	 * Loads the settings and the current performance metrics into this panel.
+	 */
+	public void load() {
+		collectMetricsChkBox.setSelected(preferences.getBoolean(Settings.COLLECT_PERFORMANCE_METRICS, false));
+		warmUpChkBox.setSelected(preferences.getBoolean(Settings.WARM_UP_FORMATTERS, false));
+
+		refresh();
+	}
+
+	/**
+	 * Stores the settings of this panel and enables or disables the collection of the performance
+	 * metrics. Starts the warm-up of the activated formatters if it was just enabled.
+	 */
+	public void store() {
+		boolean enabled = collectMetricsChkBox.isSelected();
+
+		preferences.putBoolean(Settings.COLLECT_PERFORMANCE_METRICS, enabled);
+
+		FormatterMetrics.setEnabled(enabled);
+
+		boolean warmUp = warmUpChkBox.isSelected();
+		boolean warmUpEnabled = warmUp && !preferences.getBoolean(Settings.WARM_UP_FORMATTERS, false);
+
+		preferences.putBoolean(Settings.WARM_UP_FORMATTERS, warmUp);
+
+		if (warmUpEnabled) {
+			FormatterWarmUp.schedule(0);
+		}
+	}
+
+	private void initComponents() {
+		Mnemonics.setLocalizedText(collectMetricsChkBox, NbBundle.getMessage(PerformancePanel.class, "PerformancePanel.collectMetricsChkBox.text")); // NOI18N
+		collectMetricsChkBox.setToolTipText(NbBundle.getMessage(PerformancePanel.class, "PerformancePanel.collectMetricsChkBox.toolTipText")); // NOI18N
+		collectMetricsChkBox.addActionListener(evt -> changeSupport.fireChange());
+
+		Mnemonics.setLocalizedText(warmUpChkBox, NbBundle.getMessage(PerformancePanel.class, "PerformancePanel.warmUpChkBox.text")); // NOI18N
+		warmUpChkBox.setToolTipText(NbBundle.getMessage(PerformancePanel.class, "PerformancePanel.warmUpChkBox.toolTipText")); // NOI18N
+		warmUpChkBox.addActionListener(evt -> changeSupport.fireChange());
+
+		JPanel settingsPanel = new JPanel(new GridLayout(0, 1));
+		settingsPanel.add(collectMetricsChkBox);
+		settingsPanel.add(warmUpChkBox);
+
+		JButton refreshBtn = new JButton();
+		Mnemonics.setLocalizedText(refreshBtn, NbBundle.getMessage(PerformancePanel.class, "PerformancePanel.refreshBtn.text")); // NOI18N
+		refreshBtn.addActionListener(evt -> refresh());
+
+		JButton resetBtn = new JButton();
+		Mnemonics.setLocalizedText(resetBtn, NbBundle.getMessage(PerformancePanel.class, "PerformancePanel.resetBtn.text")); // NOI18N
+		resetBtn.addActionListener(evt -> {
+			FormatterMetrics.reset();
+			refresh();
+		});
+
+		JButton exportBtn = new JButton();
+		Mnemonics.setLocalizedText(exportBtn, NbBundle.getMessage(PerformancePanel.class, "PerformancePanel.exportBtn.text")); // NOI18N
+		exportBtn.addActionListener(evt -> exportCsv());
+
+		JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEADING));
+		buttonPanel.add(refreshBtn);
+		buttonPanel.add(resetBtn);
+		buttonPanel.add(exportBtn);
+
+		metricsTable.setAutoCreateRowSorter(true);
+		metricsTable.setFillsViewportHeight(true);
+
+		setLayout(new BorderLayout());
+		add(settingsPanel, BorderLayout.NORTH);
+		add(new JScrollPane(metricsTable), BorderLayout.CENTER);
+		add(buttonPanel, BorderLayout.SOUTH);
+	}
+
+	/**
+	 * Reloads the performance metrics shown in the table.
+	 */
+	private void refresh() {
+		metricsTableModel.setRows(FormatterMetrics.getRows());
+	}
+
+	/**
+	 * Asks the user for a file and writes the performance metrics as CSV to it.
+	 */
+	private void exportCsv() {
+		JFileChooser fileChooser = new JFileChooser();
+		fileChooser.setSelectedFile(new File("formatter-metrics.csv"));
+		if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
+
+		File file = fileChooser.getSelectedFile();
+
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			FormatterMetrics.exportCsv(writer);
+		} catch (IOException ex) {
+			log.log(Level.WARNING, "Could not export the performance metrics to " + file, ex);
+
+			DialogDisplayer.getDefault().notify(new NotifyDescriptor.Message(NbBundle.getMessage(PerformancePanel.class, "PerformancePanel.exportFailed", file, ex.getMessage()),
+					NotifyDescriptor.ERROR_MESSAGE));
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the settings of this panel differ from the stored ones.
+	 *
+	 * @return {@code true} if the settings of this panel differ from the stored ones
+	 */
+	boolean isChanged() {
+		return collectMetricsChkBox.isSelected() != preferences.getBoolean(Settings.COLLECT_PERFORMANCE_METRICS, false)
+				|| warmUpChkBox.isSelected() != preferences.getBoolean(Settings.WARM_UP_FORMATTERS, false);
+	}
+
+	/**
+	 * {@link AbstractTableModel} of the {@link FormatterMetricsRow}s.
+	 */
+	private static class MetricsTableModel extends AbstractTableModel {
+		private static final long serialVersionUID = 1L;
+
+		/** The keys of the column names in the resource bundle. */
+		private static final String[] COLUMNS = { "formatter", "mimeType", "metric", "unit", "count", "mean", "p50", "p90", "p99", "max" };
+
+		/** The shown {@link FormatterMetricsRow}s. */
+		private transient List<FormatterMetricsRow> rows = new ArrayList<>();
+
+		void setRows(List<FormatterMetricsRow> rows) {
+			this.rows = rows;
+
+			fireTableDataChanged();
+		}
+
+		@Override
+		public int getRowCount() {
+			return rows.size();
+		}
+
+		@Override
+		public int getColumnCount() {
+			return COLUMNS.length;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			return NbBundle.getMessage(PerformancePanel.class, "PerformancePanel.column." + COLUMNS[column]); // NOI18N
+		}
+
+		@Override
+		public Class<?> getColumnClass(int column) {
+			if (column < 4) {
+				return String.class;
+			} else if (column == 4) {
+				return Long.class;
+			}
+
+			return Double.class;
+		}
+
+		@Override
+		public Object getValueAt(int rowIndex, int column) {
+			FormatterMetricsRow row = rows.get(rowIndex);
+
+			switch (column) {
+				case 0:
+					return row.getFormatterId();
+				case 1:
+					return row.getMimeType();
+				case 2:
+					return row.getMetric();
+				case 3:
+					return row.getUnit();
+				case 4:
+					return row.getCount();
+				case 5:
+					return row.getMean();
+				case 6:
+					return row.getP50();
+				case 7:
+					return row.getP90();
+				case 8:
+					return row.getP99();
+				default:
+					return row.getMax();
+			}
+		}
+	}
+}
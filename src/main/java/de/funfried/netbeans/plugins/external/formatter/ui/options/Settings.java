@@ -15,6 +15,8 @@ import java.util.prefs.Preferences;
 import javax.swing.text.Document;
 
 import org.apache.commons.lang3.StringUtils;
+import org.netbeans.api.annotations.common.CheckForNull;
+import org.netbeans.api.annotations.common.NonNull;
 import org.netbeans.api.project.FileOwnerQuery;
 import org.netbeans.api.project.Project;
 import org.netbeans.api.project.ProjectUtils;
@@ -24,6 +26,9 @@ import org.openide.filesystems.FileObject;
 import org.openide.loaders.DataObject;
 import org.openide.util.NbPreferences;
 
+import de.funfried.netbeans.plugins.external.formatter.FormatterServiceDelegate;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
+
 /**
  * Settings utility class.
  *
@@ -73,6 +78,30 @@ public class Settings {
 	/** Property key which defines whether or not to use project specific settings instead of global formatter settings. */
 	public static final String USE_PROJECT_SETTINGS = "useProjectSettings";
 
+	/** Property key which defines whether or not to format off the editor thread against a snapshot of the document. */
+	public static final String ASYNC_FORMATTING = "asyncFormatting";
+
+	/**
+	 * Property key which defines the timeout in seconds after which an asynchronous formatting is cancelled,
+	 * can be overridden per formatter by appending {@code .} and the ID of the formatter.
+	 */
+	public static final String ASYNC_FORMATTING_TIMEOUT = "asyncFormattingTimeout";
+
+	/** Default value of {@link #ASYNC_FORMATTING_TIMEOUT}. */
+	public static final int DEFAULT_ASYNC_FORMATTING_TIMEOUT = 10;
+
+	/** Property key which defines whether or not performance metrics of the formatters are collected. */
+	public static final String COLLECT_PERFORMANCE_METRICS = "collectPerformanceMetrics";
+
+	/** Property key which defines whether or not the activated formatters are warmed up in the background when the IDE starts or a project is opened. */
+	public static final String WARM_UP_FORMATTERS = "warmUpFormatters";
+
+	/**
+	 * Document property key of {@link Preferences} which are used instead of the global or project
+	 * specific preferences, e.g. for documents which are not backed by a file of a project.
+	 */
+	public static final String ACTIVE_PREFERENCES_PROPERTY = "externalFormatter.activePreferences";
+
 	/**
 	 * Private contructor because of static methods only.
 	 */
@@ -82,7 +111,10 @@ public class Settings {
 	/**
 	 * Returns the active {@link Preferences} object for the given {@link Document}, either the global
 	 * preferences are returned or if the {@link Project} has a separate configuration it will return
-	 * the project specific {@link Preferences}.
+	 * the project specific {@link Preferences}. {@link Preferences} stored in the
+	 * {@link #ACTIVE_PREFERENCES_PROPERTY} of the given {@link Document} take precedence over both.
+	 * The resolved {@link Preferences} are cached per {@link Document} by the
+	 * {@link FormatterServiceDelegate} until the formatter settings change.
 	 *
 	 * @param document the document to get the {@link Preferences} for
 	 *
@@ -91,7 +123,68 @@ public class Settings {
 	 *         the project specific {@link Preferences}
 	 */
 	public static Preferences getActivePreferences(Document document) {
-		Preferences globalPreferences = NbPreferences.forModule(ExternalFormatterPanel.class);
+		long start = FormatterMetrics.startTimer();
+
+		try {
+			if (document != null) {
+				Preferences preferences = FormatterServiceDelegate.getInstance().getActivePreferences(document);
+				if (preferences != null) {
+					return preferences;
+				}
+			}
+
+			return resolveActivePreferences(document);
+		} finally {
+			FormatterMetrics.stopTimer(FormatterMetrics.Phase.CONFIG_RESOLUTION, start);
+		}
+	}
+
+	/**
+	 * Resolves the active {@link Preferences} object for the given {@link Document} without using the
+	 * cache of the {@link FormatterServiceDelegate}, see {@link #getActivePreferences(Document)}.
+	 *
+	 * @param document the document to get the {@link Preferences} for
+	 *
+	 * @return the active {@link Preferences} object for the given {@link Document}
+	 */
+	@NonNull
+	public static Preferences resolveActivePreferences(Document document) {
+		if (document != null) {
+			Object activePreferences = document.getProperty(ACTIVE_PREFERENCES_PROPERTY);
+			if (activePreferences instanceof Preferences) {
+				return (Preferences) activePreferences;
+			}
+		}
+
+		Preferences projectPreferences = getProjectPreferences(document);
+		if (projectPreferences != null && projectPreferences.getBoolean(USE_PROJECT_SETTINGS, false)) {
+			return projectPreferences;
+		}
+
+		return getGlobalPreferences();
+	}
+
+	/**
+	 * Returns the global {@link Preferences} of the external formatters.
+	 *
+	 * @return the global {@link Preferences} of the external formatters
+	 */
+	@NonNull
+	public static Preferences getGlobalPreferences() {
+		return NbPreferences.forModule(ExternalFormatterPanel.class);
+	}
+
+	/**
+	 * Returns the project specific {@link Preferences} of the {@link Project} which owns the given
+	 * {@link Document}, regardless of whether they are activated by {@link #USE_PROJECT_SETTINGS} or not.
+	 *
+	 * @param document the document to get the project specific {@link Preferences} for
+	 *
+	 * @return the project specific {@link Preferences}, or {@code null} if the given {@link Document}
+	 *         does not belong to a {@link Project}
+	 */
+	@CheckForNull
+	public static Preferences getProjectPreferences(Document document) {
 		if (document != null) {
 			DataObject dataObj = NbEditorUtilities.getDataObject(document);
 			if (dataObj != null) {
@@ -99,16 +192,13 @@ public class Settings {
 				if (primaryFile != null) {
 					Project project = FileOwnerQuery.getOwner(primaryFile);
 					if (null != project) {
-						Preferences projectPreferences = ProjectUtils.getPreferences(project, ExternalFormatterPanel.class, true);
-						if (projectPreferences.getBoolean(USE_PROJECT_SETTINGS, false)) {
-							return projectPreferences;
-						}
+						return ProjectUtils.getPreferences(project, ExternalFormatterPanel.class, true);
 					}
 				}
 			}
 		}
 
-		return globalPreferences;
+		return null;
 	}
 
 	/**
@@ -143,4 +233,20 @@ public class Settings {
 
 		return linefeed;
 	}
+
+	/**
+	 * Returns the timeout in seconds after which an asynchronous formatting using the formatter with the
+	 * given {@code formatterId} is cancelled.
+	 *
+	 * @param preferences the active {@link Preferences}
+	 * @param formatterId the ID of the formatter
+	 *
+	 * @return the timeout in seconds after which an asynchronous formatting using the formatter with the
+	 *         given {@code formatterId} is cancelled
+	 */
+	public static int getAsyncFormattingTimeout(Preferences preferences, String formatterId) {
+		int timeout = preferences.getInt(ASYNC_FORMATTING_TIMEOUT, DEFAULT_ASYNC_FORMATTING_TIMEOUT);
+
+		return preferences.getInt(ASYNC_FORMATTING_TIMEOUT + "." + formatterId, timeout);
+	}
 }
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.prefs.Preferences;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.netbeans.api.annotations.common.CheckForNull;
+import org.netbeans.api.annotations.common.NonNull;
+import org.netbeans.api.java.lexer.JavaTokenId;
+import org.netbeans.api.project.Project;
+import org.netbeans.api.project.ProjectUtils;
+import org.netbeans.api.project.ui.OpenProjects;
+import org.openide.util.Lookup;
+import org.openide.util.RequestProcessor;
+
+import de.funfried.netbeans.plugins.external.formatter.FormatterService;
+import de.funfried.netbeans.plugins.external.formatter.MimeType;
+import de.funfried.netbeans.plugins.external.formatter.batch.BatchFormatter;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.ExternalFormatterPanel;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
+
+/**
+ * Warms up the activated external formatters in the background, so the first formatting after the IDE
+ * was started does not have to wait until the large formatter libraries are loaded and compiled by the
+ * JIT. Each formatter which is activated in the global or the project specific {@link Preferences} of
+ * the open projects formats a small built-in sample once, which also parses its configured profile. The
+ * formatter engines built by the warm-up are reused by the formattings on all other threads, see
+ * {@link de.funfried.netbeans.plugins.external.formatter.FormatterEnginePool}.
+ *
+ * <p>
+ * The warm-up is disabled by default, see {@link Settings#WARM_UP_FORMATTERS}. It runs on a single
+ * thread with the lowest priority and stops as soon as it used up its CPU time budget, a single
+ * formatting is not interrupted though. The warm-up time of each formatter is logged, the warm-up
+ * formattings are not recorded by the {@link FormatterMetrics}. A formatter is warmed up again if its
+ * configuration changed, see {@link BatchFormatter#getConfigFingerprint(FormatterService)}, or if its
+ * last warm-up failed.
+ * </p>
+ *
+ * @author bahlef
+ */
+public final class FormatterWarmUp {
+	/** {@link Logger} of this class. */
+	private static final Logger log = Logger.getLogger(FormatterWarmUp.class.getName());
+
+	/** The default CPU time budget of a warm-up in nanoseconds. */
+	static final long DEFAULT_CPU_BUDGET = TimeUnit.SECONDS.toNanos(10L);
+
+	/** The {@link RequestProcessor} which runs the warm-ups one after another. */
+	private static final RequestProcessor WARM_UP_RP = new RequestProcessor(FormatterWarmUp.class.getName(), 1);
+
+	/** The MIME types and the built-in samples which are formatted to warm up the formatters. */
+	private static final Map<MimeType, Pair<String, String>> SAMPLES = Map.of(
+			MimeType.CSS, Pair.of("text/css", "body{margin:0;padding:0}\n.sample>a:hover{color:#333;font-weight:bold}\n"),
+			MimeType.HTML, Pair.of("text/html", "<html><head><title>Sample</title></head><body><p class=\"sample\">Sample<br/></p></body></html>\n"),
+			MimeType.JAVA, Pair.of(JavaTokenId.language().mimeType(),
+					"package sample;import java.util.List;public class Sample{private final List<String> values;public Sample(List<String> values){this.values=values;}"
+							+ "public int count(String value){int count=0;for(String v:values){if(v.equals(value)){count++;}}return count;}}\n"),
+			MimeType.JAVASCRIPT, Pair.of("text/javascript", "function sample(values){var count=0;for(var i=0;i<values.length;i++){if(values[i]){count++;}}return count;}\n"),
+			MimeType.JSON, Pair.of("text/x-json", "{\"sample\":[1,2.5,true,null],\"nested\":{\"key\":\"value\"}}\n"),
+			MimeType.SQL, Pair.of("text/x-sql", "select a.id,b.name from sample a join other b on a.id=b.id where a.value>1 order by b.name;\n"),
+			MimeType.XML, Pair.of("text/xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?><sample><value key=\"a\">1</value><value key=\"b\"/></sample>\n"));
+
+	/** The instance of {@link FormatterWarmUp} which is used by {@link #schedule(int)}, only accessed by the {@link #WARM_UP_RP}. */
+	private static FormatterWarmUp instance = null;
+
+	/** All available {@link FormatterService}s. */
+	private final Collection<? extends FormatterService> formatterServices;
+
+	/** The CPU time budget of a warm-up in nanoseconds. */
+	private final long cpuBudget;
+
+	/** The configuration fingerprints per ID of the already warmed up formatters per {@link Preferences}. */
+	private final Map<Preferences, Map<String, String>> warmedUp = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * Creates a new instance of {@link FormatterWarmUp}.
+	 *
+	 * @param formatterServices all available {@link FormatterService}s
+	 * @param cpuBudget the CPU time budget of a warm-up in nanoseconds
+	 */
+	FormatterWarmUp(Collection<? extends FormatterService> formatterServices, long cpuBudget) {
+		this.formatterServices = new ArrayList<>(formatterServices);
+		this.cpuBudget = cpuBudget;
+	}
+
+	/**
+	 * Schedules a warm-up of the formatters which are activated for the open projects, if the warm-up is
+	 * enabled in the global {@link Preferences}. Formatters which were already warmed up with the same
+	 * {@link Preferences} and an unchanged configuration are skipped.
+	 *
+	 * @param delay the delay in milliseconds before the warm-up starts
+	 */
+	public static void schedule(int delay) {
+		if (!Settings.getGlobalPreferences().getBoolean(Settings.WARM_UP_FORMATTERS, false)) {
+			return;
+		}
+
+		WARM_UP_RP.post(() -> {
+			if (instance == null) {
+				instance = new FormatterWarmUp(Lookup.getDefault().lookupAll(FormatterService.class), DEFAULT_CPU_BUDGET);
+			}
+
+			instance.warmUp(getActivePreferences());
+		}, delay, Thread.MIN_PRIORITY);
+	}
+
+	/**
+	 * Warms up the formatters which are activated in the given {@link Preferences} until the CPU time
+	 * budget is used up.
+	 *
+	 * @param preferences the {@link Preferences} which define the activated formatters
+	 */
+	void warmUp(Collection<Preferences> preferences) {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		boolean cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported();
+		long start = cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : System.nanoTime();
+
+		for (Preferences prefs : preferences) {
+			Map<String, String> fingerprints = warmedUp.computeIfAbsent(prefs, key -> Collections.synchronizedMap(new HashMap<>()));
+			BatchFormatter batchFormatter = new BatchFormatter(prefs);
+
+			for (MimeType mimeType : MimeType.values()) {
+				FormatterService formatterService = getFormatterService(prefs, mimeType);
+				if (formatterService == null) {
+					continue;
+				}
+
+				String fingerprint = batchFormatter.getConfigFingerprint(formatterService);
+				if (fingerprint.equals(fingerprints.get(formatterService.getId()))) {
+					continue;
+				}
+
+				long used = (cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : System.nanoTime()) - start;
+				if (used >= cpuBudget) {
+					log.log(Level.INFO, "Stopped the formatter warm-up after {0} ms of CPU time", TimeUnit.NANOSECONDS.toMillis(used));
+
+					return;
+				}
+
+				if (warmUp(batchFormatter, formatterService, mimeType)) {
+					fingerprints.put(formatterService.getId(), fingerprint);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the formatter with the given {@code formatterId} was warmed up with the
+	 * given {@link Preferences}.
+	 *
+	 * @param preferences the {@link Preferences} which define the settings of the formatter
+	 * @param formatterId the ID of the formatter
+	 *
+	 * @return {@code true} if the formatter was warmed up with the given {@link Preferences}, otherwise
+	 *         {@code false}
+	 */
+	boolean isWarmedUp(Preferences preferences, String formatterId) {
+		Map<String, String> fingerprints = warmedUp.get(preferences);
+
+		return fingerprints != null && fingerprints.containsKey(formatterId);
+	}
+
+	/**
+	 * Formats the sample of the given {@code mimeType} with the given {@link FormatterService} and logs the
+	 * needed time. The {@link FormatterMetrics} are suppressed, the warm-up is no formatting of the user.
+	 *
+	 * @param batchFormatter the {@link BatchFormatter} with the {@link Preferences} which define the
+	 *        settings of the formatter
+	 * @param formatterService the {@link FormatterService} to warm up
+	 * @param mimeType the {@link MimeType} of the sample
+	 *
+	 * @return {@code true} if the sample was formatted, otherwise {@code false}, e.g. if the formatting
+	 *         failed or there is no sample of the given {@code mimeType}
+	 */
+	private boolean warmUp(BatchFormatter batchFormatter, FormatterService formatterService, MimeType mimeType) {
+		Pair<String, String> sample = SAMPLES.get(mimeType);
+		if (sample == null) {
+			return false;
+		}
+
+		long start = System.nanoTime();
+
+		try (FormatterMetrics.Suppression suppression = FormatterMetrics.suppress()) {
+			batchFormatter.format(formatterService, sample.getLeft(), sample.getRight());
+
+			log.log(Level.INFO, "Warmed up {0} for {1} in {2} ms", new Object[] { formatterService.getDisplayName(), mimeType, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) });
+
+			return true;
+		} catch (Exception ex) {
+			log.log(Level.INFO, "Could not warm up " + formatterService.getDisplayName() + " for " + mimeType, ex);
+		} catch (LinkageError err) {
+			log.log(Level.WARNING, "Could not load " + formatterService.getDisplayName() + " for " + mimeType, err);
+		}
+
+		return false;
+	}
+
+	@CheckForNull
+	private FormatterService getFormatterService(Preferences preferences, MimeType mimeType) {
+		String activeFormatterId = preferences.get(Settings.ENABLED_FORMATTER_PREFIX + mimeType.toString(), Settings.DEFAULT_FORMATTER);
+		if (Settings.DEFAULT_FORMATTER.equals(activeFormatterId)) {
+			return null;
+		}
+
+		for (FormatterService formatterService : formatterServices) {
+			if (Objects.equals(activeFormatterId, formatterService.getId())) {
+				return formatterService;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the global {@link Preferences} and the project specific {@link Preferences} of all open
+	 * projects which use them.
+	 *
+	 * @return the global and the activated project specific {@link Preferences}
+	 */
+	@NonNull
+	private static List<Preferences> getActivePreferences() {
+		Set<Preferences> preferences = new LinkedHashSet<>();
+		preferences.add(Settings.getGlobalPreferences());
+
+		for (Project project : OpenProjects.getDefault().getOpenProjects()) {
+			Preferences projectPreferences = ProjectUtils.getPreferences(project, ExternalFormatterPanel.class, true);
+			if (projectPreferences.getBoolean(Settings.USE_PROJECT_SETTINGS, false)) {
+				preferences.add(projectPreferences);
+			}
+		}
+
+		return new ArrayList<>(preferences);
+	}
+}
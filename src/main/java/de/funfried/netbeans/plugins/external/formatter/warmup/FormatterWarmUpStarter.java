@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.warmup;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import org.netbeans.api.project.ui.OpenProjects;
+import org.openide.modules.OnStart;
+
+/**
+ * Schedules the {@link FormatterWarmUp} when the module is started and whenever projects are opened.
+ *
+ * @author bahlef
+ */
+@OnStart
+public class FormatterWarmUpStarter implements Runnable, PropertyChangeListener {
+	/** The delay in milliseconds before the warm-up starts after the module was started, so it does not slow down the startup of the IDE. */
+	private static final int STARTUP_DELAY = 10_000;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void run() {
+		OpenProjects.getDefault().addPropertyChangeListener(this);
+
+		FormatterWarmUp.schedule(STARTUP_DELAY);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void propertyChange(PropertyChangeEvent evt) {
+		if (OpenProjects.PROPERTY_OPEN_PROJECTS.equals(evt.getPropertyName())) {
+			FormatterWarmUp.schedule(0);
+		}
+	}
+}
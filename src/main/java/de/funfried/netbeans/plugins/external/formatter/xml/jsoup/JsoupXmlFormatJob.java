@@ -25,6 +25,7 @@ import org.openide.awt.StatusDisplayer;
 import org.openide.filesystems.FileObject;
 
 import de.funfried.netbeans.plugins.external.formatter.AbstractFormatJob;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
@@ -84,7 +85,15 @@ class JsoupXmlFormatJob extends AbstractFormatJob {
 
 		String code = getCode();
 
-		String formattedContent = formatter.format(code, lineFeed, options);
+		long formatStart = FormatterMetrics.startTimer();
+
+		String formattedContent;
+		try {
+			formattedContent = formatter.format(code, lineFeed, options);
+		} finally {
+			FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, formatStart);
+		}
+
 		if (setFormattedCode(code, formattedContent)) {
 			SwingUtilities.invokeLater(() -> {
 				if (pref.getBoolean(Settings.SHOW_NOTIFICATIONS, false)) {
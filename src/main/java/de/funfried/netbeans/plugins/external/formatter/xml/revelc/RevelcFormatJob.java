@@ -20,6 +20,7 @@ import org.openide.awt.NotificationDisplayer;
 import org.openide.awt.StatusDisplayer;
 
 import de.funfried.netbeans.plugins.external.formatter.AbstractFormatJob;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
 import de.funfried.netbeans.plugins.external.formatter.ui.Icons;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 import net.revelc.code.formatter.xml.lib.FormattingPreferences;
@@ -78,7 +79,15 @@ class RevelcFormatJob extends AbstractFormatJob {
 
 		String code = getCode();
 
-		String formattedContent = formatter.format(code, lineFeed, prefs);
+		long formatStart = FormatterMetrics.startTimer();
+
+		String formattedContent;
+		try {
+			formattedContent = formatter.format(code, lineFeed, prefs);
+		} finally {
+			FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, formatStart);
+		}
+
 		if (setFormattedCode(code, formattedContent)) {
 			SwingUtilities.invokeLater(() -> {
 				if (pref.getBoolean(Settings.SHOW_NOTIFICATIONS, false)) {
@@ -14,6 +14,7 @@ import java.util.Objects;
 import org.netbeans.api.annotations.common.CheckForNull;
 import org.netbeans.api.annotations.common.NonNull;
 
+import de.funfried.netbeans.plugins.external.formatter.FormatterEnginePool;
 import net.revelc.code.formatter.xml.lib.FormattingPreferences;
 import net.revelc.code.formatter.xml.lib.XmlDocumentFormatter;
 
@@ -23,6 +24,9 @@ import net.revelc.code.formatter.xml.lib.XmlDocumentFormatter;
  * @author bahlef
  */
 public final class RevelcXmlFormatterWrapper {
+	/** The {@link XmlDocumentFormatter}s per line feed and preferences, which are not thread safe and therefore leased to one thread at a time. */
+	private final FormatterEnginePool<FormatterKey, XmlDocumentFormatter> xmlFormatters = FormatterEnginePool.exclusive(key -> new XmlDocumentFormatter(key.lineFeed, key.prefs));
+
 	/**
 	 * Package private Constructor for creating a new instance of {@link RevelcXmlFormatterWrapper}.
 	 */
@@ -53,9 +57,9 @@ public final class RevelcXmlFormatterWrapper {
 			prefs = new FormattingPreferences();
 		}
 
-		XmlDocumentFormatter xmlFormatter = new XmlDocumentFormatter(lineFeed, prefs);
-
-		return format(xmlFormatter, code);
+		try (FormatterEnginePool.Lease<XmlDocumentFormatter> xmlFormatter = xmlFormatters.acquire(new FormatterKey(lineFeed, prefs))) {
+			return format(xmlFormatter.get(), code);
+		}
 	}
 
 	/**
@@ -76,4 +80,42 @@ public final class RevelcXmlFormatterWrapper {
 
 		return formattedCode;
 	}
+
+	/**
+	 * Key of the {@link XmlDocumentFormatter}s, since {@link FormattingPreferences} does not implement
+	 * {@link Object#equals(Object)} and {@link Object#hashCode()} itself.
+	 */
+	private static final class FormatterKey {
+		private final String lineFeed;
+
+		private final FormattingPreferences prefs;
+
+		private final String fingerprint;
+
+		private FormatterKey(String lineFeed, FormattingPreferences prefs) {
+			this.lineFeed = lineFeed;
+			this.prefs = prefs;
+			this.fingerprint = FormatterEnginePool.fingerprint(prefs);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(lineFeed, fingerprint);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (!(obj instanceof FormatterKey)) {
+				return false;
+			}
+
+			FormatterKey other = (FormatterKey) obj;
+
+			return Objects.equals(lineFeed, other.lineFeed) && Objects.equals(fingerprint, other.fingerprint);
+		}
+	}
 }
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.StyledDocument;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+import org.netbeans.api.project.Project;
+import org.netbeans.junit.NbTestCase;
+import org.netbeans.modules.editor.NbEditorDocument;
+
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetricsRow;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.FormatterOptionsPanel;
+
+/**
+ *
+ * @author bahlef
+ */
+public class AsyncFormatterTest extends NbTestCase {
+	public AsyncFormatterTest(String name) {
+		super(name);
+	}
+
+	@Test
+	public void testFormattedCodeIsApplied() throws Exception {
+		StyledDocument document = createDocument("{\"foo\": \"bar\"}\n");
+
+		UpperCaseFormatterService service = new UpperCaseFormatterService(0L);
+		AsyncFormatter.format(service, document, null, 10);
+
+		Assert.assertTrue(service.finished.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals("{\"FOO\": \"BAR\"}\n", waitForText(document, "{\"FOO\": \"BAR\"}\n"));
+	}
+
+	@Test
+	public void testFormattedCodeIsDiscardedIfDocumentChanged() throws Exception {
+		StyledDocument document = createDocument("{\"foo\": \"bar\"}\n");
+
+		UpperCaseFormatterService service = new UpperCaseFormatterService(0L);
+		service.release = new CountDownLatch(1);
+		AsyncFormatter.format(service, document, null, 10);
+
+		Assert.assertTrue(service.started.await(10, TimeUnit.SECONDS));
+
+		SwingUtilities.invokeAndWait(() -> {
+			try {
+				document.insertString(document.getLength(), "{}\n", null);
+			} catch (BadLocationException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+
+		service.release.countDown();
+
+		Assert.assertTrue(service.finished.await(10, TimeUnit.SECONDS));
+		flushEventQueue();
+
+		Assert.assertEquals("{\"foo\": \"bar\"}\n{}\n", document.getText(0, document.getLength()));
+	}
+
+	@Test
+	public void testFormattingIsCancelledAfterTimeout() throws Exception {
+		StyledDocument document = createDocument("{\"foo\": \"bar\"}\n");
+
+		UpperCaseFormatterService service = new UpperCaseFormatterService(3000L);
+		AsyncFormatter.format(service, document, null, 1);
+
+		Assert.assertTrue(service.finished.await(10, TimeUnit.SECONDS));
+		flushEventQueue();
+
+		Assert.assertEquals("{\"foo\": \"bar\"}\n", document.getText(0, document.getLength()));
+	}
+
+	@Test
+	public void testRecordingOfDiscardedFormattingIsClosed() throws Exception {
+		FormatterMetrics.setEnabled(true);
+
+		try {
+			StyledDocument document = createDocument("{\"foo\": \"bar\"}\n");
+
+			UpperCaseFormatterService service = new UpperCaseFormatterService(0L);
+			service.release = new CountDownLatch(1);
+			AsyncFormatter.format(service, document, null, 10);
+
+			Assert.assertTrue(service.started.await(10, TimeUnit.SECONDS));
+
+			SwingUtilities.invokeAndWait(() -> {
+				try {
+					document.insertString(0, " ", null);
+				} catch (BadLocationException ex) {
+					throw new IllegalStateException(ex);
+				}
+			});
+
+			service.release.countDown();
+
+			Assert.assertTrue(service.finished.await(10, TimeUnit.SECONDS));
+
+			long deadline = System.currentTimeMillis() + 10_000L;
+			List<String> metrics;
+			do {
+				flushEventQueue();
+
+				metrics = FormatterMetrics.getRows().stream().filter(row -> "upper-case".equals(row.getFormatterId())).map(FormatterMetricsRow::getMetric).collect(Collectors.toList());
+			} while (!metrics.contains("CANCELLATIONS") && System.currentTimeMillis() < deadline);
+
+			Assert.assertTrue(metrics.contains("CANCELLATIONS"));
+			Assert.assertFalse(metrics.contains("TOTAL"));
+		} finally {
+			FormatterMetrics.setEnabled(false);
+			FormatterMetrics.reset();
+		}
+	}
+
+	@Test
+	public void testPhasesAreRecordedOnce() throws Exception {
+		FormatterMetrics.setEnabled(true);
+
+		try {
+			StyledDocument document = createDocument("{\"foo\": \"bar\"}\n");
+
+			UpperCaseFormatterService service = new UpperCaseFormatterService(0L);
+			AsyncFormatter.format(service, document, null, 10);
+
+			Assert.assertTrue(service.finished.await(10, TimeUnit.SECONDS));
+			Assert.assertEquals("{\"FOO\": \"BAR\"}\n", waitForText(document, "{\"FOO\": \"BAR\"}\n"));
+
+			long deadline = System.currentTimeMillis() + 10_000L;
+			Map<String, Long> counts;
+			do {
+				flushEventQueue();
+
+				counts = FormatterMetrics.getRows().stream().filter(row -> "upper-case".equals(row.getFormatterId()))
+						.collect(Collectors.toMap(FormatterMetricsRow::getMetric, FormatterMetricsRow::getCount));
+			} while (!counts.containsKey("TOTAL") && System.currentTimeMillis() < deadline);
+
+			Assert.assertEquals(Long.valueOf(1L), counts.get("DIFF"));
+			Assert.assertEquals(Long.valueOf(1L), counts.get("APPLY"));
+			Assert.assertEquals(Long.valueOf(1L), counts.get("TOTAL"));
+		} finally {
+			FormatterMetrics.setEnabled(false);
+			FormatterMetrics.reset();
+		}
+	}
+
+	private static StyledDocument createDocument(String text) throws BadLocationException {
+		StyledDocument document = new NbEditorDocument("text/x-json");
+		document.insertString(0, text, null);
+
+		return document;
+	}
+
+	private static String waitForText(StyledDocument document, String expected) throws Exception {
+		long deadline = System.currentTimeMillis() + 10_000L;
+
+		String text;
+		do {
+			flushEventQueue();
+
+			text = document.getText(0, document.getLength());
+		} while (!expected.equals(text) && System.currentTimeMillis() < deadline);
+
+		return text;
+	}
+
+	private static void flushEventQueue() throws Exception {
+		Thread.sleep(100L);
+
+		SwingUtilities.invokeAndWait(() -> {
+		});
+	}
+
+	/**
+	 * {@link FormatterService} which converts the whole document to upper case.
+	 */
+	private static class UpperCaseFormatterService implements FormatterService {
+		private final long sleepMillis;
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch finished = new CountDownLatch(1);
+
+		private volatile CountDownLatch release;
+
+		private UpperCaseFormatterService(long sleepMillis) {
+			this.sleepMillis = sleepMillis;
+		}
+
+		@Override
+		public boolean format(StyledDocument document, SortedSet<Pair<Integer, Integer>> changedElements) throws BadLocationException {
+			started.countDown();
+
+			try {
+				if (release != null) {
+					release.await(10, TimeUnit.SECONDS);
+				}
+
+				if (sleepMillis > 0L) {
+					Thread.sleep(sleepMillis);
+				}
+
+				String code = document.getText(0, document.getLength());
+				AbstractFormatJob.applyFormattedCode(document, code, code.toUpperCase(Locale.ROOT));
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			} finally {
+				finished.countDown();
+			}
+
+			return true;
+		}
+
+		@Override
+		public Integer getContinuationIndentSize(Document document) {
+			return null;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Upper Case";
+		}
+
+		@Override
+		public String getId() {
+			return "upper-case";
+		}
+
+		@Override
+		public Integer getIndentSize(Document document) {
+			return null;
+		}
+
+		@Override
+		public FormatterOptionsPanel createOptionsPanel(Project project) {
+			return null;
+		}
+
+		@Override
+		public Integer getRightMargin(Document document) {
+			return null;
+		}
+
+		@Override
+		public Integer getSpacesPerTab(Document document) {
+			return null;
+		}
+
+		@Override
+		public List<MimeType> getSupportedMimeTypes() {
+			return Collections.singletonList(MimeType.JSON);
+		}
+
+		@Override
+		public Boolean isExpandTabToSpaces(Document document) {
+			return null;
+		}
+
+		@Override
+		public Boolean organizeImports(StyledDocument document, boolean afterFixImports) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author bahlef
+ */
+public class FormatterEnginePoolTest {
+	@Test
+	public void testSharedEngineIsBuiltOnce() {
+		FormatterEnginePool<List<Object>, Object> pool = FormatterEnginePool.shared(key -> new Object());
+
+		Object first = pool.get(List.of(4, "\n", true));
+		Object second = pool.get(List.of(4, "\n", true));
+
+		Assert.assertSame(first, second);
+		Assert.assertEquals(1, pool.getCreatedCount());
+
+		Object third = pool.get(List.of(2, "\n", true));
+
+		Assert.assertNotSame(first, third);
+		Assert.assertEquals(2, pool.getCreatedCount());
+	}
+
+	@Test
+	public void testSharedEngineIsSharedBetweenThreads() throws Exception {
+		FormatterEnginePool<String, Object> pool = FormatterEnginePool.shared(key -> new Object());
+
+		Object engine = pool.get("key");
+
+		AtomicReference<Object> otherThreadEngine = new AtomicReference<>();
+		Thread thread = new Thread(() -> otherThreadEngine.set(pool.get("key")));
+		thread.start();
+		thread.join();
+
+		Assert.assertSame(engine, otherThreadEngine.get());
+		Assert.assertEquals(1, pool.getCreatedCount());
+	}
+
+	@Test
+	public void testExclusiveEngineIsLeasedToOneThreadAtATime() throws Exception {
+		FormatterEnginePool<String, Object> pool = FormatterEnginePool.exclusive(key -> new Object());
+
+		Object engine;
+		try (FormatterEnginePool.Lease<Object> lease = pool.acquire("key")) {
+			engine = lease.get();
+
+			try (FormatterEnginePool.Lease<Object> concurrentLease = pool.acquire("key")) {
+				Assert.assertNotSame(engine, concurrentLease.get());
+			}
+		}
+
+		Assert.assertEquals(2, pool.getCreatedCount());
+
+		try (FormatterEnginePool.Lease<Object> lease = pool.acquire("key")) {
+			Assert.assertNotNull(lease.get());
+		}
+
+		Assert.assertEquals(2, pool.getCreatedCount());
+	}
+
+	@Test
+	public void testExclusiveEngineIsReusedByOtherThreads() throws Exception {
+		FormatterEnginePool<String, Object> pool = FormatterEnginePool.exclusive(key -> new Object());
+
+		AtomicReference<Object> otherThreadEngine = new AtomicReference<>();
+		Thread thread = new Thread(() -> {
+			try (FormatterEnginePool.Lease<Object> lease = pool.acquire("key")) {
+				otherThreadEngine.set(lease.get());
+			}
+		});
+		thread.start();
+		thread.join();
+
+		try (FormatterEnginePool.Lease<Object> lease = pool.acquire("key")) {
+			Assert.assertSame(otherThreadEngine.get(), lease.get());
+		}
+
+		Assert.assertEquals(1, pool.getCreatedCount());
+		Assert.assertThrows(IllegalStateException.class, () -> pool.get("key"));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEngineIsEvicted() {
+		FormatterEnginePool<Integer, Object> pool = FormatterEnginePool.shared(key -> new Object());
+
+		Object first = pool.get(0);
+		for (int i = 1; i <= FormatterEnginePool.DEFAULT_MAX_SIZE; i++) {
+			pool.get(i);
+		}
+
+		Assert.assertEquals(FormatterEnginePool.DEFAULT_MAX_SIZE + 1, pool.getCreatedCount());
+
+		Object rebuilt = pool.get(0);
+
+		Assert.assertNotSame(first, rebuilt);
+		Assert.assertEquals(FormatterEnginePool.DEFAULT_MAX_SIZE + 2, pool.getCreatedCount());
+
+		pool.get(FormatterEnginePool.DEFAULT_MAX_SIZE);
+
+		Assert.assertEquals(FormatterEnginePool.DEFAULT_MAX_SIZE + 2, pool.getCreatedCount());
+	}
+
+	@Test
+	public void testFingerprint() {
+		Assert.assertEquals(FormatterEnginePool.fingerprint(new Options(4, true)), FormatterEnginePool.fingerprint(new Options(4, true)));
+		Assert.assertNotEquals(FormatterEnginePool.fingerprint(new Options(4, true)), FormatterEnginePool.fingerprint(new Options(2, true)));
+		Assert.assertNotEquals(FormatterEnginePool.fingerprint(new Options(4, true)), FormatterEnginePool.fingerprint(new Options(4, false)));
+		Assert.assertEquals("null", FormatterEnginePool.fingerprint(null));
+	}
+
+	private static class Options {
+		private final int indent;
+
+		private final boolean tabs;
+
+		private Options(int indent, boolean tabs) {
+			this.indent = indent;
+			this.tabs = tabs;
+		}
+	}
+}
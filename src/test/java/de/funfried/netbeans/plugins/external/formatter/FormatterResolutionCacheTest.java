@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.prefs.AbstractPreferences;
+
+import javax.swing.text.Document;
+import javax.swing.text.StyledDocument;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+import org.netbeans.api.project.Project;
+import org.netbeans.junit.NbTestCase;
+import org.netbeans.modules.editor.NbEditorDocument;
+
+import de.funfried.netbeans.plugins.external.formatter.json.jackson.JacksonJsonFormatterService;
+import de.funfried.netbeans.plugins.external.formatter.json.jackson.JacksonJsonFormatterSettings;
+import de.funfried.netbeans.plugins.external.formatter.ui.editor.EditorUtils;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.ExternalFormatterPreferencesChangeSupport;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.FormatterOptionsPanel;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
+
+/**
+ *
+ * @author bahlef
+ */
+public class FormatterResolutionCacheTest extends NbTestCase {
+	private final AtomicInteger lookups = new AtomicInteger();
+
+	private final CountingPreferences preferences = new CountingPreferences();
+
+	private final CountingFormatterService service = new CountingFormatterService();
+
+	private final ExternalFormatterPreferencesChangeSupport changeSupport = new ExternalFormatterPreferencesChangeSupport();
+
+	private final FormatterServiceDelegate delegate = new FormatterServiceDelegate(new FormatterResolutionCache(() -> {
+		lookups.incrementAndGet();
+
+		return Collections.singletonList(service);
+	}, changeSupport));
+
+	public FormatterResolutionCacheTest(String name) {
+		super(name);
+	}
+
+	@Test
+	public void testRepeatedQueriesAreCached() throws Exception {
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), CountingFormatterService.ID);
+
+		Document document = createDocument();
+
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals(Integer.valueOf(4), delegate.getIndentSize(document));
+			Assert.assertEquals(Integer.valueOf(8), delegate.getContinuationIndentSize(document));
+			Assert.assertEquals(Integer.valueOf(100), delegate.getRightMargin(document));
+			Assert.assertEquals(Integer.valueOf(4), delegate.getSpacesPerTab(document));
+			Assert.assertNull(delegate.isExpandTabToSpaces(document));
+			Assert.assertFalse(delegate.isNetBeansFormatterActivated(document));
+		}
+
+		Assert.assertEquals("Lookup should only be queried once", 1, lookups.get());
+		Assert.assertEquals("Preferences should only be read once", 1, preferences.reads.get());
+		Assert.assertEquals("Indentation settings should be read from the formatter each time", 50, service.queries.get());
+	}
+
+	@Test
+	public void testRealServiceUsesCachedPreferences() throws Exception {
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), JacksonJsonFormatterService.ID);
+		preferences.putBoolean(Settings.ENABLE_USE_OF_INDENTATION_SETTINGS, true);
+		preferences.putInt(JacksonJsonFormatterSettings.INDENT_SIZE, 3);
+
+		FormatterServiceDelegate jacksonDelegate = new FormatterServiceDelegate(new FormatterResolutionCache(() -> Collections.singletonList(new JacksonJsonFormatterService()), changeSupport));
+
+		CountingDocument document = new CountingDocument("text/x-json");
+		document.putProperty(Settings.ACTIVE_PREFERENCES_PROPERTY, preferences);
+
+		Assert.assertEquals(Integer.valueOf(3), jacksonDelegate.getIndentSize(document));
+		Assert.assertFalse(EditorUtils.isAsyncFormattingEnabled(document));
+
+		int resolutions = document.resolutions.get();
+
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals(Integer.valueOf(3), jacksonDelegate.getIndentSize(document));
+			Assert.assertEquals(Integer.valueOf(3), jacksonDelegate.getContinuationIndentSize(document));
+			Assert.assertNotNull(jacksonDelegate.getSpacesPerTab(document));
+			Assert.assertNotNull(jacksonDelegate.isExpandTabToSpaces(document));
+			Assert.assertFalse(EditorUtils.isAsyncFormattingEnabled(document));
+		}
+
+		Assert.assertEquals("Repeated queries should not resolve the preferences again", resolutions, document.resolutions.get());
+
+		preferences.putInt(JacksonJsonFormatterSettings.INDENT_SIZE, 5);
+		changeSupport.fireChange();
+
+		Assert.assertEquals(Integer.valueOf(5), jacksonDelegate.getIndentSize(document));
+		Assert.assertTrue(document.resolutions.get() > resolutions);
+	}
+
+	@Test
+	public void testIndentationSettingsAreNotCached() throws Exception {
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), CountingFormatterService.ID);
+
+		Document document = createDocument();
+
+		Assert.assertEquals(Integer.valueOf(4), delegate.getIndentSize(document));
+
+		// e.g. the configuration file of the formatter was changed on disk
+		service.indentSize = 2;
+
+		Assert.assertEquals(Integer.valueOf(2), delegate.getIndentSize(document));
+		Assert.assertEquals(1, lookups.get());
+	}
+
+	@Test
+	public void testChangeSupportInvalidates() throws Exception {
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), CountingFormatterService.ID);
+
+		Document document = createDocument();
+
+		Assert.assertEquals(Integer.valueOf(4), delegate.getIndentSize(document));
+		Assert.assertFalse(delegate.isNetBeansFormatterActivated(document));
+
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), Settings.DEFAULT_FORMATTER);
+		changeSupport.fireChange();
+
+		Assert.assertNull(delegate.getIndentSize(document));
+		Assert.assertTrue(delegate.isNetBeansFormatterActivated(document));
+		Assert.assertTrue(lookups.get() > 1);
+	}
+
+	@Test
+	public void testPreferenceChangeInvalidates() throws Exception {
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), CountingFormatterService.ID);
+
+		Document document = createDocument();
+
+		Assert.assertEquals(Integer.valueOf(4), delegate.getIndentSize(document));
+
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), Settings.DEFAULT_FORMATTER);
+
+		// preference change events are delivered asynchronously
+		long deadline = System.currentTimeMillis() + 10_000L;
+		while (delegate.getIndentSize(document) != null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+
+		Assert.assertNull(delegate.getIndentSize(document));
+		Assert.assertTrue(delegate.isNetBeansFormatterActivated(document));
+	}
+
+	@Test
+	public void testUnsupportedDocument() throws Exception {
+		Assert.assertNull(delegate.getIndentSize(null));
+		Assert.assertFalse(delegate.isNetBeansFormatterActivated(null));
+
+		Document document = new NbEditorDocument("text/x-unknown");
+		document.putProperty(Settings.ACTIVE_PREFERENCES_PROPERTY, preferences);
+
+		Assert.assertNull(delegate.getIndentSize(document));
+		Assert.assertFalse(delegate.isNetBeansFormatterActivated(document));
+
+		Assert.assertEquals(0, lookups.get());
+		Assert.assertEquals(0, preferences.reads.get());
+	}
+
+	private Document createDocument() {
+		Document document = new NbEditorDocument("text/x-json");
+		document.putProperty(Settings.ACTIVE_PREFERENCES_PROPERTY, preferences);
+
+		return document;
+	}
+
+	/**
+	 * {@link NbEditorDocument} which counts the resolutions of its active preferences.
+	 */
+	private static class CountingDocument extends NbEditorDocument {
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicInteger resolutions = new AtomicInteger();
+
+		private CountingDocument(String mimeType) {
+			super(mimeType);
+		}
+
+		@Override
+		public Dictionary<Object, Object> getDocumentProperties() {
+			Dictionary<Object, Object> properties = super.getDocumentProperties();
+
+			return new Dictionary<Object, Object>() {
+				@Override
+				public int size() {
+					return properties.size();
+				}
+
+				@Override
+				public boolean isEmpty() {
+					return properties.isEmpty();
+				}
+
+				@Override
+				public Enumeration<Object> keys() {
+					return properties.keys();
+				}
+
+				@Override
+				public Enumeration<Object> elements() {
+					return properties.elements();
+				}
+
+				@Override
+				public Object get(Object key) {
+					if (Settings.ACTIVE_PREFERENCES_PROPERTY.equals(key)) {
+						resolutions.incrementAndGet();
+					}
+
+					return properties.get(key);
+				}
+
+				@Override
+				public Object put(Object key, Object value) {
+					return properties.put(key, value);
+				}
+
+				@Override
+				public Object remove(Object key) {
+					return properties.remove(key);
+				}
+			};
+		}
+	}
+
+	/**
+	 * In-memory {@link AbstractPreferences} which count the reads from the store.
+	 */
+	private static class CountingPreferences extends AbstractPreferences {
+		private final Map<String, String> values = new HashMap<>();
+
+		private final AtomicInteger reads = new AtomicInteger();
+
+		private CountingPreferences() {
+			super(null, "");
+		}
+
+		@Override
+		protected void putSpi(String key, String value) {
+			values.put(key, value);
+		}
+
+		@Override
+		protected String getSpi(String key) {
+			reads.incrementAndGet();
+
+			return values.get(key);
+		}
+
+		@Override
+		protected void removeSpi(String key) {
+			values.remove(key);
+		}
+
+		@Override
+		protected void removeNodeSpi() {
+		}
+
+		@Override
+		protected String[] keysSpi() {
+			return values.keySet().toArray(new String[0]);
+		}
+
+		@Override
+		protected String[] childrenNamesSpi() {
+			return new String[0];
+		}
+
+		@Override
+		protected AbstractPreferences childSpi(String name) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		protected void syncSpi() {
+		}
+
+		@Override
+		protected void flushSpi() {
+		}
+	}
+
+	/**
+	 * {@link FormatterService} which counts the queries of its indentation settings.
+	 */
+	private static class CountingFormatterService implements FormatterService {
+		private static final String ID = "counting";
+
+		private final AtomicInteger queries = new AtomicInteger();
+
+		private volatile int indentSize = 4;
+
+		@Override
+		public boolean format(StyledDocument document, SortedSet<Pair<Integer, Integer>> changedElements) {
+			return true;
+		}
+
+		@Override
+		public Integer getContinuationIndentSize(Document document) {
+			queries.incrementAndGet();
+
+			return 8;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Counting";
+		}
+
+		@Override
+		public String getId() {
+			return ID;
+		}
+
+		@Override
+		public Integer getIndentSize(Document document) {
+			queries.incrementAndGet();
+
+			return indentSize;
+		}
+
+		@Override
+		public FormatterOptionsPanel createOptionsPanel(Project project) {
+			return null;
+		}
+
+		@Override
+		public Integer getRightMargin(Document document) {
+			queries.incrementAndGet();
+
+			return 100;
+		}
+
+		@Override
+		public Integer getSpacesPerTab(Document document) {
+			queries.incrementAndGet();
+
+			return 4;
+		}
+
+		@Override
+		public List<MimeType> getSupportedMimeTypes() {
+			return Collections.singletonList(MimeType.JSON);
+		}
+
+		@Override
+		public Boolean isExpandTabToSpaces(Document document) {
+			queries.incrementAndGet();
+
+			return null;
+		}
+
+		@Override
+		public Boolean organizeImports(StyledDocument document, boolean afterFixImports) {
+			return null;
+		}
+	}
+}
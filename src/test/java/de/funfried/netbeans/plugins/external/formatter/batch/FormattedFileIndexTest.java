@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.batch;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author bahlef
+ */
+public class FormattedFileIndexTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testKeyDependsOnContentFormatterAndConfiguration() {
+		byte[] content = "{}".getBytes(StandardCharsets.UTF_8);
+
+		String key = FormattedFileIndex.createKey(content, "jackson-json", "abc");
+
+		Assert.assertEquals(key, FormattedFileIndex.createKey("{}".getBytes(StandardCharsets.UTF_8), "jackson-json", "abc"));
+		Assert.assertNotEquals(key, FormattedFileIndex.createKey("[]".getBytes(StandardCharsets.UTF_8), "jackson-json", "abc"));
+		Assert.assertNotEquals(key, FormattedFileIndex.createKey(content, "other", "abc"));
+		Assert.assertNotEquals(key, FormattedFileIndex.createKey(content, "jackson-json", "def"));
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("index");
+
+		FormattedFileIndex index = FormattedFileIndex.load(file);
+		Assert.assertFalse(index.contains("a"));
+
+		index.add("a");
+		index.add("b");
+		index.save();
+
+		FormattedFileIndex loaded = FormattedFileIndex.load(file);
+		Assert.assertTrue(loaded.contains("a"));
+		Assert.assertTrue(loaded.contains("b"));
+		Assert.assertFalse(loaded.contains("c"));
+	}
+
+	@Test
+	public void testUnusedKeysAreNotSavedAgain() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("index");
+
+		FormattedFileIndex index = FormattedFileIndex.load(file);
+		index.add("a");
+		index.add("b");
+		index.save();
+
+		FormattedFileIndex second = FormattedFileIndex.load(file);
+		Assert.assertTrue(second.contains("a"));
+		second.save();
+
+		FormattedFileIndex third = FormattedFileIndex.load(file);
+		Assert.assertTrue(third.contains("a"));
+		Assert.assertFalse(third.contains("b"));
+	}
+
+	@Test
+	public void testUnknownFormatIsIgnored() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("index");
+		Files.write(file, "a\nb\n".getBytes(StandardCharsets.UTF_8));
+
+		Assert.assertFalse(FormattedFileIndex.load(file).contains("a"));
+	}
+}
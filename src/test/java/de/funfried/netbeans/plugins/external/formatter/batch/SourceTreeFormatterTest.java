@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.batch;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.prefs.Preferences;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.StyledDocument;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+import org.netbeans.api.project.Project;
+import org.netbeans.junit.NbTestCase;
+
+import de.funfried.netbeans.plugins.external.formatter.FormatterService;
+import de.funfried.netbeans.plugins.external.formatter.MimeType;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.FormatterOptionsPanel;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
+
+/**
+ *
+ * @author bahlef
+ */
+public class SourceTreeFormatterTest extends NbTestCase {
+	private TrimFormatterService service;
+
+	private BatchFormatter batchFormatter;
+
+	private Path root;
+
+	public SourceTreeFormatterTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		clearWorkDir();
+
+		root = getWorkDir().toPath().resolve("src");
+		Files.createDirectories(root);
+
+		Preferences preferences = new PropertiesPreferences();
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON, TrimFormatterService.ID);
+
+		service = new TrimFormatterService();
+		batchFormatter = new BatchFormatter(preferences, Collections.singletonList(service));
+	}
+
+	@Test
+	public void testCheckOnlyReportsUnformattedFiles() throws Exception {
+		Path unformatted = write("a.json", "{\"foo\": 1}   \n");
+		write("sub/b.json", "{\"bar\": 2}\n");
+
+		SourceTreeFormatter.Result result = new SourceTreeFormatter(batchFormatter, null, true, 2, StandardCharsets.UTF_8).format(root);
+
+		Assert.assertEquals(List.of(unformatted), result.getChangedFiles());
+		Assert.assertTrue(result.getFailedFiles().isEmpty());
+		Assert.assertEquals(2L, result.getFileCount());
+		Assert.assertEquals("{\"foo\": 1}   \n", read(unformatted));
+	}
+
+	@Test
+	public void testFormattedFilesAreSkippedOnNextRun() throws Exception {
+		Path unformatted = write("a.json", "{\"foo\": 1}   \n");
+		write("b.json", "{\"bar\": 2}\n");
+
+		Path indexFile = getWorkDir().toPath().resolve("index");
+
+		SourceTreeFormatter.Result first = new SourceTreeFormatter(batchFormatter, FormattedFileIndex.load(indexFile), false, 2, StandardCharsets.UTF_8).format(root);
+
+		Assert.assertEquals(List.of(unformatted), first.getChangedFiles());
+		Assert.assertEquals("{\"foo\": 1}\n", read(unformatted));
+		Assert.assertEquals(2, service.calls.get());
+
+		SourceTreeFormatter.Result second = new SourceTreeFormatter(batchFormatter, FormattedFileIndex.load(indexFile), false, 2, StandardCharsets.UTF_8).format(root);
+
+		Assert.assertTrue(second.getChangedFiles().isEmpty());
+		Assert.assertEquals(2L, second.getSkippedFileCount());
+		Assert.assertEquals(2, service.calls.get());
+	}
+
+	@Test
+	public void testLineSeparatorsAreKept() throws Exception {
+		Path unformatted = write("a.json", "{  \r\n\"foo\": 1  \r\n}\r\n");
+
+		new SourceTreeFormatter(batchFormatter, null, false, 1, StandardCharsets.UTF_8).format(root);
+
+		Assert.assertEquals("{\r\n\"foo\": 1\r\n}\r\n", read(unformatted));
+	}
+
+	@Test
+	public void testFilesWithoutActivatedFormatterAreIgnored() throws Exception {
+		write("a.json", "{}\n");
+		write("Foo.java", "class Foo {}   \n");
+		write("readme.txt", "text   \n");
+		write(".git/b.json", "{}   \n");
+
+		SourceTreeFormatter.Result result = new SourceTreeFormatter(batchFormatter, null, true, 2, StandardCharsets.UTF_8).format(root);
+
+		Assert.assertEquals(1L, result.getFileCount());
+		Assert.assertTrue(result.getChangedFiles().isEmpty());
+	}
+
+	@Test
+	public void testUndecodableFilesAreNotWritten() throws Exception {
+		byte[] latin1 = "{\"f\u00f6\u00f6\": 1}   \n".getBytes(StandardCharsets.ISO_8859_1);
+
+		Path undecodable = root.resolve("a.json");
+		Files.write(undecodable, latin1);
+
+		Path indexFile = getWorkDir().toPath().resolve("index");
+
+		SourceTreeFormatter.Result result = new SourceTreeFormatter(batchFormatter, FormattedFileIndex.load(indexFile), false, 1, StandardCharsets.UTF_8).format(root);
+
+		Assert.assertEquals(List.of(undecodable), result.getUndecodableFiles());
+		Assert.assertTrue(result.getFailedFiles().containsKey(undecodable));
+		Assert.assertTrue(result.getChangedFiles().isEmpty());
+		Assert.assertArrayEquals(latin1, Files.readAllBytes(undecodable));
+		Assert.assertEquals(0, service.calls.get());
+	}
+
+	private Path write(String name, String content) throws Exception {
+		Path file = root.resolve(name.replace('/', File.separatorChar));
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+		return file;
+	}
+
+	private static String read(Path file) throws Exception {
+		return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * {@link FormatterService} which removes trailing whitespaces of all lines.
+	 */
+	private static class TrimFormatterService implements FormatterService {
+		private static final String ID = "trim";
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		public boolean format(StyledDocument document, SortedSet<Pair<Integer, Integer>> changedElements) throws BadLocationException {
+			calls.incrementAndGet();
+
+			String code = document.getText(0, document.getLength());
+			document.remove(0, document.getLength());
+			document.insertString(0, code.replaceAll("[ \\t]+\n", "\n"), null);
+
+			return true;
+		}
+
+		@Override
+		public Integer getContinuationIndentSize(Document document) {
+			return null;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Trim";
+		}
+
+		@Override
+		public String getId() {
+			return ID;
+		}
+
+		@Override
+		public Integer getIndentSize(Document document) {
+			return null;
+		}
+
+		@Override
+		public FormatterOptionsPanel createOptionsPanel(Project project) {
+			return null;
+		}
+
+		@Override
+		public Integer getRightMargin(Document document) {
+			return null;
+		}
+
+		@Override
+		public Integer getSpacesPerTab(Document document) {
+			return null;
+		}
+
+		@Override
+		public List<MimeType> getSupportedMimeTypes() {
+			return Collections.singletonList(MimeType.JSON);
+		}
+
+		@Override
+		public Boolean isExpandTabToSpaces(Document document) {
+			return null;
+		}
+
+		@Override
+		public Boolean organizeImports(StyledDocument document, boolean afterFixImports) {
+			return null;
+		}
+	}
+}
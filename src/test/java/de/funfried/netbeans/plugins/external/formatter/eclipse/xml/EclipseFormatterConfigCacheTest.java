@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+
+package de.funfried.netbeans.plugins.external.formatter.eclipse.xml;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author bahlef
+ */
+public class EclipseFormatterConfigCacheTest {
+	private static final String PREFIX = "/instance/org.eclipse.jdt.core/";
+
+	private static final String PROJECT_PREF_FILE = "org.eclipse.jdt.core.prefs";
+
+	private static final Map<String, String> DEFAULTS = Collections.singletonMap("default.key", "default");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUp() {
+		EclipseFormatterConfigCache.clear();
+	}
+
+	@Test
+	public void testXmlConfigIsCachedUntilChanged() throws Exception {
+		File xmlFile = folder.newFile("formatter.xml");
+		writeXmlProfile(xmlFile, "70");
+
+		long hits = EclipseFormatterConfigCache.getHitCount();
+		long misses = EclipseFormatterConfigCache.getMissCount();
+
+		Map<String, String> first = EclipseFormatterUtils.parseConfig(xmlFile.getAbsolutePath(), "demo", DEFAULTS, null, PREFIX, PROJECT_PREF_FILE);
+		Map<String, String> second = EclipseFormatterUtils.parseConfig(xmlFile.getAbsolutePath(), "demo", DEFAULTS, null, PREFIX, PROJECT_PREF_FILE);
+
+		Assert.assertSame(first, second);
+		Assert.assertEquals("70", second.get("some.key"));
+		Assert.assertEquals("default", second.get("default.key"));
+		Assert.assertEquals(hits + 1, EclipseFormatterConfigCache.getHitCount());
+		Assert.assertEquals(misses + 1, EclipseFormatterConfigCache.getMissCount());
+
+		writeXmlProfile(xmlFile, "1234");
+
+		Map<String, String> third = EclipseFormatterUtils.parseConfig(xmlFile.getAbsolutePath(), "demo", DEFAULTS, null, PREFIX, PROJECT_PREF_FILE);
+
+		Assert.assertNotSame(second, third);
+		Assert.assertEquals("1234", third.get("some.key"));
+		Assert.assertEquals(misses + 2, EclipseFormatterConfigCache.getMissCount());
+	}
+
+	@Test
+	public void testCacheKeyContainsAdditionalProperties() throws Exception {
+		File xmlFile = folder.newFile("formatter.xml");
+		writeXmlProfile(xmlFile, "70");
+
+		Map<String, String> first = EclipseFormatterUtils.parseConfig(xmlFile.getAbsolutePath(), "demo", DEFAULTS, Collections.singletonMap("level", "11"), PREFIX, PROJECT_PREF_FILE);
+		Map<String, String> second = EclipseFormatterUtils.parseConfig(xmlFile.getAbsolutePath(), "demo", DEFAULTS, Collections.singletonMap("level", "17"), PREFIX, PROJECT_PREF_FILE);
+
+		Assert.assertEquals("11", first.get("level"));
+		Assert.assertEquals("17", second.get("level"));
+	}
+
+	@Test
+	public void testConfigFingerprint() throws Exception {
+		File xmlFile = folder.newFile("formatter.xml");
+		writeXmlProfile(xmlFile, "70");
+
+		Map<String, String> first = EclipseFormatterUtils.parseConfig(xmlFile.getAbsolutePath(), "demo", DEFAULTS, null, PREFIX, PROJECT_PREF_FILE);
+		String fingerprint = EclipseFormatterUtils.getConfigFingerprint(first);
+
+		Assert.assertEquals(fingerprint, EclipseFormatterUtils.getConfigFingerprint(Map.copyOf(first)));
+
+		EclipseFormatterConfigCache.clear();
+
+		Map<String, String> second = EclipseFormatterUtils.parseConfig(xmlFile.getAbsolutePath(), "demo", DEFAULTS, null, PREFIX, PROJECT_PREF_FILE);
+
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(fingerprint, EclipseFormatterUtils.getConfigFingerprint(second));
+
+		Map<String, String> other = EclipseFormatterUtils.parseConfig(xmlFile.getAbsolutePath(), "demo", DEFAULTS, Collections.singletonMap("level", "11"), PREFIX, PROJECT_PREF_FILE);
+
+		Assert.assertNotEquals(fingerprint, EclipseFormatterUtils.getConfigFingerprint(other));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testCachedConfigIsUnmodifiable() throws Exception {
+		File xmlFile = folder.newFile("formatter.xml");
+		writeXmlProfile(xmlFile, "70");
+
+		Map<String, String> config = EclipseFormatterUtils.parseConfig(xmlFile.getAbsolutePath(), "demo", DEFAULTS, null, PREFIX, PROJECT_PREF_FILE);
+		config.put("some.key", "71");
+	}
+
+	@Test
+	public void testMechanicSourceDirectoryChangesInvalidateCache() throws Exception {
+		File sourceDirectory = folder.newFolder("mechanic");
+		String sourceDirectoryPath = sourceDirectory.getAbsolutePath();
+		if (SystemUtils.IS_OS_WINDOWS) {
+			sourceDirectoryPath = StringUtils.replace(sourceDirectoryPath, "\\", "\\\\");
+		}
+
+		File epfFile = folder.newFile("formatter.epf");
+		try (FileWriter fw = new FileWriter(epfFile)) {
+			fw.write("/instance/com.google.eclipse.mechanic/mechanicSourceDirectories=[\"" + sourceDirectoryPath + "\"]");
+		}
+
+		File additionalFile = new File(sourceDirectory, "additional.epf");
+		try (FileWriter fw = new FileWriter(additionalFile)) {
+			fw.write(PREFIX + "some.key=70");
+		}
+
+		Map<String, String> first = EclipseFormatterUtils.parseConfig(epfFile.getAbsolutePath(), null, DEFAULTS, null, PREFIX, PROJECT_PREF_FILE);
+		Map<String, String> second = EclipseFormatterUtils.parseConfig(epfFile.getAbsolutePath(), null, DEFAULTS, null, PREFIX, PROJECT_PREF_FILE);
+
+		Assert.assertSame(first, second);
+		Assert.assertEquals("70", second.get("some.key"));
+
+		try (FileWriter fw = new FileWriter(additionalFile)) {
+			fw.write(PREFIX + "some.key=1234");
+		}
+
+		Map<String, String> third = EclipseFormatterUtils.parseConfig(epfFile.getAbsolutePath(), null, DEFAULTS, null, PREFIX, PROJECT_PREF_FILE);
+
+		Assert.assertNotSame(second, third);
+		Assert.assertEquals("1234", third.get("some.key"));
+	}
+
+	private static void writeXmlProfile(File file, String value) throws Exception {
+		try (FileWriter fw = new FileWriter(file)) {
+			fw.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+					+ "<profiles version=\"1\">\n"
+					+ "    <profile kind=\"CodeFormatterProfile\" name=\"demo\" version=\"1\">\n"
+					+ "        <setting id=\"some.key\" value=\"" + value + "\"/>\n"
+					+ "    </profile>\n"
+					+ "</profiles>");
+		}
+	}
+}
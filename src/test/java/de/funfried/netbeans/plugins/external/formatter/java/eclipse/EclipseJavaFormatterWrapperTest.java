@@ -37,6 +37,18 @@ public class EclipseJavaFormatterWrapperTest {
 		instance = new EclipseJavaFormatterWrapper();
 	}
 
+	@Test
+	public void testRepeatedFormatDoesNotRebuildEngine() {
+		EclipseJavaFormatterWrapper wrapper = new EclipseJavaFormatterWrapper();
+
+		String first = wrapper.format("src/test/resources/formattersampleeclipse.xml", "eclipse-demo", "package foo;public enum Bar {A,B,C}", null, null, null);
+		String second = wrapper.format("src/test/resources/formattersampleeclipse.xml", "eclipse-demo", "package foo;public enum Baz {A,B,C}", null, null, null);
+
+		Assert.assertNotNull(first);
+		Assert.assertNotNull(second);
+		Assert.assertEquals(1, wrapper.getFormatters().getCreatedCount());
+	}
+
 	@Test
 	public void testFormatUsingXML() {
 		final String text = "package foo;public enum NewEmptyJUnitTest {A,B,C}";
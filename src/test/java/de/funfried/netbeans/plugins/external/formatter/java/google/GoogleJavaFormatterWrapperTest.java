@@ -34,6 +34,18 @@ public class GoogleJavaFormatterWrapperTest {
 		instance = new GoogleJavaFormatterWrapper();
 	}
 
+	@Test
+	public void testRepeatedFormatDoesNotRebuildEngine() {
+		GoogleJavaFormatterWrapper wrapper = new GoogleJavaFormatterWrapper();
+
+		String first = wrapper.format("package foo;public enum Bar {A,B,C}", JavaFormatterOptions.Style.GOOGLE, null);
+		String second = wrapper.format("package foo;public enum Baz {A,B,C}", JavaFormatterOptions.Style.GOOGLE, null);
+
+		Assert.assertNotNull(first);
+		Assert.assertNotNull(second);
+		Assert.assertEquals(1, wrapper.getFormatters().getCreatedCount());
+	}
+
 	@Test
 	public void testFormatEnumUsingGoogleStyle() {
 		final String text = "package foo;public enum Bar {A,B,C}";
@@ -10,6 +10,7 @@
 package de.funfried.netbeans.plugins.external.formatter.json.jackson;
 
 import java.util.prefs.Preferences;
+import java.util.stream.Collectors;
 
 import javax.swing.text.StyledDocument;
 
@@ -18,6 +19,9 @@ import org.junit.Test;
 import org.netbeans.junit.NbTestCase;
 import org.netbeans.modules.editor.NbEditorDocument;
 
+import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetricsRow;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
 /**
@@ -94,6 +98,33 @@ public class JacksonJsonFormatterServiceTest extends NbTestCase {
 	 *
 	 * @throws Exception if an error occurs
 	 */
+	@Test
+	public void testFailedFormatIsTimed() throws Exception {
+		StyledDocument document = new NbEditorDocument("text/x-json");
+		document.insertString(0, "{\"foo\": [\"bar\"}\n", null);
+
+		FormatterMetrics.setEnabled(true);
+
+		try {
+			try (FormatterMetrics.Recording recording = FormatterMetrics.start(JacksonJsonFormatterService.ID, "text/x-json", document.getLength(), 0)) {
+				new JacksonJsonFormatterService().format(document, null);
+
+				Assert.fail("Formatting invalid JSON should fail");
+			} catch (FormattingFailedException ex) {
+				// expected
+			}
+
+			Assert.assertTrue("A failed formatting should be timed as well", FormatterMetrics.getRows().stream()
+					.filter(row -> JacksonJsonFormatterService.ID.equals(row.getFormatterId()))
+					.map(FormatterMetricsRow::getMetric)
+					.collect(Collectors.toList())
+					.contains(FormatterMetrics.Phase.FORMAT.name()));
+		} finally {
+			FormatterMetrics.setEnabled(false);
+			FormatterMetrics.reset();
+		}
+	}
+
 	@Test
 	public void testUnsupportedFileType() throws Exception {
 		final String text = "{\"foo\":\"bar\", \"array\": [ \"value1\", \"value2\", \"value3\" ], \"object\": {\"string\": \"value\", \"boolean\": false, \"number\": 2}}\n";
@@ -9,10 +9,15 @@
  */
 package de.funfried.netbeans.plugins.external.formatter.json.jackson;
 
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
 import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
 
 /**
@@ -170,4 +175,121 @@ public class JacksonJsonFormatterWrapperTest {
 		String actual = instance.format(null, null, new JacksonJsonFormatterWrapper.Options());
 		Assert.assertNull("Formatting shouldn't change the code, should still be null", actual);
 	}
+
+	@Test
+	public void testFormat_numbersAreKept() {
+		final String text = "{\"decimal\":1.10,\"exponent\":1e10,\"big\":[12345678901234567890.123456789,-0.0]}";
+		final String expected = "{\n" +
+				"  \"decimal\": 1.10,\n" +
+				"  \"exponent\": 1e10,\n" +
+				"  \"big\": [\n" +
+				"    12345678901234567890.123456789,\n" +
+				"    -0.0\n" +
+				"  ]\n" +
+				"}";
+
+		String actual = instance.format(text, "\n", new JacksonJsonFormatterWrapper.Options());
+		Assert.assertEquals("Numbers should be written as they are", expected, actual);
+	}
+
+	@Test
+	public void testFormat_duplicateKeysAreKept() {
+		final String text = "{\"foo\":1,\"foo\":2}";
+		final String expected = "{\n" +
+				"  \"foo\": 1,\n" +
+				"  \"foo\": 2\n" +
+				"}";
+
+		String actual = instance.format(text, "\n", new JacksonJsonFormatterWrapper.Options());
+		Assert.assertEquals("Duplicate keys should not be merged", expected, actual);
+	}
+
+	@Test
+	public void testFormat_commentsAreKept() {
+		final String text = "// header\n{// start\n\"a\":1, // one\n/* block */ \"b\":[2,/* two */3],\n# yaml\n\"c\": /* inline */ \"http://x\"}\n// end";
+		final String expected = "// header\n" +
+				"{ // start\n" +
+				"  \"a\": 1, // one\n" +
+				"  /* block */\n" +
+				"  \"b\": [\n" +
+				"    2, /* two */\n" +
+				"    3\n" +
+				"  ],\n" +
+				"  # yaml\n" +
+				"  \"c\": /* inline */ \"http://x\"\n" +
+				"}\n" +
+				"// end";
+
+		String actual = instance.format(text, "\n", new JacksonJsonFormatterWrapper.Options());
+		Assert.assertEquals("Comments should be kept", expected, actual);
+		Assert.assertNull("Formatting the formatted code shouldn't change it", instance.format(expected, "\n", new JacksonJsonFormatterWrapper.Options()));
+	}
+
+	@Test
+	public void testFormat_commentsInEmptyContainersAreKept() {
+		final String text = "{\"a\":[ // none\n],\"b\":{\n// only\n}}";
+		final String expected = "{\n" +
+				"  \"a\": [ // none\n" +
+				"  ],\n" +
+				"  \"b\": {\n" +
+				"    // only\n" +
+				"  }\n" +
+				"}";
+
+		String actual = instance.format(text, "\n", new JacksonJsonFormatterWrapper.Options());
+		Assert.assertEquals("Comments should be kept", expected, actual);
+	}
+
+	@Test
+	public void testFormat_alreadyFormatted() {
+		final String text = "{\n" +
+				"  \"foo\": [\n" +
+				"    1\n" +
+				"  ]\n" +
+				"}";
+
+		String actual = instance.format(text, "\n", new JacksonJsonFormatterWrapper.Options());
+		Assert.assertNull("Formatting shouldn't change the code", actual);
+	}
+
+	@Test
+	public void testFormat_changedElements() {
+		final String text = "{\n" +
+				"  \"foo\" :   1,\n" +
+				"  \"bar\": {\"array\":[1,2],  \"object\":{}},\n" +
+				"  \"baz\" :   2\n" +
+				"}";
+		final String expected = "{\n" +
+				"  \"foo\" :   1,\n" +
+				"  \"bar\": {\n" +
+				"    \"array\": [\n" +
+				"      1,\n" +
+				"      2\n" +
+				"    ],\n" +
+				"    \"object\": { }\n" +
+				"  },\n" +
+				"  \"baz\" :   2\n" +
+				"}";
+
+		int offset = text.indexOf("\"array\"");
+
+		SortedSet<Pair<Integer, Integer>> changedElements = new TreeSet<>();
+		changedElements.add(Pair.of(offset, offset + 5));
+
+		String actual = instance.format(text, "\n", new JacksonJsonFormatterWrapper.Options(), changedElements);
+		Assert.assertEquals("Only the enclosing object should be formatted", expected, actual);
+	}
+
+	@Test
+	public void testFormat_emptyChangedElements() {
+		final String text = "{\"foo\":1}";
+
+		String actual = instance.format(text, "\n", new JacksonJsonFormatterWrapper.Options(), new TreeSet<>());
+		Assert.assertNull("Formatting shouldn't change the code", actual);
+	}
+
+	@Test(expected = FormattingFailedException.class)
+	public void testFormat_invalidCode() {
+		instance.format("{\"foo\":1} bar", "\n", new JacksonJsonFormatterWrapper.Options());
+	}
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author bahlef
+ */
+public class FormatterMetricsTest {
+	@After
+	public void tearDown() {
+		FormatterMetrics.setEnabled(false);
+		FormatterMetrics.reset();
+	}
+
+	@Test
+	public void testDisabled() {
+		FormatterMetrics.setEnabled(false);
+
+		try (FormatterMetrics.Recording recording = FormatterMetrics.start("disabled", "text/x-json", 100, 0)) {
+			FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, FormatterMetrics.startTimer());
+
+			recording.failed();
+		}
+
+		FormatterMetrics.recordFallback("disabled", "text/x-json");
+
+		Assert.assertTrue(getRows("disabled").isEmpty());
+	}
+
+	@Test
+	public void testRecording() {
+		FormatterMetrics.setEnabled(true);
+
+		try (FormatterMetrics.Recording recording = FormatterMetrics.start("recording", "text/x-json", 100, 2)) {
+			FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, FormatterMetrics.startTimer());
+			FormatterMetrics.stopTimer(FormatterMetrics.Phase.DIFF, FormatterMetrics.startTimer());
+
+			recording.failed();
+		}
+
+		// outside of a recording nothing is recorded
+		FormatterMetrics.stopTimer(FormatterMetrics.Phase.APPLY, FormatterMetrics.startTimer());
+
+		List<FormatterMetricsRow> rows = getRows("recording");
+		Assert.assertEquals(List.of("FORMAT", "DIFF", "TOTAL", "INPUT_SIZE", "REGIONS", "FAILURES"), rows.stream().map(FormatterMetricsRow::getMetric).collect(Collectors.toList()));
+
+		FormatterMetricsRow inputSize = rows.get(3);
+		Assert.assertEquals("text/x-json", inputSize.getMimeType());
+		Assert.assertEquals(1L, inputSize.getCount());
+		Assert.assertEquals(100.0d, inputSize.getMax(), 0.0d);
+
+		Assert.assertEquals(2.0d, rows.get(4).getMean(), 0.0d);
+		Assert.assertEquals(1L, rows.get(5).getCount());
+	}
+
+	@Test
+	public void testRecordingOnAnotherThread() throws Exception {
+		FormatterMetrics.setEnabled(true);
+
+		FormatterMetrics.Recording recording = FormatterMetrics.start("thread", "text/xml", 10, 0);
+		recording.detach();
+
+		Thread thread = new Thread(() -> {
+			recording.attach();
+
+			FormatterMetrics.stopTimer(FormatterMetrics.Phase.APPLY, FormatterMetrics.startTimer());
+
+			recording.close();
+		});
+		thread.start();
+		thread.join();
+
+		List<String> metrics = getRows("thread").stream().map(FormatterMetricsRow::getMetric).collect(Collectors.toList());
+		Assert.assertEquals(List.of("APPLY", "TOTAL", "INPUT_SIZE", "REGIONS"), metrics);
+	}
+
+	@Test
+	public void testCancelledRecording() {
+		FormatterMetrics.setEnabled(true);
+
+		FormatterMetrics.Recording recording = FormatterMetrics.start("cancelled", "text/x-json", 10, 0);
+		recording.cancelled();
+		recording.cancelled();
+		recording.close();
+
+		List<FormatterMetricsRow> rows = getRows("cancelled");
+		Assert.assertEquals(List.of("INPUT_SIZE", "REGIONS", "CANCELLATIONS"), rows.stream().map(FormatterMetricsRow::getMetric).collect(Collectors.toList()));
+		Assert.assertEquals(1L, rows.get(2).getCount());
+	}
+
+	@Test
+	public void testSuppression() {
+		FormatterMetrics.setEnabled(true);
+
+		try (FormatterMetrics.Suppression suppression = FormatterMetrics.suppress()) {
+			try (FormatterMetrics.Recording recording = FormatterMetrics.start("suppressed", "text/x-json", 10, 0)) {
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, FormatterMetrics.startTimer());
+			}
+
+			FormatterMetrics.recordFallback("suppressed", "text/x-json");
+		}
+
+		Assert.assertTrue(getRows("suppressed").isEmpty());
+
+		try (FormatterMetrics.Recording recording = FormatterMetrics.start("phases", "text/x-json", 10, 0)) {
+			try (FormatterMetrics.Suppression outer = FormatterMetrics.suppress(FormatterMetrics.Phase.DIFF)) {
+				try (FormatterMetrics.Suppression inner = FormatterMetrics.suppress(FormatterMetrics.Phase.APPLY)) {
+					FormatterMetrics.stopTimer(FormatterMetrics.Phase.DIFF, FormatterMetrics.startTimer());
+					FormatterMetrics.stopTimer(FormatterMetrics.Phase.APPLY, FormatterMetrics.startTimer());
+				}
+
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, FormatterMetrics.startTimer());
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.DIFF, FormatterMetrics.startTimer());
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.APPLY, FormatterMetrics.startTimer());
+			}
+
+			FormatterMetrics.stopTimer(FormatterMetrics.Phase.DIFF, FormatterMetrics.startTimer());
+		}
+
+		List<FormatterMetricsRow> rows = getRows("phases");
+		Assert.assertEquals(List.of("FORMAT", "DIFF", "APPLY", "TOTAL", "INPUT_SIZE", "REGIONS"), rows.stream().map(FormatterMetricsRow::getMetric).collect(Collectors.toList()));
+		Assert.assertEquals(1L, rows.get(1).getCount());
+		Assert.assertEquals(1L, rows.get(2).getCount());
+	}
+
+	@Test
+	public void testExportCsv() throws Exception {
+		FormatterMetrics.setEnabled(true);
+
+		FormatterMetrics.recordFallback("csv", "text/x-json");
+
+		StringBuilder sb = new StringBuilder();
+		FormatterMetrics.exportCsv(sb);
+
+		String[] lines = sb.toString().split("\n");
+		Assert.assertEquals("formatter,mimeType,metric,unit,count,mean,p50,p90,p99,max", lines[0]);
+		Assert.assertTrue(sb.toString().contains("\ncsv,text/x-json,FALLBACKS,formattings,1,0.000,0.000,0.000,0.000,0.000\n"));
+	}
+
+	@Test
+	public void testMXBeanLifecycle() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(FormatterMetrics.OBJECT_NAME);
+
+		try {
+			new FormatterMetricsLifecycle.Start().run();
+			Assert.assertTrue(server.isRegistered(name));
+
+			// a left over registration of a previous module instance is replaced
+			new FormatterMetricsLifecycle.Start().run();
+			Assert.assertTrue(server.isRegistered(name));
+			Assert.assertEquals(Boolean.FALSE, server.getAttribute(name, "Enabled"));
+
+			new FormatterMetricsLifecycle.Stop().run();
+			Assert.assertFalse(server.isRegistered(name));
+
+			new FormatterMetricsLifecycle.Stop().run();
+			Assert.assertFalse(server.isRegistered(name));
+		} finally {
+			FormatterMetrics.unregisterMXBean();
+		}
+	}
+
+	private static List<FormatterMetricsRow> getRows(String formatterId) {
+		return FormatterMetrics.getRows().stream().filter(row -> formatterId.equals(row.getFormatterId())).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author bahlef
+ */
+public class HistogramTest {
+	@Test
+	public void testEmpty() {
+		Histogram histogram = new Histogram();
+
+		Assert.assertEquals(0L, histogram.getCount());
+		Assert.assertEquals(0L, histogram.getMax());
+		Assert.assertEquals(0.0d, histogram.getMean(), 0.0d);
+		Assert.assertEquals(0L, histogram.getPercentile(0.99d));
+	}
+
+	@Test
+	public void testRecord() {
+		Histogram histogram = new Histogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+
+		Assert.assertEquals(1000L, histogram.getCount());
+		Assert.assertEquals(500500L, histogram.getSum());
+		Assert.assertEquals(1000L, histogram.getMax());
+		Assert.assertEquals(500.5d, histogram.getMean(), 0.0d);
+
+		long p50 = histogram.getPercentile(0.5d);
+		Assert.assertTrue("p50 was " + p50, p50 >= 500L && p50 <= 500L * 9 / 8);
+
+		long p99 = histogram.getPercentile(0.99d);
+		Assert.assertTrue("p99 was " + p99, p99 >= 990L && p99 <= 1000L);
+
+		Assert.assertEquals(1000L, histogram.getPercentile(1.0d));
+	}
+
+	@Test
+	public void testNegativeValuesAreRecordedAsZero() {
+		Histogram histogram = new Histogram();
+		histogram.record(-5L);
+
+		Assert.assertEquals(1L, histogram.getCount());
+		Assert.assertEquals(0L, histogram.getSum());
+		Assert.assertEquals(0L, histogram.getPercentile(0.5d));
+	}
+
+	@Test
+	public void testBucketBounds() {
+		long[] values = { 0L, 1L, 7L, 8L, 15L, 16L, 17L, 1_000L, 123_456_789L, Long.MAX_VALUE / 3, Long.MAX_VALUE };
+		for (long value : values) {
+			int bucket = Histogram.getBucket(value);
+			long upperBound = Histogram.getUpperBound(bucket);
+
+			Assert.assertTrue("upper bound of " + value + " was " + upperBound, upperBound >= value);
+			Assert.assertTrue("upper bound of " + value + " was " + upperBound, upperBound - value <= value / 8);
+
+			if (bucket > 0) {
+				Assert.assertTrue("value " + value + " should not be in the previous bucket", Histogram.getUpperBound(bucket - 1) < value);
+			}
+		}
+	}
+
+	@Test
+	public void testReset() {
+		Histogram histogram = new Histogram();
+		histogram.record(42L);
+		histogram.reset();
+
+		Assert.assertEquals(0L, histogram.getCount());
+		Assert.assertEquals(0L, histogram.getMax());
+		Assert.assertEquals(0L, histogram.getPercentile(0.5d));
+	}
+
+	@Test
+	public void testConcurrentRecording() throws Exception {
+		Histogram histogram = new Histogram();
+
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					histogram.record(i);
+				}
+			});
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertEquals(40_000L, histogram.getCount());
+		Assert.assertEquals(4L * 9_999L * 10_000L / 2L, histogram.getSum());
+		Assert.assertEquals(9_999L, histogram.getMax());
+	}
+}
@@ -9,12 +9,16 @@
  */
 package de.funfried.netbeans.plugins.external.formatter.sql.dbeaver;
 
+import java.lang.reflect.Field;
+import java.util.HashMap;
 import java.util.Properties;
 
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.diffplug.spotless.sql.dbeaver.DBeaverSQLFormatterConfiguration;
+
 /**
  *
  * @author bahlef
@@ -50,6 +54,31 @@ public class DBeaverFormatterWrapperTest {
 		Assert.assertEquals("Formatting should change the code", expected, actual.replaceAll("\r", ""));
 	}
 
+	@Test
+	public void testRepeatedFormatKeepsEngineState() throws Exception {
+		DBeaverFormatterWrapper wrapper = new DBeaverFormatterWrapper();
+
+		Properties props = new Properties();
+		props.put(DBeaverFormatterSettings.INDENT_SIZE, DBeaverFormatterSettings.INDENT_SIZE_DEFAULT);
+		props.put(DBeaverFormatterSettings.STATEMENT_DELIMITER, DBeaverFormatterSettings.STATEMENT_DELIMITER_DEFAULT);
+
+		String code = "SELECT FOO FROM BAR; SELECT BAR FROM FOO;";
+		String expected = wrapper.format(code, props);
+		Assert.assertNotNull(expected);
+
+		DBeaverSQLFormatterConfiguration config = wrapper.getConfigurations().get(new HashMap<>(props));
+		Field delimiterField = DBeaverSQLFormatterConfiguration.class.getDeclaredField("statementDelimiters");
+		delimiterField.setAccessible(true);
+		Object delimiters = delimiterField.get(config);
+
+		for (int i = 0; i < 50; i++) {
+			Assert.assertEquals(expected, wrapper.format(code, props));
+		}
+
+		Assert.assertEquals(1, wrapper.getConfigurations().getCreatedCount());
+		Assert.assertEquals(delimiters, delimiterField.get(config));
+	}
+
 	@Test
 	public void testNullCode() {
 		Properties props = new Properties();
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.ui.editor;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author bahlef
+ */
+public class SaveInProgressMarkerTest {
+	@Test
+	public void testDocumentIsMarkedWhileSaving() {
+		Document document = new PlainDocument();
+		AtomicBoolean saving = new AtomicBoolean();
+
+		Assert.assertFalse(SaveInProgressMarker.isSaveInProgress(document));
+
+		new SaveInProgressMarker(document).runLocked(() -> saving.set(SaveInProgressMarker.isSaveInProgress(document)));
+
+		Assert.assertTrue(saving.get());
+		Assert.assertFalse(SaveInProgressMarker.isSaveInProgress(document));
+		Assert.assertNull(document.getProperty(SaveInProgressMarker.SAVE_IN_PROGRESS_PROPERTY));
+	}
+
+	@Test
+	public void testMarkIsRemovedOnFailure() {
+		Document document = new PlainDocument();
+
+		try {
+			new SaveInProgressMarker(document).runLocked(() -> {
+				throw new IllegalStateException("save failed");
+			});
+
+			Assert.fail("Exception expected");
+		} catch (IllegalStateException ex) {
+			Assert.assertEquals("save failed", ex.getMessage());
+		}
+
+		Assert.assertFalse(SaveInProgressMarker.isSaveInProgress(document));
+	}
+
+	@Test
+	public void testOtherDocumentsAreNotMarked() {
+		Document document = new PlainDocument();
+		Document other = new PlainDocument();
+		AtomicBoolean saving = new AtomicBoolean(true);
+
+		new SaveInProgressMarker(document).runLocked(() -> saving.set(SaveInProgressMarker.isSaveInProgress(other)));
+
+		Assert.assertFalse(saving.get());
+		Assert.assertFalse(SaveInProgressMarker.isSaveInProgress(null));
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.ui.editor.diff;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.StyledDocument;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.netbeans.api.diff.Difference;
+import org.openide.text.NbDocument;
+
+/**
+ *
+ * @author bahlef
+ */
+public class TextDiffTest {
+	private static final String[] LINES = { "", "{", "}", "\tint i = 0;", "    int i = 0;", "int i=0;", "return i;", "// comment", "public class Foo {", "  " };
+
+	@Test
+	public void testEqualTexts() {
+		Assert.assertTrue(TextDiff.diff("", "").isEmpty());
+		Assert.assertTrue(TextDiff.diff("a\nb\n", "a\nb\n").isEmpty());
+	}
+
+	@Test
+	public void testChangedIndentationOnlyReplacesWhitespaces() {
+		String original = "class Foo {\n    int i = 0;\n}\n";
+		String revised = "class Foo {\n\tint i = 0;\n}\n";
+
+		List<TextEdit> edits = TextDiff.diff(original, revised);
+
+		Assert.assertEquals(List.of(new TextEdit(12, 4, "\t")), edits);
+		Assert.assertEquals(revised, apply(original, edits));
+	}
+
+	@Test
+	public void testMissingTrailingLineBreak() {
+		Assert.assertEquals(List.of(new TextEdit(3, 0, "\n")), TextDiff.diff("a\nb", "a\nb\n"));
+		Assert.assertEquals(List.of(new TextEdit(3, 1, "")), TextDiff.diff("a\nb\n", "a\nb"));
+		Assert.assertEquals(List.of(new TextEdit(0, 0, "a\n")), TextDiff.diff("", "a\n"));
+	}
+
+	@Test
+	public void testLargeReindentedBlock() {
+		StringBuilder original = new StringBuilder();
+		StringBuilder revised = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			original.append("    line ").append(i % 10).append('\n');
+			revised.append("\tline ").append(i % 10).append('\n');
+		}
+
+		List<TextEdit> edits = TextDiff.diff(original.toString(), revised.toString());
+
+		Assert.assertEquals(5000, edits.size());
+		Assert.assertEquals(revised.toString(), apply(original.toString(), edits));
+	}
+
+	@Test
+	public void testRandomizedEquivalenceWithDiff() throws Exception {
+		Random random = new Random(4711L);
+
+		for (int run = 0; run < 2000; run++) {
+			String original = randomText(random, random.nextInt(run % 10 == 0 ? 400 : 20));
+			String revised = mutate(random, original);
+
+			String expected = applyWithDiff(original, revised);
+			Assert.assertEquals("Diff does not produce the revised text in run " + run, revised, expected);
+
+			String actual = apply(original, TextDiff.diff(original, revised));
+			Assert.assertEquals("TextDiff does not produce the same text as Diff in run " + run, expected, actual);
+		}
+	}
+
+	private static String randomText(Random random, int lines) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lines; i++) {
+			sb.append(LINES[random.nextInt(LINES.length)]).append('\n');
+		}
+
+		return sb.toString();
+	}
+
+	private static String mutate(Random random, String text) {
+		StringBuilder sb = new StringBuilder(text);
+		int mutations = 1 + random.nextInt(8);
+		for (int i = 0; i < mutations; i++) {
+			int offset = random.nextInt(sb.length() + 1);
+			switch (random.nextInt(4)) {
+				case 0:
+					sb.insert(offset, LINES[random.nextInt(LINES.length)] + "\n");
+					break;
+				case 1:
+					sb.insert(offset, random.nextBoolean() ? " " : "\t");
+					break;
+				default:
+					if (offset < sb.length() - 1) {
+						sb.deleteCharAt(offset);
+					}
+					break;
+			}
+		}
+
+		// Diff does not support a missing trailing line break
+		if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '\n') {
+			sb.append('\n');
+		}
+
+		return sb.toString();
+	}
+
+	private static String apply(String text, List<TextEdit> edits) {
+		StringBuilder sb = new StringBuilder(text);
+		for (int i = edits.size() - 1; i >= 0; i--) {
+			TextEdit edit = edits.get(i);
+			sb.replace(edit.getOffset(), edit.getOffset() + edit.getLength(), edit.getText());
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Applies the line based {@link Diff} the same way as it was applied to the documents before
+	 * {@link TextDiff} existed.
+	 */
+	private static String applyWithDiff(String original, String revised) throws Exception {
+		StyledDocument document = new DefaultStyledDocument();
+		document.insertString(0, original, null);
+
+		for (Difference d : Diff.diff(new StringReader(original), new StringReader(revised))) {
+			int startLine = d.getSecondStart();
+
+			switch (d.getType()) {
+				case Difference.ADD: {
+					document.insertString(NbDocument.findLineOffset(document, startLine - 1), d.getSecondText(), null);
+					break;
+				}
+				case Difference.CHANGE: {
+					int start = NbDocument.findLineOffset(document, startLine - 1);
+					document.remove(start, Math.min(d.getFirstText().length(), document.getLength()));
+					document.insertString(start, d.getSecondText(), null);
+					break;
+				}
+				case Difference.DELETE: {
+					int start = NbDocument.findLineOffset(document, startLine);
+					document.remove(start, Math.min(d.getFirstText().length(), document.getLength()));
+					break;
+				}
+			}
+		}
+
+		return document.getText(0, document.getLength());
+	}
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2020 bahlef.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ * Contributors:
+ * bahlef - initial API and implementation and/or initial documentation
+ */
+package de.funfried.netbeans.plugins.external.formatter.warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.prefs.Preferences;
+
+import javax.swing.text.Document;
+import javax.swing.text.StyledDocument;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+import org.netbeans.api.project.Project;
+import org.netbeans.junit.NbTestCase;
+
+import de.funfried.netbeans.plugins.external.formatter.FormatterService;
+import de.funfried.netbeans.plugins.external.formatter.MimeType;
+import de.funfried.netbeans.plugins.external.formatter.batch.PropertiesPreferences;
+import de.funfried.netbeans.plugins.external.formatter.exceptions.FormattingFailedException;
+import de.funfried.netbeans.plugins.external.formatter.json.jackson.JacksonJsonFormatterService;
+import de.funfried.netbeans.plugins.external.formatter.metrics.FormatterMetrics;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.FormatterOptionsPanel;
+import de.funfried.netbeans.plugins.external.formatter.ui.options.Settings;
+
+/**
+ *
+ * @author bahlef
+ */
+public class FormatterWarmUpTest extends NbTestCase {
+	private final CountingFormatterService jsonService = new CountingFormatterService("json-counting", MimeType.JSON, false);
+
+	private final CountingFormatterService xmlService = new CountingFormatterService("xml-counting", MimeType.XML, false);
+
+	private final CountingFormatterService failingService = new CountingFormatterService("json-failing", MimeType.JSON, true);
+
+	public FormatterWarmUpTest(String name) {
+		super(name);
+	}
+
+	@Test
+	public void testOnlyActivatedFormattersAreWarmedUpOnce() throws Exception {
+		Preferences preferences = new PropertiesPreferences();
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), jsonService.getId());
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.XML.toString(), Settings.DEFAULT_FORMATTER);
+
+		FormatterWarmUp warmUp = new FormatterWarmUp(Arrays.asList(jsonService, xmlService, failingService), FormatterWarmUp.DEFAULT_CPU_BUDGET);
+		warmUp.warmUp(Collections.singletonList(preferences));
+		warmUp.warmUp(Collections.singletonList(preferences));
+
+		Assert.assertEquals(1, jsonService.formats);
+		Assert.assertEquals(0, xmlService.formats);
+		Assert.assertEquals(0, failingService.formats);
+	}
+
+	@Test
+	public void testChangedConfigurationIsWarmedUpAgain() throws Exception {
+		Preferences preferences = new PropertiesPreferences();
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), jsonService.getId());
+
+		FormatterWarmUp warmUp = new FormatterWarmUp(Collections.singletonList(jsonService), FormatterWarmUp.DEFAULT_CPU_BUDGET);
+		warmUp.warmUp(Collections.singletonList(preferences));
+
+		preferences.putInt("json-counting.indent", 2);
+
+		warmUp.warmUp(Collections.singletonList(preferences));
+		warmUp.warmUp(Collections.singletonList(preferences));
+
+		Assert.assertEquals(2, jsonService.formats);
+	}
+
+	@Test
+	public void testWarmUpIsNotRecorded() throws Exception {
+		Preferences preferences = new PropertiesPreferences();
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), jsonService.getId());
+
+		FormatterMetrics.setEnabled(true);
+
+		try {
+			FormatterWarmUp warmUp = new FormatterWarmUp(Collections.singletonList(jsonService), FormatterWarmUp.DEFAULT_CPU_BUDGET);
+			warmUp.warmUp(Collections.singletonList(preferences));
+
+			Assert.assertEquals(1, jsonService.formats);
+			Assert.assertTrue(FormatterMetrics.getRows().stream().noneMatch(row -> jsonService.getId().equals(row.getFormatterId())));
+		} finally {
+			FormatterMetrics.setEnabled(false);
+			FormatterMetrics.reset();
+		}
+	}
+
+	@Test
+	public void testEachPreferencesAreWarmedUp() throws Exception {
+		Preferences globalPreferences = new PropertiesPreferences();
+		globalPreferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), jsonService.getId());
+
+		Preferences projectPreferences = new PropertiesPreferences();
+		projectPreferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), jsonService.getId());
+		projectPreferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.XML.toString(), xmlService.getId());
+
+		FormatterWarmUp warmUp = new FormatterWarmUp(Arrays.asList(jsonService, xmlService), FormatterWarmUp.DEFAULT_CPU_BUDGET);
+		warmUp.warmUp(Arrays.asList(globalPreferences, projectPreferences));
+
+		Assert.assertEquals(2, jsonService.formats);
+		Assert.assertEquals(1, xmlService.formats);
+	}
+
+	@Test
+	public void testFailingFormatterDoesNotStopWarmUp() throws Exception {
+		Preferences preferences = new PropertiesPreferences();
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), failingService.getId());
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.XML.toString(), xmlService.getId());
+
+		FormatterWarmUp warmUp = new FormatterWarmUp(Arrays.asList(failingService, xmlService), FormatterWarmUp.DEFAULT_CPU_BUDGET);
+		warmUp.warmUp(Collections.singletonList(preferences));
+
+		Assert.assertEquals(1, failingService.formats);
+		Assert.assertEquals(1, xmlService.formats);
+	}
+
+	@Test
+	public void testFailedWarmUpIsRetried() throws Exception {
+		Preferences preferences = new PropertiesPreferences();
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), failingService.getId());
+
+		FormatterWarmUp warmUp = new FormatterWarmUp(Collections.singletonList(failingService), FormatterWarmUp.DEFAULT_CPU_BUDGET);
+		warmUp.warmUp(Collections.singletonList(preferences));
+
+		Assert.assertFalse(warmUp.isWarmedUp(preferences, failingService.getId()));
+
+		warmUp.warmUp(Collections.singletonList(preferences));
+
+		Assert.assertEquals(2, failingService.formats);
+	}
+
+	@Test
+	public void testRealFormatterIsWarmedUp() throws Exception {
+		JacksonJsonFormatterService jacksonService = new JacksonJsonFormatterService();
+
+		Preferences preferences = new PropertiesPreferences();
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), jacksonService.getId());
+
+		FormatterWarmUp warmUp = new FormatterWarmUp(Collections.singletonList(jacksonService), FormatterWarmUp.DEFAULT_CPU_BUDGET);
+		warmUp.warmUp(Collections.singletonList(preferences));
+
+		Assert.assertTrue(warmUp.isWarmedUp(preferences, jacksonService.getId()));
+	}
+
+	@Test
+	public void testCpuBudget() throws Exception {
+		Preferences preferences = new PropertiesPreferences();
+		preferences.put(Settings.ENABLED_FORMATTER_PREFIX + MimeType.JSON.toString(), jsonService.getId());
+
+		FormatterWarmUp warmUp = new FormatterWarmUp(Collections.singletonList(jsonService), 0L);
+		warmUp.warmUp(Collections.singletonList(preferences));
+
+		Assert.assertEquals(0, jsonService.formats);
+	}
+
+	/**
+	 * {@link FormatterService} which counts its formattings and records them to the
+	 * {@link FormatterMetrics} like a formatting of a document.
+	 */
+	private static class CountingFormatterService implements FormatterService {
+		private final String id;
+
+		private final MimeType mimeType;
+
+		private final boolean fail;
+
+		private int formats;
+
+		private CountingFormatterService(String id, MimeType mimeType, boolean fail) {
+			this.id = id;
+			this.mimeType = mimeType;
+			this.fail = fail;
+		}
+
+		@Override
+		public boolean format(StyledDocument document, SortedSet<Pair<Integer, Integer>> changedElements) throws FormattingFailedException {
+			formats++;
+
+			try (FormatterMetrics.Recording recording = FormatterMetrics.start(id, mimeType.toString(), document.getLength(), 0)) {
+				if (fail) {
+					recording.failed();
+
+					throw new FormattingFailedException("Failed to format the sample");
+				}
+
+				FormatterMetrics.stopTimer(FormatterMetrics.Phase.FORMAT, FormatterMetrics.startTimer());
+			}
+
+			return true;
+		}
+
+		@Override
+		public Integer getContinuationIndentSize(Document document) {
+			return null;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return id;
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+
+		@Override
+		public Integer getIndentSize(Document document) {
+			return null;
+		}
+
+		@Override
+		public FormatterOptionsPanel createOptionsPanel(Project project) {
+			return null;
+		}
+
+		@Override
+		public Integer getRightMargin(Document document) {
+			return null;
+		}
+
+		@Override
+		public Integer getSpacesPerTab(Document document) {
+			return null;
+		}
+
+		@Override
+		public List<MimeType> getSupportedMimeTypes() {
+			return Collections.singletonList(mimeType);
+		}
+
+		@Override
+		public Boolean isExpandTabToSpaces(Document document) {
+			return null;
+		}
+
+		@Override
+		public Boolean organizeImports(StyledDocument document, boolean afterFixImports) {
+			return null;
+		}
+	}
+}